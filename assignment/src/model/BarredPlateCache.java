@@ -0,0 +1,241 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Every plate that currently owes money, kept in memory so the gate check (FineManager.is_vehicle_barred)
+// is one hash lookup instead of an ordered query. Built once from the "fines" table and kept up to date
+// write-through: every FineManager method that changes whether a fine is unpaid calls refresh() after
+// its write, and the affected plate is re-read from the table.
+// Changes made outside FineManager (another process, hand-written SQL) are not seen until reload();
+// check_staleness() reports how far the cache has drifted.
+// Plates are keyed by their PlateCodec code in a LongObjectMap: lookups take no lock and allocate nothing,
+// and every write happens under the cache's own lock (the map's single writer).
+public class BarredPlateCache {
+
+    // Above this many plates in one write, one full reload is cheaper than a refresh per plate
+    private static final int RELOAD_THRESHOLD = 256;
+
+    private static volatile BarredPlateCache current;
+
+    // --- STATISTICS ---
+    private static final LongAdder hits = new LongAdder();      // Lookup found a barred plate
+    private static final LongAdder misses = new LongAdder();    // Lookup found nothing owed
+    private static final AtomicLong refreshes = new AtomicLong();
+    private static final AtomicLong reloads = new AtomicLong();
+    private static volatile int lastStaleCount = -1;           // -1 = never checked
+    private static volatile long lastCheckMillis = 0;
+
+    // What one plate owes (immutable, replaced as a whole)
+    public static final class Summary {
+        public final int count;
+        public final double total;
+        public final String latestFineID;
+        public final double latestAmount;
+        final String[] fineIDs; // The unpaid fines behind it, so a refresh drops exactly these from unpaidFines
+
+        Summary(int count, double total, String latestFineID, double latestAmount, String[] fineIDs) {
+            this.count = count;
+            this.total = total;
+            this.latestFineID = latestFineID;
+            this.latestAmount = latestAmount;
+            this.fineIDs = fineIDs;
+        }
+
+        boolean same_as(Summary other) {
+            return other != null && count == other.count && Math.abs(total - other.total) < 0.005
+                    && latestFineID.equals(other.latestFineID);
+        }
+    }
+
+    private final String url;
+    private final long loadedAt = System.currentTimeMillis();
+    private final LongObjectMap<Summary> barred;                       // plate code -> what is owed
+    private final Map<String, String> unpaidFines = new ConcurrentHashMap<>(); // fineID -> plate, to find the plate on delete
+
+    private BarredPlateCache(String url, LongObjectMap<Summary> barred, Map<String, String> unpaidFines) {
+        this.url = url;
+        this.barred = barred;
+        this.unpaidFines.putAll(unpaidFines);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Loading
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // The cache for the database the pool currently points at (built on first use)
+    private static BarredPlateCache get() {
+        BarredPlateCache cache = current;
+        if (cache != null && cache.url.equals(ConnectionPool.get_url())) return cache;
+
+        synchronized (BarredPlateCache.class) {
+            String url = ConnectionPool.get_url();
+            if (current == null || !current.url.equals(url)) {
+                current = load(url);
+            }
+            return current;
+        }
+    }
+
+    // Build the cache now instead of on the first gate check (called at startup)
+    public static void warm_up() {
+        get();
+    }
+
+    // Throw everything away and read the fines table again
+    public static synchronized void reload() {
+        current = load(ConnectionPool.get_url());
+    }
+
+    private static BarredPlateCache load(String url) {
+        Map<String, List<Object[]>> rows = new HashMap<>();
+        String sql = "SELECT vehiclePlate, fineID, amount FROM fines WHERE isPaid = 0 ORDER BY vehiclePlate, issueDate DESC";
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rows.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+                        .add(new Object[]{rs.getString(2), rs.getDouble(3)});
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading barred plates: " + e.getMessage());
+        }
+
+        LongObjectMap<Summary> barred = new LongObjectMap<>(rows.size());
+        Map<String, String> unpaidFines = new HashMap<>();
+        for (Map.Entry<String, List<Object[]>> e : rows.entrySet()) {
+            barred.put(PlateCodec.encode(e.getKey()), summarize(e.getValue()));
+            for (Object[] fine : e.getValue()) unpaidFines.put((String) fine[0], e.getKey());
+        }
+        reloads.incrementAndGet();
+        return new BarredPlateCache(url, barred, unpaidFines);
+    }
+
+    // Rows are {fineID, amount}, newest first
+    private static Summary summarize(List<Object[]> fines) {
+        double total = 0.0;
+        String[] fineIDs = new String[fines.size()];
+        for (int i = 0; i < fineIDs.length; i++) {
+            fineIDs[i] = (String) fines.get(i)[0];
+            total += (Double) fines.get(i)[1];
+        }
+        return new Summary(fines.size(), total, fineIDs[0], (Double) fines.get(0)[1], fineIDs);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Gate checks
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static boolean is_barred(String plate) {
+        return get_summary(plate) != null;
+    }
+
+    // Null = nothing owed. No SQL and no allocation.
+    public static Summary get_summary(String plate) {
+        Summary s = get().barred.get(PlateCodec.lookup(plate)); // 0 (never stored) finds nothing
+        if (s != null) hits.increment();
+        else misses.increment();
+        return s;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Write-through (call AFTER the change is committed)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Re-read what these plates owe
+    public static void refresh(Iterable<String> plates) {
+        List<String> distinct = new ArrayList<>();
+        for (String p : plates) {
+            if (!distinct.contains(p) && distinct.size() <= RELOAD_THRESHOLD) distinct.add(p);
+        }
+        if (distinct.size() > RELOAD_THRESHOLD) {
+            reload();
+            return;
+        }
+        for (String p : distinct) refresh(p);
+    }
+
+    public static void refresh(String plate) {
+        BarredPlateCache cache = get();
+        // Serialised so an older read can never overwrite a newer one
+        synchronized (cache) {
+            List<Object[]> fines = new ArrayList<>();
+            String sql = "SELECT fineID, amount FROM fines WHERE vehiclePlate = ? AND isPaid = 0 ORDER BY issueDate DESC";
+            try (Connection conn = DatabaseManager.connect();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, plate);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) fines.add(new Object[]{rs.getString(1), rs.getDouble(2)});
+            } catch (SQLException e) {
+                // Can't tell what the plate owes any more: drop the whole cache rather than guess
+                System.out.println("Error refreshing barred plate " + plate + ": " + e.getMessage());
+                current = null;
+                return;
+            }
+
+            // Only this plate's previous fines: the write-through stays O(fines of the plate), not O(unpaid fines in the lot)
+            Summary before = cache.barred.get(PlateCodec.lookup(plate));
+            if (before != null) {
+                for (String fineID : before.fineIDs) cache.unpaidFines.remove(fineID, plate);
+            }
+            if (fines.isEmpty()) {
+                cache.barred.remove(PlateCodec.lookup(plate));
+            } else {
+                cache.barred.put(PlateCodec.encode(plate), summarize(fines));
+                for (Object[] fine : fines) cache.unpaidFines.put((String) fine[0], plate);
+            }
+            refreshes.incrementAndGet();
+        }
+    }
+
+    // Plate of an unpaid fine, so a delete by fineID knows which plate to refresh. Null = not unpaid.
+    public static String plate_of_unpaid(String fineID) {
+        return get().unpaidFines.get(fineID);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Metrics
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Compares the cache with the table (one full read). Returns how many plates disagree.
+    public static int check_staleness() {
+        BarredPlateCache cache = get();
+        BarredPlateCache fresh = load(cache.url);
+        reloads.decrementAndGet(); // Only a comparison, not a reload
+
+        int[] stale = {0};
+        fresh.barred.for_each((code, owed) -> {
+            if (!owed.same_as(cache.barred.get(code))) stale[0]++;
+        });
+        cache.barred.for_each((code, owed) -> {
+            if (!fresh.barred.contains(code)) stale[0]++;
+        });
+        lastStaleCount = stale[0];
+        lastCheckMillis = System.currentTimeMillis();
+        return stale[0];
+    }
+
+    public static long get_hits() { return hits.sum(); }
+    public static long get_misses() { return misses.sum(); }
+
+    public static String get_stats() {
+        BarredPlateCache cache = get();
+        long h = hits.sum();
+        long m = misses.sum();
+        double hitRate = (h + m == 0) ? 0.0 : 100.0 * h / (h + m);
+        String lastCheck = (lastStaleCount < 0) ? "never"
+                : lastStaleCount + " stale plates " + (System.currentTimeMillis() - lastCheckMillis) / 1000 + " s ago";
+        return String.format("[BARRED CACHE] plates=%d hits=%d misses=%d (%.1f%% barred) refreshes=%d reloads=%d age=%d s lastCheck=%s",
+                cache.barred.size(), h, m, hitRate, refreshes.get(), reloads.get(),
+                (System.currentTimeMillis() - cache.loadedAt) / 1000, lastCheck);
+    }
+}
@@ -0,0 +1,156 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Writes many rows with ONE transaction (one fsync) using addBatch/executeBatch.
+// Rows are sent in chunks; if a chunk fails, only that chunk is rolled back and retried
+// row by row so the good rows still land and every bad row is reported with its reason.
+public class BatchWriter {
+
+    public static final int CHUNK_SIZE = 1000;
+
+    // Fills the "?" placeholders of the INSERT for one row
+    public interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, T row) throws SQLException;
+    }
+
+    // --- 1. WRITE IN ITS OWN TRANSACTION ---
+    public static <T> Result<T> write(String sql, Collection<? extends T> rows, RowBinder<T> binder) {
+        Result<T> result = new Result<>(rows.size());
+        if (rows.isEmpty()) return result;
+
+        try {
+            DatabaseManager.in_transaction(conn -> write(conn, sql, rows, binder, result));
+        } catch (SQLException e) {
+            // The commit itself failed: nothing was written
+            System.out.println("Error writing batch: " + e.getMessage());
+            result.fail_everything(rows, e.getMessage());
+        }
+        return result;
+    }
+
+    // --- 2. WRITE INSIDE A TRANSACTION THE CALLER ALREADY OWNS ---
+    public static <T> Result<T> write(Connection conn, String sql, Collection<? extends T> rows, RowBinder<T> binder) throws SQLException {
+        return write(conn, sql, rows, binder, new Result<>(rows.size()));
+    }
+
+    private static <T> Result<T> write(Connection conn, String sql, Collection<? extends T> rows,
+                                       RowBinder<T> binder, Result<T> result) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            List<T> chunk = new ArrayList<>(Math.min(rows.size(), CHUNK_SIZE));
+            int chunkStart = 0;
+            for (T row : rows) {
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    write_chunk(conn, pstmt, chunk, chunkStart, binder, result);
+                    chunkStart += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                write_chunk(conn, pstmt, chunk, chunkStart, binder, result);
+            }
+        }
+        return result;
+    }
+
+    private static <T> void write_chunk(Connection conn, PreparedStatement pstmt, List<T> chunk, int chunkStart,
+                                        RowBinder<T> binder, Result<T> result) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            for (T row : chunk) {
+                binder.bind(pstmt, row);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.releaseSavepoint(savepoint);
+            result.written += chunk.size();
+            return;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback(savepoint);
+            conn.releaseSavepoint(savepoint);
+            pstmt.clearBatch();
+        }
+
+        // Slow path: find out exactly which rows are bad. A failed single statement
+        // only undoes itself in SQLite, so the rows before it stay written.
+        for (int i = 0; i < chunk.size(); i++) {
+            T row = chunk.get(i);
+            try {
+                binder.bind(pstmt, row);
+                pstmt.executeUpdate();
+                result.written++;
+            } catch (SQLException | RuntimeException e) {
+                result.failures.add(new Failure<>(chunkStart + i, row, e.getMessage()));
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Result types
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static class Result<T> {
+        private final int attempted;
+        private int written = 0;
+        private final List<Failure<T>> failures = new ArrayList<>();
+
+        Result(int attempted) {
+            this.attempted = attempted;
+        }
+
+        // Every row failed with "message" (the transaction around the write could not commit)
+        static <T> Result<T> failed(Collection<? extends T> rows, String message) {
+            Result<T> result = new Result<>(rows.size());
+            result.fail_everything(rows, message);
+            return result;
+        }
+
+        private void fail_everything(Collection<? extends T> rows, String message) {
+            written = 0;
+            failures.clear();
+            int index = 0;
+            for (T row : rows) {
+                failures.add(new Failure<>(index++, row, message));
+            }
+        }
+
+        public int getAttempted() { return attempted; }
+        public int getWritten() { return written; }
+        public List<Failure<T>> getFailures() { return Collections.unmodifiableList(failures); }
+        public boolean isFullySuccessful() { return failures.isEmpty(); }
+
+        @Override
+        public String toString() {
+            return String.format("[BATCH] %d of %d rows written, %d failed", written, attempted, failures.size());
+        }
+    }
+
+    public static class Failure<T> {
+        private final int index;    // Position of the row in the collection that was passed in
+        private final T row;
+        private final String reason;
+
+        Failure(int index, T row, String reason) {
+            this.index = index;
+            this.row = row;
+            this.reason = reason;
+        }
+
+        public int getIndex() { return index; }
+        public T getRow() { return row; }
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "Row " + index + ": " + reason;
+        }
+    }
+}
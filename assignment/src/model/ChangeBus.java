@@ -0,0 +1,90 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process notifications of committed changes, so screens can patch the rows that changed instead of
+// re-reading whole tables. The managers publish after their transaction commits:
+//   TicketManager      TICKET_ISSUED, TICKET_CLOSED, SPOT_CHANGED (entry/exit), FINE_PAID (fines paid at the exit)
+//   FineManager        FINE_ISSUED (new fine), FINE_PAID, FINE_UPDATED (an existing fine saved again), FINE_REVOKED
+//   ParkingSpotManager SPOT_CHANGED (occupy/free), RELOADED (re-provisioned lot)
+// Bulk writes (save_fines, clear_fines_table, provision_lot) publish one RELOADED event instead of a row each.
+//
+// Listeners are called on the publisher's thread (often a gate), so they must only queue the event and
+// return; the UI batches them onto the Swing thread (ui.EventBatcher).
+public class ChangeBus {
+
+    public enum Kind {
+        TICKET_ISSUED,
+        TICKET_CLOSED,
+        FINE_ISSUED,
+        FINE_PAID,
+        FINE_UPDATED,   // An existing fine was saved again (edited): never a new row
+        FINE_REVOKED,
+        SPOT_CHANGED,
+        RELOADED        // Many rows of "key"'s table changed at once ("fines", "tickets", "spots"): re-read it
+    }
+
+    public static final class Event {
+        public final Kind kind;
+        public final String key;        // ticketID, fineID, spotID, or table name for RELOADED
+        public final Ticket ticket;     // TICKET_* events
+        public final Fine fine;         // FINE_ISSUED / FINE_PAID / FINE_UPDATED: the fine as it is now
+        public final String plate;      // FINE_REVOKED: the fine's plate. SPOT_CHANGED: the vehicle now there (null = free)
+
+        private Event(Kind kind, String key, Ticket ticket, Fine fine, String plate) {
+            this.kind = kind;
+            this.key = key;
+            this.ticket = ticket;
+            this.fine = fine;
+            this.plate = plate;
+        }
+
+        public static Event ticket_issued(Ticket t) { return new Event(Kind.TICKET_ISSUED, t.getTicketID(), t, null, t.getVehiclePlate()); }
+        public static Event ticket_closed(Ticket t) { return new Event(Kind.TICKET_CLOSED, t.getTicketID(), t, null, t.getVehiclePlate()); }
+        public static Event fine_issued(Fine f) { return new Event(Kind.FINE_ISSUED, f.getFineID(), null, f, f.getVehiclePlate()); }
+        public static Event fine_paid(Fine f) { return new Event(Kind.FINE_PAID, f.getFineID(), null, f, f.getVehiclePlate()); }
+        public static Event fine_updated(Fine f) { return new Event(Kind.FINE_UPDATED, f.getFineID(), null, f, f.getVehiclePlate()); }
+        public static Event fine_revoked(String fineID, String plate) { return new Event(Kind.FINE_REVOKED, fineID, null, null, plate); }
+        public static Event spot_changed(String spotID, String plate) { return new Event(Kind.SPOT_CHANGED, spotID, null, null, plate); }
+        public static Event reloaded(String table) { return new Event(Kind.RELOADED, table, null, null, null); }
+
+        @Override
+        public String toString() {
+            return kind + " " + key + (plate != null ? " (" + plate + ")" : "");
+        }
+    }
+
+    public interface Listener {
+        void on_event(Event event);
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicLong published = new AtomicLong();
+
+    public static void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void unsubscribe(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Call after the change is committed. With nobody listening (tests, load generators) this is just a counter.
+    public static void publish(Event event) {
+        published.incrementAndGet();
+        for (Listener l : listeners) {
+            try {
+                l.on_event(event);
+            } catch (RuntimeException e) {
+                // A broken screen must never fail the write that was already committed
+                System.out.println("Error delivering " + event + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static long get_published_count() {
+        return published.get();
+    }
+}
@@ -0,0 +1,349 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionPool {
+
+    // --- CONFIGURATION ---
+    // Change these with configure()/set_*() BEFORE the first DatabaseManager.connect() call.
+    private static volatile String dbUrl = "jdbc:sqlite:ParkingSystem.db";
+    private static int maxConnections = 8;
+    private static int borrowTimeoutMs = 30000;      // How long a caller waits for a free connection
+    private static int busyTimeoutMs = 5000;         // How long SQLite waits on a locked file before SQLITE_BUSY
+    private static int cacheSizeKb = 8192;           // PRAGMA cache_size (page cache per connection)
+    private static long mmapSizeBytes = 64L << 20;   // PRAGMA mmap_size (64 MB)
+    private static String synchronous = "NORMAL";    // NORMAL is crash-safe under WAL and skips the fsync per commit
+
+    // --- POOL STATE ---
+    private static PoolState state;
+
+    // --- STATISTICS ---
+    private static final AtomicLong physicalOpened = new AtomicLong();
+    private static final AtomicLong physicalClosed = new AtomicLong();
+    private static final AtomicLong borrows = new AtomicLong();
+    private static final AtomicLong waitedBorrows = new AtomicLong();
+    private static final AtomicLong totalWaitNanos = new AtomicLong();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+    private static final AtomicLong timeouts = new AtomicLong();
+    private static final AtomicLong busyErrors = new AtomicLong();   // SQLITE_BUSY / SQLITE_LOCKED that reached a caller
+
+    // SQLite primary result codes (the low byte; extended codes such as SQLITE_BUSY_SNAPSHOT keep it)
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    // One "generation" of the pool. configure() retires the old one so connections
+    // that are still borrowed get closed (instead of re-pooled) when they come back.
+    private static class PoolState {
+        final String url;
+        final int size;
+        final LinkedBlockingDeque<Physical> idle = new LinkedBlockingDeque<>();
+        final Semaphore permits;
+        volatile boolean closed = false;
+
+        PoolState(String url, int size) {
+            this.url = url;
+            this.size = size;
+            this.permits = new Semaphore(size, true);
+        }
+    }
+
+    // A physical SQLite connection plus the statements prepared on it
+    private static class Physical {
+        final Connection raw;
+        final StatementCache statements;
+
+        Physical(Connection raw) {
+            this.raw = raw;
+            this.statements = new StatementCache(raw);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Configuration
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Point the pool at a different database (e.g. a scratch file for tests) and resize it.
+    public static synchronized void configure(String url, int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("Pool needs at least 1 connection, got " + maxConnections);
+        }
+        SpotIndex.flush(); // Pending write-behind belongs to the old database
+        LogJournal.flush();
+        shutdown();
+        ConnectionPool.dbUrl = url;
+        ConnectionPool.maxConnections = maxConnections;
+    }
+
+    public static synchronized void set_busy_timeout(int millis) {
+        busyTimeoutMs = millis;
+        shutdown(); // New value only applies to freshly opened connections
+    }
+
+    public static synchronized void set_borrow_timeout(int millis) {
+        borrowTimeoutMs = millis;
+    }
+
+    public static synchronized void set_pragmas(int cacheSizeKb, long mmapSizeBytes, String synchronous) {
+        String mode = synchronous.toUpperCase();
+        if (!mode.equals("OFF") && !mode.equals("NORMAL") && !mode.equals("FULL") && !mode.equals("EXTRA")) {
+            throw new IllegalArgumentException("Unknown synchronous mode: " + synchronous);
+        }
+        ConnectionPool.cacheSizeKb = cacheSizeKb;
+        ConnectionPool.mmapSizeBytes = mmapSizeBytes;
+        ConnectionPool.synchronous = mode;
+        shutdown();
+    }
+
+    public static String get_url() {
+        return dbUrl;
+    }
+
+    // A file kept next to the database file, like SQLite's own -wal and -shm
+    // ("jdbc:sqlite:ParkingSystem.db", "-archive" -> "ParkingSystem.db-archive").
+    // Null for in-memory and URI-style databases, which have no plain path to put it next to.
+    static Path file_beside(String url, String suffix) {
+        String prefix = "jdbc:sqlite:";
+        if (!url.startsWith(prefix)) return null;
+        String path = url.substring(prefix.length());
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+        if (path.isEmpty() || path.startsWith(":memory:") || path.startsWith("file:")) return null;
+        return Paths.get(path + suffix);
+    }
+
+    // Closes every idle connection. Borrowed ones are closed as soon as they are returned.
+    public static synchronized void shutdown() {
+        if (state == null) return;
+        state.closed = true;
+        Physical conn;
+        while ((conn = state.idle.pollFirst()) != null) {
+            close_physical(conn);
+        }
+        state = null;
+    }
+
+    private static synchronized PoolState current() {
+        if (state == null) {
+            state = new PoolState(dbUrl, maxConnections);
+        }
+        return state;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Borrow / Return
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Hands out a pooled connection. Calling close() on it returns it to the pool.
+    public static Connection borrow() throws SQLException {
+        PoolState pool = current();
+
+        long start = System.nanoTime();
+        boolean acquired = pool.permits.tryAcquire();
+        if (!acquired) {
+            waitedBorrows.incrementAndGet();
+            try {
+                acquired = pool.permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection");
+            }
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLException("Connection pool exhausted: no connection free after " + borrowTimeoutMs + " ms");
+        }
+
+        // LIFO: the most recently used connection has the warmest page cache
+        Physical conn = pool.idle.pollFirst();
+        try {
+            if (conn == null || conn.raw.isClosed()) {
+                conn = open_physical(pool.url);
+            }
+        } catch (SQLException e) {
+            pool.permits.release();
+            throw e;
+        }
+
+        borrows.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledHandler(conn, pool));
+    }
+
+    private static void give_back(Physical conn, PoolState pool) {
+        Connection raw = conn.raw;
+        try {
+            // Never hand a half-finished transaction to the next caller
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            if (pool.closed || raw.isClosed()) {
+                close_physical(conn);
+            } else {
+                pool.idle.offerFirst(conn);
+            }
+        } catch (SQLException e) {
+            System.out.println("Discarding broken pooled connection: " + e.getMessage());
+            close_physical(conn);
+        } finally {
+            pool.permits.release();
+        }
+    }
+
+    private static Physical open_physical(String url) throws SQLException {
+        Connection raw = DriverManager.getConnection(url);
+        try (Statement stmt = raw.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            stmt.execute("PRAGMA cache_size = " + (-cacheSizeKb)); // Negative value means KiB instead of pages
+            stmt.execute("PRAGMA mmap_size = " + mmapSizeBytes);
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+        } catch (SQLException e) {
+            raw.close();
+            throw e;
+        }
+        physicalOpened.incrementAndGet();
+        return new Physical(raw);
+    }
+
+    private static void close_physical(Physical conn) {
+        conn.statements.close_all();
+        try {
+            conn.raw.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing connection: " + e.getMessage());
+        }
+        physicalClosed.incrementAndGet();
+    }
+
+    // Intercepts close() so the physical connection goes back to the pool instead of being destroyed,
+    // and routes prepareStatement(sql) through the connection's StatementCache.
+    private static class PooledHandler implements InvocationHandler {
+        private final Physical conn;
+        private final Connection raw;
+        private final PoolState pool;
+        private boolean returned = false;
+
+        PooledHandler(Physical conn, PoolState pool) {
+            this.conn = conn;
+            this.raw = conn.raw;
+            this.pool = pool;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        give_back(conn, pool);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + raw + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (method.getName().equals("prepareStatement") && args.length == 1) {
+                        return conn.statements.prepare((String) args[0]);
+                    }
+                    try {
+                        return method.invoke(raw, args);
+                    } catch (InvocationTargetException e) {
+                        record_error(e.getCause());
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Statistics
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Called for every exception a pooled connection or cached statement throws, so lock contention
+    // is counted even when the caller swallows the exception and just prints it
+    static void record_error(Throwable t) {
+        if (t instanceof SQLException) {
+            int code = ((SQLException) t).getErrorCode() & 0xFF;
+            if (code == SQLITE_BUSY || code == SQLITE_LOCKED) busyErrors.incrementAndGet();
+        }
+    }
+
+    public static long get_busy_errors() {
+        return busyErrors.get();
+    }
+
+    public static Stats get_stats() {
+        PoolState pool;
+        synchronized (ConnectionPool.class) {
+            pool = state;
+        }
+        int idle = (pool == null) ? 0 : pool.idle.size();
+        int inUse = (pool == null) ? 0 : pool.size - pool.permits.availablePermits();
+        return new Stats(maxConnections, inUse, idle,
+                physicalOpened.get(), physicalClosed.get(), borrows.get(),
+                waitedBorrows.get(), totalWaitNanos.get(), maxWaitNanos.get(), timeouts.get(), busyErrors.get());
+    }
+
+    public static class Stats {
+        public final int maxConnections;
+        public final int inUse;
+        public final int idle;
+        public final long opened;
+        public final long closed;
+        public final long borrows;
+        public final long waitedBorrows;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+        public final long timeouts;
+        public final long busyErrors;
+
+        Stats(int maxConnections, int inUse, int idle, long opened, long closed, long borrows,
+              long waitedBorrows, long totalWaitNanos, long maxWaitNanos, long timeouts, long busyErrors) {
+            this.maxConnections = maxConnections;
+            this.inUse = inUse;
+            this.idle = idle;
+            this.opened = opened;
+            this.closed = closed;
+            this.borrows = borrows;
+            this.waitedBorrows = waitedBorrows;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeouts = timeouts;
+            this.busyErrors = busyErrors;
+        }
+
+        @Override
+        public String toString() {
+            double avgWaitMs = (waitedBorrows == 0) ? 0.0 : totalWaitNanos / 1e6 / waitedBorrows;
+            return String.format("[POOL] size=%d inUse=%d idle=%d | opened=%d closed=%d | borrows=%d waited=%d (avg %.2f ms, max %.2f ms) timeouts=%d busy=%d",
+                    maxConnections, inUse, idle, opened, closed, borrows, waitedBorrows, avgWaitMs, maxWaitNanos / 1e6, timeouts, busyErrors);
+        }
+    }
+}
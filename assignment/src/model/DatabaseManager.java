@@ -1,11 +1,10 @@
 package model;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.Collection;
 import model.Fine;
 
 
@@ -14,20 +13,19 @@ import java.time.format.DateTimeFormatter;
 
 public class DatabaseManager 
 {
-    // This will create a local file named "ParkingSystem.db" right in your folder
-    private static final String DB_URL = "jdbc:sqlite:ParkingSystem.db";
-
-    // 1. Establish the connection to the database
+    // 1. Borrow a connection to "ParkingSystem.db" from the pool (see ConnectionPool for settings)
+    // close() hands it back to the pool, so keep using try-with-resources as before.
     public static Connection connect() {
         Connection conn = null;
         try {
-            conn = DriverManager.getConnection(DB_URL);
+            conn = ConnectionPool.borrow();
         } catch (SQLException e) {
             System.out.println("Connection Failed: " + e.getMessage());
         }
         return conn;
     }
 
+    // For display only; the database stores times as epoch milliseconds (see TimeCodec)
     public static String formatDateTime(LocalDateTime dateTime) {
         if (dateTime == null) {
             return "N/A";
@@ -37,47 +35,105 @@ public class DatabaseManager
         return dateTime.format(formatter);
     }
 
+    // A unit of work that must run inside one database transaction (see in_transaction)
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    // Runs "work" on one pooled connection and commits it; any exception rolls everything back
+    public static <T> T in_transaction(SqlWork<T> work) throws SQLException {
+        try (Connection conn = ConnectionPool.borrow()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Call this ONCE when the app starts: creates/upgrades every table and index (see SchemaMigrator)
+    public static boolean initialize_database() {
+        try {
+            int version = SchemaMigrator.migrate();
+            System.out.println("SUCCESS: Database schema is at version " + version + ".");
+            BarredPlateCache.warm_up();
+            SpotIndex.warm_up();
+            LogArchive.warm_up();
+            LogJournal.warm_up();
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error initializing database: " + e.getMessage());
+            return false;
+        }
+    }
+
     //------------------------------------------------------------------------------------------------------------------------------
     //  TICKET Table Operations
     //------------------------------------------------------------------------------------------------------------------------------
 
+    // Tables are owned by SchemaMigrator now; kept so existing callers still work
     public static void initialize_ticket_table() {
-        String sql = "CREATE TABLE IF NOT EXISTS tickets ("
-                + "ticketID TEXT PRIMARY KEY, "
-                + "vehiclePlate TEXT UNIQUE, " // One active ticket per car
-                + "spotID TEXT, "
-                + "vehicleType TEXT, "
-                + "entryTime TEXT"
-                + ");";
+        initialize_database();
+    }
 
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("SUCCESS: 'tickets' table is ready.");
-        } catch (SQLException e) {
-            System.out.println("Error initializing ticket table: " + e.getMessage());
-        }
+    private static final String SAVE_TICKET_SQL =
+            "INSERT OR REPLACE INTO tickets (ticketID, vehiclePlate, spotID, vehicleType, entryTime) VALUES(?,?,?,?,?)";
+
+    private static void bind_ticket(PreparedStatement pstmt, Ticket t) throws SQLException {
+        pstmt.setString(1, t.getTicketID());
+        pstmt.setString(2, t.getVehiclePlate());
+        pstmt.setString(3, t.getSpotID());
+        pstmt.setString(4, t.getVehicleType());
+        TimeCodec.bind(pstmt, 5, t.getEntryTime());
     }
 
     public static void save_ticket(Ticket t) {
-        String sql = "INSERT OR REPLACE INTO tickets (ticketID, vehiclePlate, spotID, vehicleType, entryTime) VALUES(?,?,?,?,?)";
-
         try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(SAVE_TICKET_SQL)) {
             
-            pstmt.setString(1, t.getTicketID());
-            pstmt.setString(2, t.getVehiclePlate());
-            pstmt.setString(3, t.getSpotID());
-            pstmt.setString(4, t.getVehicleType());
-            pstmt.setString(5, t.getEntryTime().toString());
-
+            bind_ticket(pstmt, t);
             pstmt.executeUpdate();
+            PlateSearchIndex.add(t.getVehiclePlate());
             
         } catch (SQLException e) {
             System.out.println("Error saving ticket: " + e.getMessage());
         }
     }
 
+    // Bulk version of save_ticket: one transaction, failures reported per row
+    public static BatchWriter.Result<Ticket> save_tickets(Collection<Ticket> tickets) {
+        BatchWriter.Result<Ticket> result = BatchWriter.write(SAVE_TICKET_SQL, tickets, DatabaseManager::bind_ticket);
+        PlateSearchIndex.add_written(tickets, result, Ticket::getVehiclePlate);
+        if (result.getWritten() > 0) ChangeBus.publish(ChangeBus.Event.reloaded("tickets"));
+        return result;
+    }
+
+    // --- Inside a transaction the caller owns (see TicketManager.issue_ticket / close_ticket) ---
+
+    // Inserts the ticket unless this plate already has one. False = the vehicle is already inside.
+    public static boolean insert_ticket_if_absent(Connection conn, Ticket t) throws SQLException {
+        String sql = "INSERT INTO tickets (ticketID, vehiclePlate, spotID, vehicleType, entryTime) "
+                + "SELECT ?,?,?,?,? WHERE NOT EXISTS (SELECT 1 FROM tickets WHERE vehiclePlate = ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind_ticket(pstmt, t);
+            pstmt.setString(6, t.getVehiclePlate());
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
+    public static boolean delete_ticket(Connection conn, String ticketID) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM tickets WHERE ticketID = ?")) {
+            pstmt.setString(1, ticketID);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
     public static Ticket get_active_ticket(String plate) {
         String sql = "SELECT * FROM tickets WHERE vehiclePlate = ?";
 
@@ -93,7 +149,7 @@ public class DatabaseManager
                     rs.getString("vehiclePlate"),
                     rs.getString("spotID"),
                     rs.getString("vehicleType"),
-                    rs.getString("entryTime")
+                    TimeCodec.read(rs, "entryTime")
                 );
             }
         } catch (SQLException e) {
@@ -102,6 +158,40 @@ public class DatabaseManager
         return null;
     }
 
+    // The exit lane's ONE query: the active ticket plus every unpaid fine of the plate (see ExitQuote).
+    // Null = no active ticket for this plate.
+    public static ExitQuote get_exit_quote(String plate) {
+        String sql = "SELECT t.ticketID, t.spotID, t.vehicleType, t.entryTime, "
+                + "f.fineID, f.fineSchemeType, f.amount, f.reason, f.issueDate "
+                + "FROM tickets t LEFT JOIN fines f ON f.vehiclePlate = t.vehiclePlate AND f.isPaid = 0 "
+                + "WHERE t.vehiclePlate = ? ORDER BY f.issueDate DESC";
+
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, plate);
+            ResultSet rs = pstmt.executeQuery();
+
+            Ticket ticket = null;
+            java.util.List<Fine> fines = new java.util.ArrayList<>();
+            while (rs.next()) {
+                if (ticket == null) {
+                    ticket = Ticket.load_existing(rs.getString("ticketID"), plate, rs.getString("spotID"),
+                            rs.getString("vehicleType"), TimeCodec.read(rs, "entryTime"));
+                }
+                if (rs.getString("fineID") != null) {
+                    fines.add(Fine.load_existing(rs.getString("fineID"), plate, rs.getDouble("amount"),
+                            rs.getString("reason"), rs.getString("fineSchemeType"), false,
+                            TimeCodec.read(rs, "issueDate"), null, null));
+                }
+            }
+            return (ticket == null) ? null : new ExitQuote(ticket, fines, LocalDateTime.now());
+        } catch (SQLException e) {
+            System.out.println("Error fetching exit quote: " + e.getMessage());
+        }
+        return null;
+    }
+
     public static boolean delete_ticket(String plate) {
         String sql = "DELETE FROM tickets WHERE vehiclePlate = ?";
         try (Connection conn = connect();
@@ -119,8 +209,8 @@ public class DatabaseManager
         String sql = "SELECT * FROM tickets ORDER BY entryTime DESC"; // Newest first
 
         try (Connection conn = connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 list.add(Ticket.load_existing(
@@ -128,7 +218,7 @@ public class DatabaseManager
                     rs.getString("vehiclePlate"),
                     rs.getString("spotID"),
                     rs.getString("vehicleType"),
-                    rs.getString("entryTime")
+                    TimeCodec.read(rs, "entryTime")
                 ));
             }
         } catch (SQLException e) {
@@ -138,13 +228,17 @@ public class DatabaseManager
     }
 
     // --- Search/Filter for Admin ---
+    // Two single-index lookups (primary key, then idx_tickets_plate) instead of one OR that can't use either well
     public static Ticket find_ticket_by_id_or_plate(String query) {
-        String sql = "SELECT * FROM tickets WHERE ticketID = ? OR vehiclePlate = ?";
+        Ticket t = find_ticket("SELECT * FROM tickets WHERE ticketID = ?", query);
+        return (t != null) ? t : find_ticket("SELECT * FROM tickets WHERE vehiclePlate = ?", query);
+    }
+
+    private static Ticket find_ticket(String sql, String value) {
         try (Connection conn = connect();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setString(1, query);
-            pstmt.setString(2, query);
+            pstmt.setString(1, value);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
@@ -153,7 +247,7 @@ public class DatabaseManager
                     rs.getString("vehiclePlate"),
                     rs.getString("spotID"),
                     rs.getString("vehicleType"),
-                    rs.getString("entryTime")
+                    TimeCodec.read(rs, "entryTime")
                 );
             }
         } catch (SQLException e) {
@@ -167,22 +261,14 @@ public class DatabaseManager
     //------------------------------------------------------------------------------------------------------------------------------
 
     public static void initialize_spot_table() {
-        String sql = "CREATE TABLE IF NOT EXISTS spots ("
-                + "spotID TEXT PRIMARY KEY, "
-                + "floor INTEGER, "
-                + "row INTEGER, "
-                + "type TEXT, "
-                + "isOccupied INTEGER DEFAULT 0"
-                + ");";
-        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-        } catch (SQLException e) {
-            System.out.println("Error init spots: " + e.getMessage());
-        }
+        initialize_database();
     }
 
     // Save or Update a spot's status
+    // Known spots are updated in the in-memory SpotIndex and written back in the background.
     public static void update_spot_status(String spotID, boolean isOccupied) {
+        if (SpotIndex.set_occupied(spotID, isOccupied)) return;
+
         String sql = "UPDATE spots SET isOccupied = ? WHERE spotID = ?";
         try (Connection conn = connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, isOccupied ? 1 : 0);
@@ -193,6 +279,26 @@ public class DatabaseManager
         }
     }
 
+    // Compare-and-set inside the caller's transaction: occupies the spot only if the table says it is free.
+    // False = another gate (or another process) got there first.
+    // force: the caller already owns the spot in SpotIndex and the table is only behind on a release.
+    public static boolean claim_spot(Connection conn, String spotID, boolean force) throws SQLException {
+        String sql = force
+                ? "UPDATE spots SET isOccupied = 1 WHERE spotID = ?"
+                : "UPDATE spots SET isOccupied = 1 WHERE spotID = ? AND isOccupied = 0";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, spotID);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
+    public static void release_spot(Connection conn, String spotID) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE spots SET isOccupied = 0 WHERE spotID = ?")) {
+            pstmt.setString(1, spotID);
+            pstmt.executeUpdate();
+        }
+    }
+
     // Used to populate the lot initially
     public static void save_spot(ParkingSpot spot) {
         String sql = "INSERT OR REPLACE INTO spots (spotID, floor, row, type, isOccupied) VALUES(?,?,?,?,?)";
@@ -208,77 +314,98 @@ public class DatabaseManager
         }
     }
 
+    // --- For Admin Dashboard (Lot Status) ---
+    // Every spot in layout order; an occupied spot carries the plate of its ticket ("" = occupied without one)
+    public static java.util.List<ParkingSpot> get_all_spots() {
+        SpotIndex.flush(); // The table may be behind on occupy_spot / free_spot
+        java.util.List<ParkingSpot> list = new java.util.ArrayList<>();
+        String sql = "SELECT s.spotID, s.floor, s.row, s.type, s.isOccupied, t.vehiclePlate "
+                + "FROM spots s LEFT JOIN tickets t ON t.spotID = s.spotID ORDER BY s.rowid";
+
+        try (Connection conn = connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                ParkingSpot.SpotType type = ParkingSpot.SpotType.parse(rs.getString("type"));
+                if (type == null) continue; // Skipped by SpotIndex too
+                String plate = rs.getString("vehiclePlate");
+                boolean occupied = plate != null || rs.getInt("isOccupied") == 1;
+                list.add(new ParkingSpot(rs.getString("spotID"), rs.getInt("floor"), rs.getInt("row"), type,
+                        occupied, occupied && plate == null ? "" : plate));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error fetching all spots: " + e.getMessage());
+        }
+        return list;
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 //  VEHICLE LOGS Table Operations
 //----------------------------------------------------------------------------------------------------------------------
 
-    // Find a spot that matches type and is free
+    // Find a spot that matches type and is free (answered from memory by SpotIndex)
     public static String find_available_spot(String type) {
-        // Simple logic: Find first free spot of this exact type
-        String sql = "SELECT spotID FROM spots WHERE type = ? AND isOccupied = 0 LIMIT 1";
-        try (Connection conn = connect(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, type);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) return rs.getString("spotID");
-        } catch (SQLException e) {
-            System.out.println("Error finding spot: " + e.getMessage());
+        ParkingSpot.SpotType spotType = ParkingSpot.SpotType.parse(type);
+        if (spotType == null) {
+            System.out.println("Error finding spot: unknown spot type " + type);
+            return null;
         }
-        return null; // Lot full for this type
+        return SpotIndex.find_free(spotType); // Null = lot full for this type
     }
 
     public static void initialize_vehicle_logs_table() {
-        String sql = "CREATE TABLE IF NOT EXISTS vehicle_logs ("
-                + "logID INTEGER PRIMARY KEY AUTOINCREMENT, "
-                + "ticketID TEXT, "
-                + "vehiclePlate TEXT, "
-                + "spotID TEXT, "
-                + "vehicleType TEXT, "
-                + "entryTime TEXT, "
-                + "exitTime TEXT"
-                + ");";
-    
-        // The catch block below handles errors from connect(), execute(), AND the hidden close()
-        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("SUCCESS: 'vehicle_logs' table is ready.");
-        } catch (SQLException e) {
-            System.err.println("Database Error: " + e.getMessage());
-            // For your MMU eBus project, logging the error is crucial for debugging [cite: 2026-01-22]
-        }
+        initialize_database();
     }
 
             
-    public static void save_vehicle_log(VehicleLog log) {
-        String sql = "INSERT INTO vehicle_logs(ticketID, vehiclePlate, spotID, vehicleType, entryTime, exitTime) "
+    static final String SAVE_VEHICLE_LOG_SQL =
+            "INSERT INTO vehicle_logs(ticketID, vehiclePlate, spotID, vehicleType, entryTime, exitTime) "
                     + "VALUES(?,?,?,?,?,?)";
-    
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-    
-            pstmt.setString(1, log.getTicketID());
-            pstmt.setString(2, log.getVehiclePlate());
-            pstmt.setString(3, log.getSpotID());
-            pstmt.setString(4, log.getVehicleType());
-            
-            // Use your new formatDateTime utility to keep things consistent [cite: 2026-02-14]
-            pstmt.setString(5, DatabaseManager.formatDateTime(log.getEntryTime()));
-            
-            // Null check for exitTime to prevent crashes [cite: 2026-02-14]
-            if (log.getExitTime() != null) {
-                pstmt.setString(6, DatabaseManager.formatDateTime(log.getExitTime()));
-            } else {
-                pstmt.setNull(6, java.sql.Types.VARCHAR); 
-            }
-    
-            pstmt.executeUpdate(); // IMPORTANT: You forgot to actually execute the statement! [cite: 2026-01-15]
+
+    static void bind_vehicle_log(PreparedStatement pstmt, VehicleLog log) throws SQLException {
+        pstmt.setString(1, log.getTicketID());
+        pstmt.setString(2, log.getVehiclePlate());
+        pstmt.setString(3, log.getSpotID());
+        pstmt.setString(4, log.getVehicleType());
+
+        // Same encoding as every other time column; a NULL exitTime means the vehicle is still inside
+        TimeCodec.bind(pstmt, 5, log.getEntryTime());
+        TimeCodec.bind(pstmt, 6, log.getExitTime());
+    }
+
+    // Returns once the log is journaled; the row lands with the next group commit (see LogJournal)
+    public static void save_vehicle_log(VehicleLog log) {
+        if (LogJournal.save(log)) {
             System.out.println("Log saved for: " + log.getVehiclePlate());
-    
-        } catch (SQLException e) {
-            // This catch block is mandatory [cite: 2026-02-06, 2026-02-13]
-            System.err.println("Error saving vehicle log: " + e.getMessage());
         }
     }
 
+    // Inside the caller's transaction: writes the log row, or fills in the exit time of the
+    // row written at entry (exitTime still NULL) if there is one.
+    public static void save_vehicle_log(Connection conn, VehicleLog log) throws SQLException {
+        if (log.getExitTime() != null) {
+            String sql = "UPDATE vehicle_logs SET exitTime = ? WHERE ticketID = ? AND exitTime IS NULL";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                TimeCodec.bind(pstmt, 1, log.getExitTime());
+                pstmt.setString(2, log.getTicketID());
+                if (pstmt.executeUpdate() > 0) return;
+            }
+        }
+        // No entry row (e.g. a ticket issued before entries were logged): write the whole log
+        try (PreparedStatement pstmt = conn.prepareStatement(SAVE_VEHICLE_LOG_SQL)) {
+            bind_vehicle_log(pstmt, log);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Bulk version of save_vehicle_log: one transaction, failures reported per row
+    public static BatchWriter.Result<VehicleLog> save_vehicle_logs(Collection<VehicleLog> logs) {
+        BatchWriter.Result<VehicleLog> result = BatchWriter.write(SAVE_VEHICLE_LOG_SQL, logs, DatabaseManager::bind_vehicle_log);
+        PlateSearchIndex.add_written(logs, result, VehicleLog::getVehiclePlate);
+        return result;
+    }
+
 }
 
 
@@ -0,0 +1,53 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Everything the exit lane needs for one vehicle, read in a single query (see DatabaseManager.get_exit_quote):
+// the active ticket, its outstanding fines, and the price breakdown at the moment the quote was made.
+// Immutable: pay with exactly this quote (TicketManager.process_successful_payment) so the driver is
+// charged what they were shown, without looking anything up again.
+public final class ExitQuote {
+
+    private final Ticket ticket;
+    private final LocalDateTime exitTime;
+    private final long hours;
+    private final double hourlyRate;
+    private final double parkingFee;
+    private final List<Fine> fines;     // Unpaid, newest first
+    private final double fineTotal;
+
+    ExitQuote(Ticket ticket, List<Fine> fines, LocalDateTime exitTime) {
+        this.ticket = ticket;
+        this.exitTime = exitTime;
+        this.hours = TicketManager.billable_hours(ticket.getEntryTime(), exitTime);
+        this.hourlyRate = (ticket.getType() != null)
+                ? TicketManager.get_rate_for_type(ticket.getType())
+                : TicketManager.get_rate_for_type(ticket.getVehicleType());
+        this.parkingFee = hours * hourlyRate;
+        this.fines = Collections.unmodifiableList(new ArrayList<>(fines));
+
+        double sum = 0.0;
+        for (Fine f : fines) sum += f.getAmount();
+        this.fineTotal = sum;
+    }
+
+    // --- Getters ---
+    public Ticket getTicket() { return ticket; }
+    public String getVehiclePlate() { return ticket.getVehiclePlate(); }
+    public LocalDateTime getExitTime() { return exitTime; }
+    public long getHours() { return hours; }
+    public double getHourlyRate() { return hourlyRate; }
+    public double getParkingFee() { return parkingFee; }
+    public List<Fine> getFines() { return fines; }
+    public double getFineTotal() { return fineTotal; }
+    public double getTotal() { return parkingFee + fineTotal; }
+
+    @Override
+    public String toString() {
+        return String.format("[QUOTE] %s | %d h x RM %.2f = RM %.2f | Fines (%d): RM %.2f | Total: RM %.2f",
+                ticket.getVehiclePlate(), hours, hourlyRate, parkingFee, fines.size(), fineTotal, getTotal());
+    }
+}
@@ -51,20 +51,10 @@ public class Fine {
     }
 
     // 3. Factory Method for LOADING Fines (Clear Name!)
-    public static Fine load_existing(String fineID, String vehiclePlate, double amount, String reason, String fineSchemeType, boolean isPaid, String dateStr, String paymentDateStr, String paymentMethod) {
-        
-        // VALIDATION CHECK: Data Integrity
-        if (dateStr == null || dateStr.trim().isEmpty()) {
-            //Stop everything (Good for catching bugs during development)
-            throw new IllegalArgumentException("CRITICAL DATA ERROR: Fine " + fineID + " has no issue date in the database!");
-        }
-
-        LocalDateTime date = LocalDateTime.parse(dateStr);
-        LocalDateTime paymentDate = null;
-        if (paymentDateStr != null && !paymentDateStr.trim().isEmpty()) {
-            paymentDate = LocalDateTime.parse(paymentDateStr);
-        }
-        return new Fine(fineID, vehiclePlate, amount, reason, fineSchemeType, isPaid, date, paymentDate, paymentMethod);
+    // Dates as read by TimeCodec.read (paymentDate null = not paid yet).
+    // issueDate null = migration 9 could not read the old text date; the fine is still shown ("N/A").
+    public static Fine load_existing(String fineID, String vehiclePlate, double amount, String reason, String fineSchemeType, boolean isPaid, LocalDateTime issueDate, LocalDateTime paymentDate, String paymentMethod) {
+        return new Fine(fineID, vehiclePlate, amount, reason, fineSchemeType, isPaid, issueDate, paymentDate, paymentMethod);
     }
 
     // --- Core Operations ---
@@ -117,7 +107,7 @@ public class Fine {
     @Override
     public String toString() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm");
-        String formattedDate = issueDate.format(formatter);
+        String formattedDate = (issueDate == null) ? "N/A" : issueDate.format(formatter);
         
         String statusText = isPaid ? "PAID" : "UNPAID";
         
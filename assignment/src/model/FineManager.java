@@ -1,12 +1,22 @@
 package model;
 
 import java.sql.Connection;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 
 public class FineManager {
 
@@ -14,31 +24,9 @@ public class FineManager {
     // Database Method
     //-----------------------------------------------------------------------------------------------------------------------------
 
+    // The 'fines' table (and its indexes) is created by SchemaMigrator; kept so existing callers still work
     public static void initialize_fine_table() {
-        // We write standard SQL here. 
-        // Note: SQLite uses INTEGER (0 or 1) for booleans, and TEXT for dates.
-        String createFinesTableSQL = "CREATE TABLE IF NOT EXISTS fines ("
-                + "fineID TEXT PRIMARY KEY, "
-                + "fineSchemeType TEXT, "
-                + "vehiclePlate TEXT NOT NULL, "
-                + "amount REAL NOT NULL, "
-                + "reason TEXT, "
-                + "issueDate TEXT, "
-                + "isPaid INTEGER DEFAULT 0, "
-                + "paymentDate TEXT, "
-                + "paymentMethod TEXT"
-                + ");";
-
-        try (Connection conn = DatabaseManager.connect();
-             Statement stmt = conn.createStatement()) {
-            
-            // Execute the SQL statement
-            stmt.execute(createFinesTableSQL);
-            System.out.println("SUCCESS: Database initialized and 'fines' table is ready.");
-            
-        } catch (SQLException e) {
-            System.out.println("Error creating table: " + e.getMessage());
-        }
+        DatabaseManager.initialize_database();
     }
 
 //------------------------------------------------------------------------------------------------------------------------------
@@ -47,27 +35,7 @@ public class FineManager {
     
     public static void initialize_dummydataforfine_table() 
     {
-        // We write standard SQL here. 
-        // Note: SQLite uses INTEGER (0 or 1) for booleans, and TEXT for dates.
-        String createFinesTableSQL = "CREATE TABLE IF NOT EXISTS DummyDataforFine ("
-                + "fineID TEXT PRIMARY KEY, "
-                + "overtimeAmount REAL,"
-                + "paymentWay TEXT,"
-                + "paymentDate TEXT,"
-                + "staffInCharge TEXT,"
-                + "FOREIGN KEY(fineID) REFERENCES fines(fineID)"
-                + ");";
-
-        try (Connection conn = DatabaseManager.connect();
-             Statement stmt = conn.createStatement()) {
-            
-            // Execute the SQL statement
-            stmt.execute(createFinesTableSQL);
-            System.out.println("SUCCESS: Database initialized and 'DummyDataforFine' table is ready.");
-            
-        } catch (SQLException e) {
-            System.out.println("Error creating table: " + e.getMessage());
-        }
+        DatabaseManager.initialize_database();
     }
 
     public static String[] get_dummy_details(String fineID) {
@@ -82,7 +50,7 @@ public class FineManager {
                 return new String[]{
                     String.valueOf(rs.getDouble("overtimeAmount")),
                     rs.getString("paymentWay"),
-                    rs.getString("paymentDate"),
+                    DatabaseManager.formatDateTime(TimeCodec.read(rs, "paymentDate")),
                     rs.getString("staffInCharge")
                 };
             }
@@ -90,9 +58,111 @@ public class FineManager {
             System.err.println("Error fetching dummy data: " + e.getMessage());
         }
         // Fallback if no dummy data exists yet [cite: 2026-02-14]
+        return no_details();
+    }
+
+    private static String[] no_details() {
         return new String[]{"0.00", "N/A", "N/A", "System"};
     }
 
+//---------------------------------------------------------------------------------------------------------------------
+//  Fine by ID (FineDetailsDialog)
+//---------------------------------------------------------------------------------------------------------------------
+
+    // A fine and its DummyDataforFine row, in the layout of get_dummy_details
+    public static final class Details {
+        public final Fine fine;
+        public final String[] extra;     // overtime, payment way, payment date, staff in charge
+
+        Details(Fine fine, String[] extra) {
+            this.fine = fine;
+            this.extra = extra;
+        }
+    }
+
+    // Recently opened details, least recently used first. Every write to a fine drops its entry (forget_details).
+    private static final int MAX_CACHED_DETAILS = 64;
+    private static final Map<String, Details> recentDetails = new LinkedHashMap<String, Details>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Details> eldest) {
+            return size() > MAX_CACHED_DETAILS;
+        }
+    };
+    private static String recentDetailsUrl = null;   // The cache belongs to one database
+
+    public static Fine get_fine_by_id(String fineID) {
+        Details d = get_fine_details(fineID);
+        return (d == null) ? null : d.fine;
+    }
+
+    // One primary-key lookup joined with the detail row. Null = no such fine.
+    public static Details get_fine_details(String fineID) {
+        String url = ConnectionPool.get_url();
+        synchronized (recentDetails) {
+            if (!url.equals(recentDetailsUrl)) {
+                recentDetails.clear();
+                recentDetailsUrl = url;
+            }
+            Details cached = recentDetails.get(fineID);
+            if (cached != null) return cached;
+        }
+
+        String sql = "SELECT f.fineID, f.vehiclePlate, f.amount, f.reason, f.fineSchemeType, f.isPaid, f.issueDate, "
+                + "f.paymentDate, f.paymentMethod, "
+                + "d.fineID AS detailID, d.overtimeAmount, d.paymentWay, d.paymentDate AS detailPaymentDate, d.staffInCharge "
+                + "FROM fines f LEFT JOIN DummyDataforFine d ON d.fineID = f.fineID WHERE f.fineID = ?";
+        Details details = null;
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, fineID);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                Fine fine = Fine.load_existing(
+                    rs.getString("fineID"),
+                    rs.getString("vehiclePlate"),
+                    rs.getDouble("amount"),
+                    rs.getString("reason"),
+                    rs.getString("fineSchemeType"),
+                    rs.getInt("isPaid") == 1,
+                    TimeCodec.read(rs, "issueDate"),
+                    TimeCodec.read(rs, "paymentDate"),
+                    rs.getString("paymentMethod")
+                );
+                String[] extra = (rs.getString("detailID") == null) ? no_details() : new String[]{
+                    String.valueOf(rs.getDouble("overtimeAmount")),
+                    rs.getString("paymentWay"),
+                    DatabaseManager.formatDateTime(TimeCodec.read(rs, "detailPaymentDate")),
+                    rs.getString("staffInCharge")
+                };
+                details = new Details(fine, extra);
+            }
+        } catch (SQLException e) {
+            System.out.println("Error retrieving fine " + fineID + ": " + e.getMessage());
+        }
+
+        if (details != null) {
+            synchronized (recentDetails) {
+                if (url.equals(recentDetailsUrl)) recentDetails.put(fineID, details);
+            }
+        }
+        return details;
+    }
+
+    // Call after a write to this fine has committed
+    static void forget_details(String fineID) {
+        synchronized (recentDetails) {
+            recentDetails.remove(fineID);
+        }
+    }
+
+    private static void forget_all_details() {
+        synchronized (recentDetails) {
+            recentDetails.clear();
+        }
+    }
+
 
 
 //---------------------------------------------------------------------------------------------------------------------
@@ -119,17 +189,17 @@ public class FineManager {
                 double amount = rs.getDouble("amount");
                 String reason = rs.getString("reason");
                 String type = rs.getString("fineSchemeType");
-                String issueDateStr = rs.getString("issueDate");
-                String paymentDateStr = rs.getString("paymentDate");
+                LocalDateTime issueDate = TimeCodec.read(rs, "issueDate");
+                LocalDateTime paymentDate = TimeCodec.read(rs, "paymentDate");
                 String paymentMethod = rs.getString("paymentMethod");
-                System.out.println("DEBUG: Date from DB is " + issueDateStr);
+                System.out.println("DEBUG: Date from DB is " + issueDate);
 
                 // Grab the exact boolean state from the database to pass to your constructor
                 boolean dbIsPaid = rs.getInt("isPaid") == 1;
 
 
                 // Rebuild the object using your new, flexible constructor!
-                return Fine.load_existing(id, vehiclePlate, amount, reason, type, dbIsPaid, issueDateStr, paymentDateStr, paymentMethod); 
+                return Fine.load_existing(id, vehiclePlate, amount, reason, type, dbIsPaid, issueDate, paymentDate, paymentMethod); 
             }
 
         } catch (SQLException e) {
@@ -140,35 +210,55 @@ public class FineManager {
         return null; 
     }
 
+    // SQLite superpower: INSERT OR REPLACE handles both new fines AND updating paid fines!
+    private static final String SAVE_FINE_SQL = "INSERT OR REPLACE INTO fines "
+                + "(fineID, fineSchemeType, vehiclePlate, amount, reason, issueDate, isPaid, paymentDate, paymentMethod) "
+                + "VALUES(?,?,?,?,?,?,?,?,?)";
+
+    // Fill in the "?" placeholders of SAVE_FINE_SQL with data from our Fine object
+    private static void bind_fine(PreparedStatement pstmt, Fine fine) throws SQLException {
+        pstmt.setString(1, fine.getFineID());
+        pstmt.setString(2, fine.getFineSchemeType());
+        pstmt.setString(3, fine.getVehiclePlate());
+        pstmt.setDouble(4, fine.getAmount());
+        pstmt.setString(5, fine.getReason());
+
+        // Dates are stored as epoch milliseconds (see TimeCodec)
+        TimeCodec.bind(pstmt, 6, fine.getIssueDate());
+
+        // SQLite stores booleans as 0 (false) or 1 (true)
+        pstmt.setInt(7, fine.isPaid() ? 1 : 0);
+
+        TimeCodec.bind(pstmt, 8, fine.getPaymentDate());
+        pstmt.setString(9, fine.getPaymentMethod());
+    }
+
+    // A paid fine goes into the revenue rollups in the same transaction; if it replaces a fine that was
+    // already paid, that old payment comes out first so the revenue is never counted twice
     public static boolean save_fine(Fine fine) 
     {
-        // SQLite superpower: INSERT OR REPLACE handles both new fines AND updating paid fines!
-        String sql = "INSERT OR REPLACE INTO fines "
-                    + "(fineID, fineSchemeType, vehiclePlate, amount, reason, issueDate, isPaid, paymentDate, paymentMethod) "
-                    + "VALUES(?,?,?,?,?,?,?,?,?)";
-
-        try (Connection conn = DatabaseManager.connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) 
+        try
         {
-            
-            // Fill in the "?" placeholders with data from our Fine object
-            pstmt.setString(1, fine.getFineID());
-            pstmt.setString(2, fine.getFineSchemeType());
-            pstmt.setString(3, fine.getVehiclePlate());
-            pstmt.setDouble(4, fine.getAmount());
-            pstmt.setString(5, fine.getReason());
-            
-            // SQLite stores dates as Text, so we convert LocalDateTime to a String
-            pstmt.setString(6, fine.getIssueDate() != null ? fine.getIssueDate().toString() : null);
-            
-            // SQLite stores booleans as 0 (false) or 1 (true)
-            pstmt.setInt(7, fine.isPaid() ? 1 : 0);
-            
-            pstmt.setString(8, fine.getPaymentDate() != null ? fine.getPaymentDate().toString() : null);
-            pstmt.setString(9, fine.getPaymentMethod());
+            Fine before = DatabaseManager.in_transaction(conn -> {
+                Fine stored = get_stored_fine(conn, fine.getFineID());
+                try (PreparedStatement pstmt = conn.prepareStatement(SAVE_FINE_SQL)) {
+                    bind_fine(pstmt, fine);
 
-            // Execute the save!
-            pstmt.executeUpdate();
+                    // Execute the save!
+                    pstmt.executeUpdate();
+                }
+                RevenueRollup.Tally revenue = new RevenueRollup.Tally();
+                move_revenue(revenue, (stored != null && stored.isPaid()) ? stored : null, fine);
+                revenue.apply(conn);
+                return stored;
+            });
+            PlateSearchIndex.add(fine.getVehiclePlate());
+            forget_details(fine.getFineID());
+            BarredPlateCache.refresh(fine.getVehiclePlate());
+            // Only a fine that wasn't there before is "issued": screens may drop an issue+revoke pair unseen
+            if (fine.isPaid() && (before == null || !before.isPaid())) ChangeBus.publish(ChangeBus.Event.fine_paid(fine));
+            else if (before == null) ChangeBus.publish(ChangeBus.Event.fine_issued(fine));
+            else ChangeBus.publish(ChangeBus.Event.fine_updated(fine));
             System.out.println("   [DB SUCCESS] Saved fine " + fine.getFineID() + " to SQLite.");
             return true;
         } catch (SQLException e) 
@@ -178,14 +268,73 @@ public class FineManager {
         }
     }
 
+    // "after" replaced "before" (the stored fine if it was paid, else null): the old payment leaves the
+    // revenue rollups and the new one, if any, goes in. The caller applies the tally in the write's transaction.
+    private static void move_revenue(RevenueRollup.Tally revenue, Fine before, Fine after) {
+        if (before != null && before.getPaymentDate() != null) {
+            revenue.reverse(before.getPaymentDate().toLocalDate(), RevenueRollup.Source.FINE,
+                    before.getPaymentMethod(), before.getFineSchemeType(), before.getAmount());
+        }
+        if (after.isPaid() && after.getPaymentDate() != null) {
+            revenue.record(after.getPaymentDate().toLocalDate(), RevenueRollup.Source.FINE,
+                    after.getPaymentMethod(), after.getFineSchemeType(), after.getAmount());
+        }
+    }
+
+    // Bulk version of save_fine: one transaction for the whole collection, failures reported per row.
+    // The revenue rollups change in the same transaction, by exactly the rows that were written.
+    public static BatchWriter.Result<Fine> save_fines(Collection<Fine> fines) {
+        BatchWriter.Result<Fine> result;
+        try {
+            result = DatabaseManager.in_transaction(conn -> {
+                // What each row replaces, read before it is overwritten (a fine listed twice: the later row replaces the earlier)
+                Map<String, Fine> paidNow = get_paid_fines(conn, fines);
+                BatchWriter.Result<Fine> written = BatchWriter.write(conn, SAVE_FINE_SQL, fines, FineManager::bind_fine);
+                Set<Integer> failed = new HashSet<>();
+                for (BatchWriter.Failure<Fine> f : written.getFailures()) failed.add(f.getIndex());
+                RevenueRollup.Tally revenue = new RevenueRollup.Tally();
+                int i = 0;
+                for (Fine f : fines) {
+                    if (failed.contains(i++)) continue;
+                    move_revenue(revenue, paidNow.get(f.getFineID()), f);
+                    paidNow.put(f.getFineID(), f.isPaid() ? f : null);
+                }
+                revenue.apply(conn);
+                return written;
+            });
+        } catch (SQLException e) {
+            // The commit itself failed: nothing was written
+            System.out.println("Error writing batch: " + e.getMessage());
+            result = BatchWriter.Result.failed(fines, e.getMessage());
+        }
+        PlateSearchIndex.add_written(fines, result, Fine::getVehiclePlate);
+        List<String> plates = new ArrayList<>(fines.size());
+        for (Fine f : fines) {
+            plates.add(f.getVehiclePlate());
+            forget_details(f.getFineID());
+        }
+        BarredPlateCache.refresh(plates);
+        if (result.getWritten() > 0) ChangeBus.publish(ChangeBus.Event.reloaded("fines"));
+        System.out.println("   [DB SUCCESS] " + result);
+        return result;
+    }
+
     // DANGER: This deletes ALL fine table data. Use only for testing!
     public static void clear_fines_table() {
         String sql = "DELETE FROM fines"; // "TRUNCATE" isn't standard in SQLite, so we use DELETE
 
-        try (Connection conn = DatabaseManager.connect();
-             Statement stmt = conn.createStatement()) {
-            
-            stmt.executeUpdate(sql);
+        try {
+            // Fine revenue goes with the fines, in the same transaction
+            DatabaseManager.in_transaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.executeUpdate();
+                }
+                RevenueRollup.clear(conn, RevenueRollup.Source.FINE);
+                return null;
+            });
+            forget_all_details();
+            BarredPlateCache.reload();
+            ChangeBus.publish(ChangeBus.Event.reloaded("fines"));
             System.out.println("   [SYSTEM WARNING] DATABASE CLEARED! All fine records deleted.");
 
         } catch (SQLException e) {
@@ -197,32 +346,28 @@ public class FineManager {
     // Business Logic Methods
     //----------------------------------------------------------------------------------------------------------------------------- 
     
+    // dateFilter: a day "2026-02-11", a month "2026-02" or a year "2026" (answered from RevenueRollup)
     public static void generate_fine_revenue_report(String dateFilter) {
-        // Uses the LIKE operator to match the beginning of our date strings (e.g., "2026-02-11%")
-        String sql = "SELECT SUM(amount) as total_revenue, COUNT(fineID) as total_fines " +
-                     "FROM fines WHERE isPaid = 1 AND paymentDate LIKE ?";
-    
-        try (Connection conn = DatabaseManager.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, dateFilter + "%");
-            ResultSet rs = pstmt.executeQuery();
-    
-            if (rs.next()) {
-                double totalRevenue = rs.getDouble("total_revenue");
-                int totalFines = rs.getInt("total_fines");
-    
-                System.out.println("\n========================================");
-                System.out.println("   FINE REVENUE REPORT - DATE: " + dateFilter);
-                System.out.println("========================================");
-                System.out.println(" Total Fines Collected : " + totalFines);
-                System.out.println(" Total Revenue Earned  : RM " + String.format("%.2f", totalRevenue));
-                System.out.println("========================================\n");
-            }
-    
-        } catch (SQLException e) {
-            System.out.println("Error generating report: " + e.getMessage());
+        RevenueRollup.Report report;
+        try {
+            if (dateFilter.length() == 4) report = RevenueRollup.year(Integer.parseInt(dateFilter));
+            else if (dateFilter.length() == 7) report = RevenueRollup.month(YearMonth.parse(dateFilter));
+            else report = RevenueRollup.day(LocalDate.parse(dateFilter));
+        } catch (RuntimeException e) {
+            System.out.println("Error generating report: " + dateFilter + " is not a day, month or year.");
+            return;
         }
+
+        // Fines only (parking fees are in the same report under PARKING)
+        double totalRevenue = report.get(RevenueRollup.Source.FINE);
+        int totalFines = report.count(RevenueRollup.Source.FINE);
+
+        System.out.println("\n========================================");
+        System.out.println("   FINE REVENUE REPORT - DATE: " + dateFilter);
+        System.out.println("========================================");
+        System.out.println(" Total Fines Collected : " + totalFines);
+        System.out.println(" Total Revenue Earned  : RM " + String.format("%.2f", totalRevenue));
+        System.out.println("========================================\n");
     }
     // ADMIN: View EVERY fine in the database
     public static List<Fine> view_all_fines() {
@@ -230,8 +375,8 @@ public class FineManager {
         String sql = "SELECT * FROM fines ORDER BY issueDate DESC";
 
         try (Connection conn = DatabaseManager.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             while (rs.next()) {
                 list.add(Fine.load_existing(
@@ -241,8 +386,8 @@ public class FineManager {
                     rs.getString("reason"),
                     rs.getString("fineSchemeType"),
                     rs.getInt("isPaid") == 1,
-                    rs.getString("issueDate"),
-                    rs.getString("paymentDate"),
+                    TimeCodec.read(rs, "issueDate"),
+                    TimeCodec.read(rs, "paymentDate"),
                     rs.getString("paymentMethod")
                 ));
             }
@@ -252,13 +397,193 @@ public class FineManager {
         return list;
     }
 
+    //-----------------------------------------------------------------------------------------------------------------------------
+    // Paging (FinePanel): newest first, keyset on (issueDate, fineID) so a page costs the same anywhere in the table.
+    // A fine whose issueDate is NULL (one migration 9 could not read) pages as 0: after every dated fine.
+    //-----------------------------------------------------------------------------------------------------------------------------
+
+    // One page of fines plus the raw keys of its first and last row (to continue from, or come back to)
+    public static final class Page {
+        public final List<Fine> fines;
+        public final String[] firstKey;     // {issueDate (epoch ms, 0 = NULL), fineID}
+        public final String[] lastKey;
+
+        Page(List<Fine> fines, String[] firstKey, String[] lastKey) {
+            this.fines = fines;
+            this.firstKey = firstKey;
+            this.lastKey = lastKey;
+        }
+    }
+
+    // Matches idx_fines_page (migration 14)
+    private static final String PAGE_DATE = "COALESCE(issueDate, 0)";
+    private static final String PAGE_ORDER = " ORDER BY " + PAGE_DATE + " DESC, fineID DESC";
+
+    // Up to this many matching plates are looked up one by one (idx_fines_plate_paid_date); more than that
+    // and the matches are common enough that walking the date index with LIKE finds a page quickly
+    private static final int MAX_LISTED_PLATES = 500;
+
+    // PlateCodec.normalize in SQL, for the LIKE fallback: both branches match the same plates
+    private static final String NORMALIZED_PLATE = "REPLACE(REPLACE(REPLACE(UPPER(vehiclePlate), ' ', ''), '-', ''), char(9), '')";
+
+    // Every spelling of the plates containing plateFilter (from PlateSearchIndex); null = every fine, or too many to list
+    private static List<String> matching_plates(String plateFilter) {
+        if (plateFilter.isEmpty()) return null;
+        List<String> plates = PlateSearchIndex.substring(plateFilter, MAX_LISTED_PLATES + 1);
+        return (plates.size() > MAX_LISTED_PLATES) ? null : plates;
+    }
+
+    // The plate list is padded to a power of two (spare slots bound to NULL, which matches nothing), so each
+    // query has a handful of statement shapes in the StatementCache instead of one per number of matches
+    private static int in_list_size(int plates) {
+        return Math.max(8, Integer.highestOneBit(plates - 1) << 1);
+    }
+
+    // plateFilter: part of a plate, "" = every fine
+    private static String page_where(String plateFilter, List<String> plates) {
+        String where = " WHERE 1";
+        if (plates != null) {
+            if (plates.isEmpty()) return where + " AND 0";
+            return where + " AND vehiclePlate IN (" + "?,".repeat(in_list_size(plates.size()) - 1) + "?)";
+        }
+        return where + (plateFilter.isEmpty() ? "" : " AND " + NORMALIZED_PLATE + " LIKE ? ESCAPE '\\'");
+    }
+
+    // Binds the filter (if any) and returns the next parameter index
+    private static int bind_filter(PreparedStatement pstmt, String plateFilter, List<String> plates) throws SQLException {
+        int i = 1;
+        if (plates != null && !plates.isEmpty()) {
+            for (String p : plates) pstmt.setString(i++, p);
+            for (int n = plates.size(); n < in_list_size(plates.size()); n++) pstmt.setNull(i++, Types.VARCHAR);
+        } else if (plates == null && !plateFilter.isEmpty()) {
+            String escaped = PlateCodec.normalize(plateFilter).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            pstmt.setString(i++, "%" + escaped + "%");
+        }
+        return i;
+    }
+
+    public static int count_fines(String plateFilter) {
+        List<String> plates = matching_plates(plateFilter);
+        String sql = "SELECT COUNT(*) FROM fines" + page_where(plateFilter, plates);
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind_filter(pstmt, plateFilter, plates);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.out.println("Error counting fines: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Key of the row at this position (0 = newest). Only for jumping far ahead: it walks the index up to "offset".
+    public static String[] get_fine_key_at(String plateFilter, int offset) {
+        List<String> plates = matching_plates(plateFilter);
+        String sql = "SELECT " + PAGE_DATE + ", fineID FROM fines" + page_where(plateFilter, plates) + PAGE_ORDER + " LIMIT 1 OFFSET ?";
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = bind_filter(pstmt, plateFilter, plates);
+            pstmt.setInt(i, offset);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) return new String[]{String.valueOf(rs.getLong(1)), rs.getString(2)};
+        } catch (SQLException e) {
+            System.out.println("Error seeking fines: " + e.getMessage());
+        }
+        return null; // Past the end
+    }
+
+    // Up to "limit" fines, newest first, starting at "fromKey" (inclusive) or right after it (exclusive).
+    // fromKey null = from the newest fine.
+    public static Page get_fines_page(String plateFilter, String[] fromKey, boolean inclusive, int limit) {
+        List<String> plates = matching_plates(plateFilter);
+        String sql = "SELECT * FROM fines" + page_where(plateFilter, plates)
+                // The plain bound on PAGE_DATE is what lets SQLite seek idx_fines_page; the row value alone scans it
+                + (fromKey == null ? "" : " AND " + PAGE_DATE + " <= ? AND (" + PAGE_DATE + ", fineID) " + (inclusive ? "<=" : "<") + " (?, ?)")
+                + PAGE_ORDER + " LIMIT ?";
+        List<Fine> list = new ArrayList<>(limit);
+        String[] first = null;
+        String[] last = null;
+
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = bind_filter(pstmt, plateFilter, plates);
+            if (fromKey != null) {
+                pstmt.setLong(i++, Long.parseLong(fromKey[0]));
+                pstmt.setLong(i++, Long.parseLong(fromKey[0]));
+                pstmt.setString(i++, fromKey[1]);
+            }
+            pstmt.setInt(i, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                long pageDate = rs.getLong("issueDate"); // 0 for NULL, like PAGE_DATE
+                String fineID = rs.getString("fineID");
+                list.add(Fine.load_existing(
+                    fineID,
+                    rs.getString("vehiclePlate"),
+                    rs.getDouble("amount"),
+                    rs.getString("reason"),
+                    rs.getString("fineSchemeType"),
+                    rs.getInt("isPaid") == 1,
+                    TimeCodec.read(rs, "issueDate"),
+                    TimeCodec.read(rs, "paymentDate"),
+                    rs.getString("paymentMethod")
+                ));
+                last = new String[]{String.valueOf(pageDate), fineID};
+                if (first == null) first = last;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error retrieving fines page: " + e.getMessage());
+        }
+        return new Page(list, first, last);
+    }
+
+    // Every unpaid fine, newest first, handed to "sink" one at a time while the rows are read (nothing is
+    // collected). Reading stops as soon as sink returns false, e.g. when a UI load was cancelled.
+    public static void stream_unpaid_fines(Predicate<? super Fine> sink) {
+        String sql = "SELECT * FROM fines WHERE isPaid = 0 ORDER BY issueDate DESC";
+
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                Fine f = Fine.load_existing(
+                    rs.getString("fineID"),
+                    rs.getString("vehiclePlate"),
+                    rs.getDouble("amount"),
+                    rs.getString("reason"),
+                    rs.getString("fineSchemeType"),
+                    false,
+                    TimeCodec.read(rs, "issueDate"),
+                    TimeCodec.read(rs, "paymentDate"),
+                    rs.getString("paymentMethod")
+                );
+                if (!sink.test(f)) return;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error retrieving unpaid fines: " + e.getMessage());
+        }
+    }
+
+    public static int count_unpaid_fines() {
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM fines WHERE isPaid = 0");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.out.println("Error counting unpaid fines: " + e.getMessage());
+            return 0;
+        }
+    }
+
     // ADMIN: Show everyone who currently owes money
     public static void view_all_unpaid_fines() {
         String sql = "SELECT * FROM fines WHERE isPaid = 0";
 
         try (Connection conn = DatabaseManager.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
             System.out.println("\n--- ADMIN REPORT: OUTSTANDING FINES ---");
             System.out.printf("%-10s %-12s %-10s %-20s\n", "FINE ID", "PLATE", "AMOUNT", "REASON");
@@ -302,10 +627,8 @@ public class FineManager {
                 found = true;
                 String status = (rs.getInt("isPaid") == 1) ? "[PAID]" : "[OWING]";
                 
-                String rawDate = rs.getString("issueDate");
-                String displayDate = (rawDate != null && rawDate.length() >= 10) 
-                                 ? rawDate.substring(0, 10) 
-                                 : "N/A";
+                LocalDateTime issueDate = TimeCodec.read(rs, "issueDate");
+                String displayDate = (issueDate != null) ? issueDate.toLocalDate().toString() : "N/A";
                 
                 System.out.printf("%-10s %-12s RM %-7.2f %-10s\n", 
                     rs.getString("fineID"),
@@ -394,30 +717,74 @@ public class FineManager {
         }
 
         fineToPay.pay(paymentMethod);
-        save_fine(fineToPay);
+        // The fine and the revenue rollups change together
+        int settled;
+        try {
+            settled = DatabaseManager.in_transaction(conn ->
+                    settle_fines(conn, List.of(fineToPay), paymentMethod, fineToPay.getPaymentDate()));
+        } catch (SQLException e) {
+            System.out.println("Error recording fine payment: " + e.getMessage());
+            return;
+        }
+        if (settled == 0) {
+            System.out.println("   [INFO] Fine " + fineToPay.getFineID() + " was already paid.");
+            return;
+        }
+        forget_details(fineToPay.getFineID());
+        BarredPlateCache.refresh(vehiclePlate);
+        ChangeBus.publish(ChangeBus.Event.fine_paid(fineToPay));
         System.out.println("   [SUCCESS] Payment recorded. Fine " + fineToPay.getFineID() + " is CLEARED.");
     }
 
-    // --- 3. GATE CHECK (Unchanged) ---
-    public static boolean is_vehicle_barred(String vehiclePlate) {
-        Fine unpaidFine = get_fine(vehiclePlate, false);
-        
-        if (unpaidFine != null) {
-            System.out.println("   [ALERT] GATE BLOCKED! " + vehiclePlate + " owes RM " + unpaidFine.getAmount());
-            // This satisfies the requirement: "Next exit will show the unpaid fine"
-            return true; 
+    // Inside the caller's transaction: marks fines that were already loaded (e.g. the ones on an ExitQuote)
+    // as paid without looking them up again, and adds each one to the revenue rollups.
+    // Returns how many were still unpaid and are now settled.
+    // After the commit the caller drops their cached details (forget_details).
+    public static int settle_fines(Connection conn, List<Fine> fines, String paymentMethod, LocalDateTime paidAt) throws SQLException {
+        if (fines.isEmpty()) return 0;
+        String sql = "UPDATE fines SET isPaid = 1, paymentDate = ?, paymentMethod = ? WHERE fineID = ? AND isPaid = 0";
+        int settled = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Fine f : fines) {
+                TimeCodec.bind(pstmt, 1, paidAt);
+                pstmt.setString(2, paymentMethod);
+                pstmt.setString(3, f.getFineID());
+                if (pstmt.executeUpdate() == 0) continue;
+                settled++;
+                RevenueRollup.record(conn, paidAt.toLocalDate(), RevenueRollup.Source.FINE, paymentMethod,
+                        f.getFineSchemeType(), f.getAmount());
+            }
         }
-        return false;
+        return settled;
     }
 
-    public static boolean delete_fine(String fineID) {
-        String sql = "DELETE FROM fines WHERE fineID = ?";
-
-        try (Connection conn = DatabaseManager.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    // --- 3. GATE CHECK (answered from memory by BarredPlateCache) ---
+    // Only the answer: no printing and no allocation on either path. The caller tells the driver
+    // (BarredPlateCache.get_summary has what is owed), which satisfies "Next exit will show the unpaid fine".
+    public static boolean is_vehicle_barred(String vehiclePlate) {
+        return BarredPlateCache.is_barred(vehiclePlate);
+    }
 
-            pstmt.setString(1, fineID);
-            int rowsAffected = pstmt.executeUpdate();
+    // A paid fine that is revoked is taken back out of the revenue rollups, in the same transaction
+    public static boolean delete_fine(String fineID) {
+        String plate = BarredPlateCache.plate_of_unpaid(fineID); // Null = paid (or unknown): the cache doesn't change
+
+        try {
+            int rowsAffected = DatabaseManager.in_transaction(conn -> {
+                Fine paid = get_paid_fine(conn, fineID);
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM fines WHERE fineID = ?")) {
+                    pstmt.setString(1, fineID);
+                    int deleted = pstmt.executeUpdate();
+                    if (deleted > 0 && paid != null && paid.getPaymentDate() != null) {
+                        RevenueRollup.reverse(conn, paid.getPaymentDate().toLocalDate(), RevenueRollup.Source.FINE,
+                                paid.getPaymentMethod(), paid.getFineSchemeType(), paid.getAmount());
+                    }
+                    return deleted;
+                }
+            });
+            forget_details(fineID);
+            if (plate != null) BarredPlateCache.refresh(plate);
+            if (rowsAffected > 0) ChangeBus.publish(ChangeBus.Event.fine_revoked(fineID, plate));
 
             // If rowsAffected > 0, it means we successfully found and deleted it
             return rowsAffected > 0;
@@ -428,6 +795,59 @@ public class FineManager {
         }
     }
 
+    // Inside the caller's transaction: the stored fine if it is paid (its payment is in the rollups), else null
+    private static Fine get_paid_fine(Connection conn, String fineID) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM fines WHERE fineID = ? AND isPaid = 1")) {
+            pstmt.setString(1, fineID);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? stored_fine_from(rs) : null;
+        }
+    }
+
+    // Inside the caller's transaction: the stored fine, paid or not (null = no such fine)
+    private static Fine get_stored_fine(Connection conn, String fineID) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM fines WHERE fineID = ?")) {
+            pstmt.setString(1, fineID);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? stored_fine_from(rs) : null;
+        }
+    }
+
+    // Bulk version: the stored paid fines among these, by fineID, read PAID_LOOKUP_SIZE IDs per query
+    private static final int PAID_LOOKUP_SIZE = 500;
+
+    private static Map<String, Fine> get_paid_fines(Connection conn, Collection<Fine> fines) throws SQLException {
+        Map<String, Fine> paid = new HashMap<>();
+        String sql = "SELECT * FROM fines WHERE isPaid = 1 AND fineID IN (" + "?,".repeat(PAID_LOOKUP_SIZE - 1) + "?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int n = 0;
+            for (Fine f : fines) {
+                pstmt.setString(++n, f.getFineID());
+                if (n == PAID_LOOKUP_SIZE) {
+                    read_paid(pstmt, paid);
+                    n = 0;
+                }
+            }
+            if (n > 0) {
+                while (n < PAID_LOOKUP_SIZE) pstmt.setNull(++n, Types.VARCHAR); // NULL matches nothing
+                read_paid(pstmt, paid);
+            }
+        }
+        return paid;
+    }
+
+    private static void read_paid(PreparedStatement pstmt, Map<String, Fine> paid) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) paid.put(rs.getString("fineID"), stored_fine_from(rs));
+        }
+    }
+
+    private static Fine stored_fine_from(ResultSet rs) throws SQLException {
+        return Fine.load_existing(rs.getString("fineID"), rs.getString("vehiclePlate"), rs.getDouble("amount"),
+                rs.getString("reason"), rs.getString("fineSchemeType"), rs.getInt("isPaid") == 1,
+                TimeCodec.read(rs, "issueDate"), TimeCodec.read(rs, "paymentDate"), rs.getString("paymentMethod"));
+    }
+
     // --- 4. ADMIN: REVOKE FINE (Undo Mistake) ---
     public static void revoke_fine(String fineID) {
         boolean success = delete_fine(fineID);
@@ -439,32 +859,8 @@ public class FineManager {
         }
     }
 
+    // O(1): served from a block of IDs reserved in the "sequences" table (see SequenceAllocator)
     public static String get_next_fine_id() {
-        String sql = "SELECT fineID FROM fines";
-        int maxId = 1000; // Default start ID if DB is empty
-
-        try (java.sql.Connection conn = DatabaseManager.connect();
-            java.sql.Statement stmt = conn.createStatement();
-            java.sql.ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                String idStr = rs.getString("fineID");
-                // Assuming format "F-1000", split by "-" and parse the number
-                if (idStr != null && idStr.startsWith("F-")) {
-                    try {
-                        int idNum = Integer.parseInt(idStr.split("-")[1]);
-                        if (idNum > maxId) {
-                            maxId = idNum;
-                        }
-                    } catch (NumberFormatException e) {
-                        // Ignore malformed IDs
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error generating ID: " + e.getMessage());
-        }
-        
-        return "F-" + (maxId + 1);
+        return SequenceAllocator.FINES.next_id();
     }
 }
\ No newline at end of file
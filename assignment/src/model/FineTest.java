@@ -31,15 +31,13 @@ public class FineTest {
         System.out.println("\n--- [TEST 3] Testing Gate Check & Payment ---");
         
         // Check KUL3333 (Should be blocked)
-        System.out.print("Exit Gate for KUL3333: ");
-        FineManager.is_vehicle_barred("KUL3333");
+        System.out.println("Exit Gate for KUL3333: " + (FineManager.is_vehicle_barred("KUL3333") ? "BLOCKED" : "open"));
 
         // Process Payment for KUL3333
         FineManager.process_payment("KUL3333", "Credit Card");
 
         // Check KUL3333 again (Should be clear)
-        System.out.print("Exit Gate for KUL3333 after payment: ");
-        FineManager.is_vehicle_barred("KUL3333");
+        System.out.println("Exit Gate for KUL3333 after payment: " + (FineManager.is_vehicle_barred("KUL3333") ? "BLOCKED" : "open"));
 
         // --- 4. TESTING REVOCATION (ADMIN UNDO) ---
         System.out.println("\n--- [TEST 4] Testing Admin Revocation ---");
@@ -67,6 +65,52 @@ public class FineTest {
         FineManager.generate_fine_revenue_report("2026-02-12");
         FineManager.view_all_fines();
 
+        // --- 6. FINE BY ID (DETAILS DIALOG) ---
+        System.out.println("\n--- [TEST 6] Fine by ID ---");
+        Fine owed = FineManager.get_fine("JDT2222", false);
+        FineManager.Details before = FineManager.get_fine_details(owed.getFineID());
+        System.out.println("Details of " + owed.getFineID() + ": paid=" + before.fine.isPaid() + " staff=" + before.extra[3]);
+        FineManager.process_payment("JDT2222", "Cash");
+        FineManager.Details after = FineManager.get_fine_details(owed.getFineID());
+        System.out.println((after.fine.isPaid() ? "[PASS]" : "[FAIL]") + " Cached details follow the payment");
+        System.out.println((FineManager.get_fine_by_id("NO-SUCH-FINE") == null ? "[PASS]" : "[FAIL]") + " Unknown fine ID");
+
+        // --- 7. A FINE SAVED AS PAID COUNTS AS REVENUE (ONCE) ---
+        System.out.println("\n--- [TEST 7] Paid save_fine and the revenue rollups ---");
+        java.time.LocalDate today = java.time.LocalDate.now();
+        double revenueBefore = RevenueRollup.day(today).total;
+        Fine paidNow = Fine.create_new("PAID7777", 120.0, "Imported paid fine", "Fixed");
+        paidNow.pay("Cash");
+        FineManager.save_fine(paidNow);
+        double afterSave = RevenueRollup.day(today).total;
+        System.out.println((Math.abs(afterSave - revenueBefore - 120.0) < 0.005 ? "[PASS]" : "[FAIL]") + " Paid fine added to revenue");
+        FineManager.save_fine(paidNow); // Saved again: replaces the old payment, doesn't add a second one
+        double afterResave = RevenueRollup.day(today).total;
+        System.out.println((Math.abs(afterResave - afterSave) < 0.005 ? "[PASS]" : "[FAIL]") + " Saving it again counts it once");
+        FineManager.revoke_fine(paidNow.getFineID());
+        double afterRevoke = RevenueRollup.day(today).total;
+        System.out.println((Math.abs(afterRevoke - revenueBefore) < 0.005 ? "[PASS]" : "[FAIL]") + " Revoking takes it back out");
+
+        // --- 8. BULK SAVES AND CLEARING KEEP THE ROLLUPS IN STEP ---
+        System.out.println("\n--- [TEST 8] save_fines and clear_fines_table and the revenue rollups ---");
+        java.util.List<Fine> imported = new java.util.ArrayList<>();
+        for (int n = 0; n < 3; n++) {
+            Fine f = Fine.create_new("BULK00" + n, 40.0, "Imported paid fine", "Fixed");
+            f.pay("Card");
+            imported.add(f);
+        }
+        double beforeBulk = RevenueRollup.day(today).total;
+        FineManager.save_fines(imported);
+        double afterBulk = RevenueRollup.day(today).total;
+        System.out.println((Math.abs(afterBulk - beforeBulk - 120.0) < 0.005 ? "[PASS]" : "[FAIL]") + " Bulk paid fines added to revenue");
+        FineManager.save_fines(imported);
+        System.out.println((Math.abs(RevenueRollup.day(today).total - afterBulk) < 0.005 ? "[PASS]" : "[FAIL]") + " Bulk save again counts them once");
+        RevenueRollup.Report incremental = RevenueRollup.day(today);
+        RevenueRollup.rebuild();
+        System.out.println((Math.abs(RevenueRollup.day(today).total - incremental.total) < 0.005 ? "[PASS]" : "[FAIL]") + " Incremental rollups match a rebuild");
+        FineManager.clear_fines_table();
+        System.out.println((RevenueRollup.day(today).count(RevenueRollup.Source.FINE) == 0 ? "[PASS]" : "[FAIL]") + " Clearing the fines clears their revenue");
+
         System.out.println("\n--- ALL TESTS COMPLETE ---");
     }
 }
\ No newline at end of file
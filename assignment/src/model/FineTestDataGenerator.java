@@ -1,6 +1,8 @@
 package model;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 public class FineTestDataGenerator {
@@ -15,6 +17,7 @@ public class FineTestDataGenerator {
         String[] plates = {"WAA1111", "KUL3333", "JDT2222", "BEE5555", "PKR9999"}; 
         String[] reasons = {"Illegal Parking", "Overstayed", "Obstruction", "No Permit"}; 
         Random rand = new Random();
+        List<Fine> batch = new ArrayList<>();
 
         for (int i = 0; i < 10; i++) {
             String plate = plates[rand.nextInt(plates.length)];
@@ -23,7 +26,7 @@ public class FineTestDataGenerator {
             
             // Create a new Fine object (the constructor handles ID generation and current time) [cite: 2026-01-15, 2026-02-13]
             Fine fakeFine = new Fine(
-                "F-" + (1000 + i),         // ID must be a String
+                FineManager.get_next_fine_id(), // Real IDs, so generated fines never overwrite issued ones
                 plate, 
                 amount, 
                 reason, 
@@ -38,8 +41,13 @@ public class FineTestDataGenerator {
                 fakeFine.pay("RandomGenerated");;
             }
 
-            // Save to database using your existing Manager logic [cite: 2026-02-13]
-            FineManager.save_fine(fakeFine);
+            batch.add(fakeFine);
+        }
+
+        // Save all of them in one transaction [cite: 2026-02-13]
+        BatchWriter.Result<Fine> result = FineManager.save_fines(batch);
+        for (BatchWriter.Failure<Fine> failure : result.getFailures()) {
+            System.out.println("   [ERROR] " + failure);
         }
     }
 }
\ No newline at end of file
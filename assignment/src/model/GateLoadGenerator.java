@@ -0,0 +1,481 @@
+package model;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Simulates busy gates against a scratch database and reports how much the system sustains.
+// Entry gates call find_available_spot + issue_ticket; exit gates call get_exit_quote +
+// process_successful_payment(quote) once a car's dwell time is over.
+//
+//   java model.GateLoadGenerator --entry-gates=4 --exit-gates=4 --seconds=30 --rate=25 --dwell=exp:2000
+//
+// Options (all optional):
+//   --entry-gates=N      entry gate threads                          (default 4)
+//   --exit-gates=N       exit gate threads                           (default 4)
+//   --seconds=N          how long to run                             (default 20)
+//   --rate=R             car arrivals per second PER entry gate      (default 25, Poisson arrivals)
+//   --dwell=SPEC         how long a car stays, in ms:                (default exp:2000)
+//                        exp:MEAN | fixed:MS | uniform:MIN-MAX
+//   --lot=FxRxS          floors x rows x spots per row               (default 5x20x20)
+//   --fined=P            share of cars arriving with an unpaid fine  (default 0.05)
+//   --pool=N             connection pool size                        (default 8)
+//   --db=FILE            scratch database, deleted first             (default loadtest.db)
+//   --seed=N             random seed                                 (default 42)
+//   --csv=FILE           append one summary line per run to FILE
+//
+// Latency is measured from the moment the car was SUPPOSED to arrive/leave, so a gate that falls
+// behind shows up in the numbers instead of silently slowing the arrival rate down.
+public class GateLoadGenerator {
+
+    private static final String[] VEHICLE_TYPES = {"Car", "Car", "Car", "Car", "Car", "Car", "Car",
+            "Motorcycle", "Motorcycle", "SUV"};
+
+    // --- SETTINGS ---
+    private int entryGates = 4;
+    private int exitGates = 4;
+    private int seconds = 20;
+    private double rate = 25;
+    private String dwell = "exp:2000";
+    private int floors = 5, rows = 20, spotsPerRow = 20;
+    private double fined = 0.05;
+    private int poolSize = 8;
+    private String dbFile = "loadtest.db";
+    private long seed = 42;
+    private String csvFile = null;
+
+    // --- RUN STATE ---
+    private final DelayQueue<Departure> departures = new DelayQueue<>();
+    private final Map<String, String> spotHolders = new ConcurrentHashMap<>(); // spotID -> plate
+    private final AtomicLong lotFull = new AtomicLong();           // No free spot of the needed type
+    private final AtomicLong entryFailures = new AtomicLong();     // A spot was free but no ticket came back
+    private final AtomicLong allocationErrors = new AtomicLong();  // Double-booked or wrong spot type
+    private final AtomicLong exitFailures = new AtomicLong();      // Ticket still active after payment
+    private volatile long deadline;
+
+    public static void main(String[] args) throws Exception {
+        GateLoadGenerator generator = new GateLoadGenerator();
+        generator.parse(args);
+        generator.run();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Running
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private void run() throws Exception {
+        PrintStream console = System.out;
+        console.printf("=== GATE LOAD: %d entry + %d exit gates, %.1f arrivals/s per gate, dwell %s, lot %dx%dx%d, %d s ===%n",
+                entryGates, exitGates, rate, dwell, floors, rows, spotsPerRow, seconds);
+
+        prepare_database();
+        List<String> finedPlates = seed_fines();
+        console.println("Scratch database ready: " + dbFile + " (" + finedPlates.size() + " plates with unpaid fines)");
+
+        // The managers print a line per call; hide that while measuring, but count the errors
+        ErrorCountingStream quiet = new ErrorCountingStream();
+        long busyBefore = ConnectionPool.get_busy_errors();
+        StatementCache.reset_stats();
+
+        List<GateThread> gates = new ArrayList<>();
+        for (int g = 0; g < entryGates; g++) gates.add(new EntryGate(g, new Random(seed + g)));
+        for (int g = 0; g < exitGates; g++) gates.add(new ExitGate(g));
+
+        System.setOut(new PrintStream(quiet, true));
+        long start = System.nanoTime();
+        deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        try {
+            for (GateThread g : gates) g.start();
+            for (GateThread g : gates) g.join();
+        } finally {
+            System.setOut(console);
+        }
+        long elapsed = System.nanoTime() - start;
+        long busy = ConnectionPool.get_busy_errors() - busyBefore;
+
+        // Let every car still inside leave (not measured), then check nothing leaked
+        System.setOut(new PrintStream(quiet, true));
+        try {
+            for (Departure d : departures) TicketManager.process_successful_payment(d.plate, "Cash");
+            departures.clear();
+            SpotIndex.flush();
+        } finally {
+            System.setOut(console);
+        }
+        int ticketsLeft = count("SELECT COUNT(*) FROM tickets");
+        int spotsLeft = count("SELECT COUNT(*) FROM spots WHERE isOccupied = 1");
+
+        report(console, gates, elapsed, busy, quiet.errors.get(), ticketsLeft, spotsLeft);
+        ConnectionPool.shutdown();
+    }
+
+    private void prepare_database() {
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(dbFile + suffix).delete();
+        }
+        ConnectionPool.configure("jdbc:sqlite:" + dbFile, poolSize);
+        DatabaseManager.initialize_database();
+        ParkingSpotManager.provision_lot(LotLayout.builder()
+                .building("", floors, rows, spotsPerRow)
+                .rule(ParkingSpot.SpotType.COMPACT).spots(1, Math.max(1, spotsPerRow / 4)).add()
+                .default_type(ParkingSpot.SpotType.REGULAR)
+                .build());
+    }
+
+    // Some of the plates the entry gates will use get an unpaid fine up front
+    private List<String> seed_fines() {
+        Random random = new Random(seed);
+        int expectedCars = (int) (rate * seconds * 1.5) + 10;
+        List<Fine> fines = new ArrayList<>();
+        List<String> plates = new ArrayList<>();
+        for (int g = 0; g < entryGates; g++) {
+            for (int n = 0; n < expectedCars; n++) {
+                if (random.nextDouble() < fined) {
+                    String plate = plate(g, n);
+                    plates.add(plate);
+                    fines.add(Fine.create_new(plate, 50.0, "Overstayed", "Fixed"));
+                }
+            }
+        }
+        BatchWriter.Result<Fine> result = FineManager.save_fines(fines);
+        if (!result.isFullySuccessful()) System.out.println(result);
+        return plates;
+    }
+
+    private static String plate(int gate, int n) {
+        return String.format("LG%d%06d", gate, n);
+    }
+
+    private static ParkingSpot.SpotType spot_type_for(String vehicleType) {
+        switch (vehicleType) {
+            case "Motorcycle": return ParkingSpot.SpotType.COMPACT;
+            case "SUV": return ParkingSpot.SpotType.REGULAR;
+            default: return ParkingSpot.SpotType.REGULAR; // Car: REGULAR first, COMPACT if full
+        }
+    }
+
+    private long next_dwell_ms(Random random) {
+        String[] parts = dwell.split(":", 2);
+        switch (parts[0]) {
+            case "fixed":
+                return Long.parseLong(parts[1]);
+            case "uniform": {
+                String[] range = parts[1].split("-");
+                long min = Long.parseLong(range[0]);
+                long max = Long.parseLong(range[1]);
+                return min + (long) (random.nextDouble() * (max - min));
+            }
+            default: // exp
+                return (long) (-Math.log(1 - random.nextDouble()) * Double.parseDouble(parts[1]));
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Gates
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private abstract static class GateThread extends Thread {
+        final Map<String, Recorder> recorders = new HashMap<>();
+
+        GateThread(String name) {
+            super(name);
+        }
+
+        Recorder recorder(String op) {
+            return recorders.computeIfAbsent(op, k -> new Recorder());
+        }
+    }
+
+    private class EntryGate extends GateThread {
+        private final int gate;
+        private final Random random;
+
+        EntryGate(int gate, Random random) {
+            super("entry-gate-" + gate);
+            this.gate = gate;
+            this.random = random;
+        }
+
+        @Override
+        public void run() {
+            long nextArrival = System.nanoTime();
+            int n = 0;
+            while (true) {
+                // Poisson arrivals: exponential gaps between cars
+                nextArrival += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+                if (nextArrival >= deadline) break;
+                sleep_until(nextArrival);
+
+                String plate = plate(gate, n++);
+                String vehicleType = VEHICLE_TYPES[random.nextInt(VEHICLE_TYPES.length)];
+                long t0 = System.nanoTime();
+
+                String spotID = DatabaseManager.find_available_spot(spot_type_for(vehicleType).name());
+                if (spotID == null && vehicleType.equals("Car")) {
+                    spotID = DatabaseManager.find_available_spot("COMPACT");
+                }
+                if (spotID == null) {
+                    lotFull.incrementAndGet();
+                    recorder("entry").add(System.nanoTime() - nextArrival, System.nanoTime() - t0);
+                    continue;
+                }
+
+                Ticket ticket = TicketManager.issue_ticket(plate, spotID, vehicleType);
+                long now = System.nanoTime();
+                recorder("entry").add(now - nextArrival, now - t0);
+
+                if (ticket == null) {
+                    // The index said there was a spot; losing every retry means it ran out meanwhile
+                    if (SpotIndex.get_free_count(SpotIndex.type_of(spotID)) > 0) entryFailures.incrementAndGet();
+                    else lotFull.incrementAndGet();
+                    continue;
+                }
+                check_allocation(plate, vehicleType, ticket);
+                departures.add(new Departure(plate, ticket.getSpotID(), now + TimeUnit.MILLISECONDS.toNanos(next_dwell_ms(random))));
+            }
+        }
+    }
+
+    private void check_allocation(String plate, String vehicleType, Ticket ticket) {
+        String holder = spotHolders.putIfAbsent(ticket.getSpotID(), plate);
+        boolean wrongType = !ParkingSpotManager.can_park(vehicleType, SpotIndex.type_of(ticket.getSpotID()).name());
+        if (holder != null || wrongType || !ticket.getVehiclePlate().equals(plate)) {
+            allocationErrors.incrementAndGet();
+        }
+    }
+
+    private class ExitGate extends GateThread {
+        ExitGate(int gate) {
+            super("exit-gate-" + gate);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Departure d;
+                try {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    d = departures.poll(left, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (d == null) break;
+
+                long t0 = System.nanoTime();
+                ExitQuote quote = TicketManager.get_exit_quote(d.plate);
+                long t1 = System.nanoTime();
+                recorder("quote").add(t1 - d.dueNanos, t1 - t0);
+
+                spotHolders.remove(d.spotID, d.plate); // Free before the gate opens, like the real spot
+                if (quote != null) TicketManager.process_successful_payment(quote, "Cash");
+                long t2 = System.nanoTime();
+                recorder("payment").add(t2 - d.dueNanos, t2 - t1);
+
+                if (DatabaseManager.get_active_ticket(d.plate) != null) exitFailures.incrementAndGet();
+            }
+        }
+    }
+
+    private static void sleep_until(long nanoTime) {
+        long wait = nanoTime - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Departure implements Delayed {
+        final String plate;
+        final String spotID;
+        final long dueNanos;
+
+        Departure(String plate, String spotID, long dueNanos) {
+            this.plate = plate;
+            this.spotID = spotID;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Departure) other).dueNanos);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Measuring and reporting
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Latencies of one operation on one gate (no locking: only its own thread writes)
+    private static class Recorder {
+        long[] latency = new long[1024];   // From the scheduled time
+        long[] service = new long[1024];   // Time spent inside the call only
+        int size = 0;
+
+        void add(long latencyNanos, long serviceNanos) {
+            if (size == latency.length) {
+                latency = Arrays.copyOf(latency, size * 2);
+                service = Arrays.copyOf(service, size * 2);
+            }
+            latency[size] = latencyNanos;
+            service[size] = serviceNanos;
+            size++;
+        }
+    }
+
+    private void report(PrintStream out, List<GateThread> gates, long elapsedNanos, long busy,
+                        long loggedErrors, int ticketsLeft, int spotsLeft) {
+        double secondsRun = elapsedNanos / 1e9;
+        out.println();
+        out.printf("%-8s %8s %9s | %9s %9s %9s %9s | %s%n",
+                "op", "count", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "service p50/p99 ms");
+
+        StringBuilder csv = new StringBuilder(String.format("%d,%d,%d,%.1f,%s",
+                System.currentTimeMillis(), entryGates, exitGates, rate, dwell));
+        for (String op : new String[]{"entry", "quote", "payment"}) {
+            long[] latency = merge(gates, op, true);
+            long[] service = merge(gates, op, false);
+            double throughput = latency.length / secondsRun;
+            out.printf("%-8s %8d %9.1f | %9.2f %9.2f %9.2f %9.2f | %.2f / %.2f%n", op, latency.length, throughput,
+                    percentile(latency, 0.50), percentile(latency, 0.99), percentile(latency, 0.999),
+                    percentile(latency, 1.0), percentile(service, 0.50), percentile(service, 0.99));
+            csv.append(String.format(",%d,%.1f,%.2f,%.2f,%.2f", latency.length, throughput,
+                    percentile(latency, 0.50), percentile(latency, 0.99), percentile(latency, 0.999)));
+        }
+
+        out.println();
+        out.println("SQLITE_BUSY/LOCKED errors : " + busy);
+        out.println("Errors printed by managers: " + loggedErrors);
+        out.println("Lot full (no spot)        : " + lotFull.get());
+        out.println("Entry failures            : " + entryFailures.get());
+        out.println("Allocation errors         : " + allocationErrors.get());
+        out.println("Exit failures             : " + exitFailures.get());
+        out.println("Leaked after drain        : " + ticketsLeft + " tickets, " + spotsLeft + " occupied spots");
+        out.println(ConnectionPool.get_stats());
+        out.println(StatementCache.get_stats());
+        out.println(SpotIndex.get_stats());
+
+        if (csvFile != null) {
+            csv.append(String.format(",%d,%d,%d,%d,%d", busy, lotFull.get(), entryFailures.get(),
+                    allocationErrors.get(), exitFailures.get()));
+            try (FileWriter writer = new FileWriter(csvFile, true)) {
+                writer.write(csv.append(System.lineSeparator()).toString());
+            } catch (IOException e) {
+                out.println("Error writing " + csvFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static long[] merge(List<GateThread> gates, String op, boolean latency) {
+        int total = 0;
+        for (GateThread g : gates) {
+            Recorder r = g.recorders.get(op);
+            if (r != null) total += r.size;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (GateThread g : gates) {
+            Recorder r = g.recorders.get(op);
+            if (r == null) continue;
+            System.arraycopy(latency ? r.latency : r.service, 0, all, pos, r.size);
+            pos += r.size;
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    // In milliseconds; p = 1.0 gives the maximum
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static int count(String sql) {
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    // Swallows everything written to it but counts the lines that report an error
+    private static class ErrorCountingStream extends OutputStream {
+        final AtomicLong errors = new AtomicLong();
+        private final StringBuilder line = new StringBuilder();
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                String text = line.toString();
+                if (text.contains("Error") || text.contains("[ERROR]")) errors.incrementAndGet();
+                line.setLength(0);
+            } else if (line.length() < 64) {
+                line.append((char) b);
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Options
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            String key = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "entry-gates": entryGates = Integer.parseInt(value); break;
+                case "exit-gates": exitGates = Integer.parseInt(value); break;
+                case "seconds": seconds = Integer.parseInt(value); break;
+                case "rate": rate = Double.parseDouble(value); break;
+                case "dwell": dwell = value; break;
+                case "lot": {
+                    String[] parts = value.toLowerCase().split("x");
+                    floors = Integer.parseInt(parts[0]);
+                    rows = Integer.parseInt(parts[1]);
+                    spotsPerRow = Integer.parseInt(parts[2]);
+                    break;
+                }
+                case "fined": fined = Double.parseDouble(value); break;
+                case "pool": poolSize = Integer.parseInt(value); break;
+                case "db": dbFile = value; break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "csv": csvFile = value; break;
+                default: throw new IllegalArgumentException("Unknown option --" + key);
+            }
+        }
+        if (!dwell.matches("(exp|fixed):\\d+(\\.\\d+)?|uniform:\\d+-\\d+")) {
+            throw new IllegalArgumentException("Bad --dwell " + dwell + " (use exp:MEAN, fixed:MS or uniform:MIN-MAX)");
+        }
+    }
+}
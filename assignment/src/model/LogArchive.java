@@ -0,0 +1,324 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+// Closed vehicle logs past the retention window, moved out of the live database into immutable
+// LogSegment files next to it ("ParkingSystem.db-archive/"), so vehicle_logs - and every write, index
+// update and backup of it - only carries recent history.
+// VehicleLogManager's history reads merge the archive back in: callers don't know where a log lives.
+//
+// Archiving is a maintenance job, run on demand (archive_older_than, or "java model.LogArchive [days]").
+// Each segment is written and synced first; then one transaction deletes exactly its rows and lists it
+// in "log_segments". A crash in between leaves an unlisted file, which the next load deletes.
+// Segments archived by another app instance are seen after reload().
+// In-memory databases have nowhere to put files and are never archived.
+public class LogArchive {
+
+    public static final int DEFAULT_RETENTION_DAYS = 90;
+
+    // Rows per segment file (about 2-4 MB each)
+    static final int SEGMENT_ROWS = 1 << 18;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final long ORPHAN_AGE_MS = 60 * 60 * 1000;
+
+    private static volatile LogArchive current;
+
+    private final String url;
+    private final Path dir;                             // Null = not a database file
+    private volatile List<LogSegment> segments = List.of();
+
+    // History reads hold the read lock from choosing segments until their table scan is done, and a segment
+    // is published under the write lock together with its commit: a read sees a log either in the table or
+    // in the archive, never both or neither.
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // One step through logs ordered by (entryTime, logID): an archived segment or the live table
+    interface Cursor {
+        boolean next() throws SQLException;
+        long entry();
+        long log_id();
+        VehicleLog log() throws SQLException;
+    }
+
+    private LogArchive(String url) {
+        this.url = url;
+        this.dir = directory_of(url);
+    }
+
+    static LogArchive get() {
+        LogArchive archive = current;
+        String url = ConnectionPool.get_url();
+        if (archive != null && archive.url.equals(url)) return archive;
+        synchronized (LogArchive.class) {
+            if (current == null || !current.url.equals(url)) {
+                LogArchive fresh = new LogArchive(url);
+                fresh.load();
+                current = fresh;
+            }
+            return current;
+        }
+    }
+
+    // Opens the segments at startup (see DatabaseManager.initialize_database)
+    public static void warm_up() {
+        LogArchive archive = get();
+        if (!archive.segments.isEmpty()) {
+            System.out.println("   [ARCHIVE] " + get_archived_count() + " logs in " + archive.segments.size() + " segments.");
+        }
+    }
+
+    public static synchronized void reload() {
+        current = null;
+    }
+
+    // "jdbc:sqlite:ParkingSystem.db" -> "ParkingSystem.db-archive" (like the -wal and -shm files)
+    static Path directory_of(String url) {
+        return ConnectionPool.file_beside(url, "-archive");
+    }
+
+    private void load() {
+        if (dir == null) return;
+        List<LogSegment> opened = new ArrayList<>();
+        Set<String> listed = new HashSet<>();
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT fileName FROM log_segments ORDER BY segmentID");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                listed.add(name);
+                try {
+                    opened.add(LogSegment.open(dir.resolve(name)));
+                } catch (IOException e) {
+                    System.out.println("   [WARNING] Archived logs in " + name + " can't be read: " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            return; // No log_segments table yet: nothing archived
+        }
+        delete_unlisted(listed);
+        segments = Collections.unmodifiableList(opened);
+    }
+
+    // Leftovers of an archive run that never committed. Recent files are left alone: they may belong to
+    // a run still in progress in another app instance on the same database.
+    private void delete_unlisted(Set<String> listed) {
+        if (!Files.isDirectory(dir)) return;
+        long settled = System.currentTimeMillis() - ORPHAN_AGE_MS;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                boolean ours = name.endsWith(SEGMENT_SUFFIX) || name.endsWith(".tmp");
+                if (ours && !listed.contains(name) && Files.getLastModifiedTime(f).toMillis() < settled) {
+                    Files.deleteIfExists(f);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("   [WARNING] Could not clean up the log archive: " + e.getMessage());
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Archiving
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Moves closed logs that left more than "retention" ago out of vehicle_logs into new segments.
+    // Returns how many logs were moved.
+    public static synchronized int archive_older_than(Duration retention) {
+        LogArchive archive = get();
+        if (archive.dir == null) {
+            System.out.println("   [ARCHIVE] " + archive.url + " is not a database file; nothing archived.");
+            return 0;
+        }
+        long cutoff = TimeCodec.to_millis(LocalDateTime.now().minus(retention));
+        long start = System.nanoTime();
+        int moved = 0;
+        int files = 0;
+        long bytes = 0;
+        try {
+            Files.createDirectories(archive.dir);
+            long maxLogID = max_log_id(); // Rows logged from now on are never part of this run
+            long[] after = null;          // (entryTime, logID) of the last row already archived
+            while (true) {
+                LogSegment.Rows rows = read_batch(cutoff, maxLogID, after);
+                if (rows.size == 0) break;
+                bytes += archive.seal(rows, cutoff, maxLogID, after);
+                moved += rows.size;
+                files++;
+                after = new long[]{rows.entries[rows.size - 1], rows.logIDs[rows.size - 1]};
+                if (rows.size < SEGMENT_ROWS) break;
+            }
+        } catch (IOException | SQLException e) {
+            System.out.println("Error archiving vehicle logs: " + e.getMessage());
+        }
+        if (moved > 0) {
+            System.out.printf("   [ARCHIVE] Moved %d logs into %d segments (%.1f bytes/log) in %d ms.%n",
+                    moved, files, (double) bytes / moved, (System.nanoTime() - start) / 1_000_000);
+        }
+        return moved;
+    }
+
+    private static final String BATCH_WHERE = " WHERE exitTime < ? AND entryTime IS NOT NULL AND logID <= ?";
+
+    private static long max_log_id() throws SQLException {
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COALESCE(MAX(logID), 0) FROM vehicle_logs");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // The next SEGMENT_ROWS archivable logs after "after", ordered by (entryTime, logID)
+    private static LogSegment.Rows read_batch(long cutoff, long maxLogID, long[] after) throws SQLException {
+        String sql = "SELECT logID, ticketID, vehiclePlate, spotID, vehicleType, entryTime, exitTime FROM vehicle_logs"
+                + BATCH_WHERE + (after == null ? "" : " AND (entryTime, logID) > (?, ?)")
+                + " ORDER BY entryTime, logID LIMIT " + SEGMENT_ROWS;
+        LogSegment.Rows rows = new LogSegment.Rows(SEGMENT_ROWS);
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, cutoff);
+            pstmt.setLong(2, maxLogID);
+            if (after != null) {
+                pstmt.setLong(3, after[0]);
+                pstmt.setLong(4, after[1]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                            rs.getLong(6), rs.getLong(7));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Writes one segment, then swaps its rows for it in one transaction. Returns the file size.
+    private long seal(LogSegment.Rows rows, long cutoff, long maxLogID, long[] after) throws IOException, SQLException {
+        String name = "logs-" + rows.max_log_id() + SEGMENT_SUFFIX; // Every log is in one segment, so this is unique
+        Path tmp = dir.resolve(name + ".tmp");
+        Path file = dir.resolve(name);
+        long size = LogSegment.write(tmp, rows);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        LogSegment segment = LogSegment.open(file);
+
+        String delete = "DELETE FROM vehicle_logs" + BATCH_WHERE
+                + (after == null ? "" : " AND (entryTime, logID) > (?, ?)") + " AND (entryTime, logID) <= (?, ?)";
+        lock.writeLock().lock();
+        try {
+            DatabaseManager.in_transaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(delete)) {
+                    int p = 1;
+                    pstmt.setLong(p++, cutoff);
+                    pstmt.setLong(p++, maxLogID);
+                    if (after != null) {
+                        pstmt.setLong(p++, after[0]);
+                        pstmt.setLong(p++, after[1]);
+                    }
+                    pstmt.setLong(p++, rows.entries[rows.size - 1]);
+                    pstmt.setLong(p, rows.logIDs[rows.size - 1]);
+                    int deleted = pstmt.executeUpdate();
+                    if (deleted != rows.size) {
+                        throw new SQLException("Expected to archive " + rows.size + " logs but " + deleted + " matched");
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO log_segments "
+                        + "(fileName, rowCount, firstEntry, lastEntry, maxLogID, archivedAt) VALUES(?,?,?,?,?,?)")) {
+                    pstmt.setString(1, name);
+                    pstmt.setInt(2, rows.size);
+                    pstmt.setLong(3, segment.firstEntry);
+                    pstmt.setLong(4, segment.lastEntry);
+                    pstmt.setLong(5, segment.maxLogID);
+                    TimeCodec.bind(pstmt, 6, LocalDateTime.now());
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
+            List<LogSegment> grown = new ArrayList<>(segments);
+            grown.add(segment);
+            segments = Collections.unmodifiableList(grown);
+        } catch (SQLException | RuntimeException e) {
+            Files.deleteIfExists(file); // Rolled back: the rows are still in the table
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return size;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Reading (under the read lock, see VehicleLogManager)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // A cursor per segment that may hold logs matching "filter"
+    List<Cursor> cursors(VehicleLogManager.Filter filter) {
+        List<Cursor> cursors = new ArrayList<>();
+        for (LogSegment s : segments) {
+            Cursor c = s.cursor(filter);
+            if (c != null) cursors.add(c);
+        }
+        return cursors;
+    }
+
+    VehicleLog find_ticket(String ticketID) {
+        for (LogSegment s : segments) {
+            VehicleLog log = s.find_ticket(ticketID);
+            if (log != null) return log;
+        }
+        return null;
+    }
+
+    // Hands the logs of all cursors to "sink" in one (entryTime, logID) order, until sink returns false
+    static void merge(List<Cursor> cursors, boolean newestFirst, Predicate<? super VehicleLog> sink) throws SQLException {
+        Comparator<Cursor> order = Comparator.comparingLong(Cursor::entry).thenComparingLong(Cursor::log_id);
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, cursors.size()), newestFirst ? order.reversed() : order);
+        for (Cursor c : cursors) {
+            if (c.next()) heads.add(c);
+        }
+        while (!heads.isEmpty()) {
+            Cursor c = heads.poll();
+            if (!sink.test(c.log())) return;
+            if (c.next()) heads.add(c);
+        }
+    }
+
+    // Every plate in the archive (for PlateSearchIndex)
+    static List<String> get_plates() {
+        List<String> plates = new ArrayList<>();
+        for (LogSegment s : get().segments) Collections.addAll(plates, s.plates);
+        return plates;
+    }
+
+    public static long get_archived_count() {
+        long count = 0;
+        for (LogSegment s : get().segments) count += s.rows;
+        return count;
+    }
+
+    // Run from a scheduled job: java model.LogArchive [retention days]
+    public static void main(String[] args) {
+        int days = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_RETENTION_DAYS;
+        DatabaseManager.initialize_database();
+        int moved = archive_older_than(Duration.ofDays(days));
+        System.out.println("Archived " + moved + " logs older than " + days + " days; "
+                + get_archived_count() + " logs archived in total.");
+    }
+}
@@ -0,0 +1,491 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Write-behind for the standalone vehicle-log writes (DatabaseManager.save_vehicle_log,
+// VehicleLogManager.log_vehicle_entry / update_vehicle_exit). The record is appended to a small journal
+// next to the database and queued, and the call returns; that costs microseconds instead of a commit.
+// One writer thread drains the queue into vehicle_logs: everything queued while the previous batch was
+// committing goes in with the next single commit.
+// The journal is two files ("ParkingSystem.db-logjournal-a" and "-b"). A file is emptied as soon as all
+// of its records are committed, and appends move to it once the other one passes ROTATE_BYTES, so the
+// journal stays small even while the writer never quite catches up.
+//
+// Exactly once: records are numbered, and each batch's transaction also moves log_journal.appliedSeq up to
+// its last record. At startup the records past appliedSeq are written before anything else, so a crash
+// before a commit loses nothing and a crash after it writes nothing twice. A record torn by the crash was
+// never acknowledged and is dropped.
+// An acknowledged record is in the OS file cache, so it survives the app crashing or being killed. Like the
+// database itself (synchronous = NORMAL, see ConnectionPool), the last moments before a power cut may be lost.
+//
+// The gates' own log rows (TicketManager) are not journaled: they commit together with the ticket and the
+// spot, in a transaction the gate is paying for anyway.
+// Reads in VehicleLogManager call flush() first, so they see every write made before them.
+// Without a journal file (in-memory database, or another app instance owns it) writes go straight to the
+// table, as they always did.
+public class LogJournal {
+
+    // A full queue makes callers wait: the database is that far behind
+    static final int QUEUE_CAPACITY = 8192;
+    static final int MAX_BATCH = 1000;
+
+    private static final long RETRY_MS = 500;
+    private static final long FLUSH_LIMIT_MS = 10000;
+    // Bigger than a full queue's worth of records, so the other file is always written out by the time it's needed
+    private static final long ROTATE_BYTES = 1 << 20;
+
+    private static final byte SAVE = 1;     // Insert the whole log
+    private static final byte EXIT = 2;     // Fill in the exit time of the ticket's log
+
+    private static final String EXIT_SQL = "UPDATE vehicle_logs SET exitTime = ? WHERE ticketID = ?";
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    // One per database file for the life of the app, so switching back to a database finds its journal
+    // (and the file lock on it) still open
+    private static final Map<String, LogJournal> journals = new HashMap<>();
+    private static volatile LogJournal current;
+    private static boolean hooked = false;
+
+    private final String url;
+    private final FileChannel[] files;                  // Null = no journal: write straight to the table
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // Held while a record is numbered, appended and queued, so all three happen in the same order.
+    // Also while waiting for room in a full queue, so the files themselves are guarded by "files".
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private int active = 0;                             // The file appended to (guarded by files)
+    private final long[] lastInFile = new long[2];      // Last record number in each file; 0 = empty (guarded by files)
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream(128);
+    private final CRC32 checksum = new CRC32();
+
+    private volatile long appended;     // Last record number journaled
+    private volatile long written;      // Last record number committed to vehicle_logs
+    private final Object progress = new Object();
+
+    // One journaled write. An EXIT's log carries only the ticketID and the exit time.
+    private static final class Record {
+        final long seq;
+        final byte op;
+        final VehicleLog log;
+
+        Record(long seq, byte op, VehicleLog log) {
+            this.seq = seq;
+            this.op = op;
+            this.log = log;
+        }
+    }
+
+    private LogJournal(String url, FileChannel[] files, long written) {
+        this.url = url;
+        this.files = files;
+        this.appended = written;
+        this.written = written;
+    }
+
+    static LogJournal get() {
+        LogJournal journal = current;
+        String url = ConnectionPool.get_url();
+        if (journal != null && journal.url.equals(url)) return journal;
+        synchronized (LogJournal.class) {
+            journal = journals.get(url);
+            if (journal == null) {
+                journal = open(url);
+                if (journal == null) return new LogJournal(url, null, 0); // Not migrated yet: look again next time
+                journals.put(url, journal);
+            }
+            current = journal;
+            return journal;
+        }
+    }
+
+    // Startup (see DatabaseManager.initialize_database): writes what the last run left in the journal
+    // and starts the writer
+    public static void warm_up() {
+        get();
+    }
+
+    // The plate becomes searchable when its batch commits (see PlateSearchIndex)
+    static boolean save(VehicleLog log) {
+        return get().append(SAVE, log);
+    }
+
+    static boolean exit(String ticketID, LocalDateTime exitTime) {
+        return get().append(EXIT, new VehicleLog(ticketID, null, null, null, null, exitTime));
+    }
+
+    // Waits until everything journaled so far is in vehicle_logs. False if that took longer than
+    // FLUSH_LIMIT_MS (the database keeps failing); the records stay journaled and are still written.
+    public static boolean flush() {
+        LogJournal journal = current;
+        if (journal == null || !journal.url.equals(ConnectionPool.get_url())) return true;
+        return journal.await_written();
+    }
+
+    private static LogJournal open(String url) {
+        long written;
+        try (Connection conn = DatabaseManager.connect()) {
+            written = applied_seq(conn);
+        } catch (SQLException e) {
+            return null; // No log_journal table yet (see SchemaMigrator)
+        }
+
+        Path first = ConnectionPool.file_beside(url, "-logjournal-a");
+        if (first == null) return new LogJournal(url, null, written);
+        FileChannel[] files = new FileChannel[2];
+        try {
+            files[0] = open_file(first);
+            if (files[0].tryLock() == null) { // The lock on the first file stands for both
+                System.out.println("   [LOG JOURNAL] " + first + " belongs to another app instance; vehicle logs are written directly.");
+                close(files);
+                return new LogJournal(url, null, written);
+            }
+            files[1] = open_file(ConnectionPool.file_beside(url, "-logjournal-b"));
+            LogJournal journal = new LogJournal(url, files, written);
+            journal.recover();
+            journal.start_writer();
+            return journal;
+        } catch (IOException | SQLException e) {
+            System.out.println("   [WARNING] Vehicle log journal unavailable, logs are written directly: " + e.getMessage());
+            close(files);
+            return new LogJournal(url, null, written);
+        }
+    }
+
+    private static FileChannel open_file(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void close(FileChannel[] files) {
+        for (FileChannel f : files) {
+            try {
+                if (f != null) f.close();
+            } catch (IOException ignored) {
+                // Already failing
+            }
+        }
+    }
+
+    private static long applied_seq(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT appliedSeq FROM log_journal WHERE id = 1");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Appending (caller's thread)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private boolean append(byte op, VehicleLog log) {
+        if (files == null) return write_now(op, log);
+        appendLock.lock();
+        try {
+            long seq = appended + 1;
+            ByteBuffer record = encode(seq, op, log);
+            synchronized (files) {
+                FileChannel file = files[active];
+                long start = file.position();
+                try {
+                    while (record.hasRemaining()) file.write(record);
+                } catch (IOException e) {
+                    file.truncate(start); // A half-written record would hide every record after it
+                    throw e;
+                }
+                lastInFile[active] = seq;
+                if (file.position() >= ROTATE_BYTES && lastInFile[1 - active] == 0) active = 1 - active;
+            }
+            appended = seq;
+            put(new Record(seq, op, log));
+            return true;
+        } catch (IOException e) {
+            System.out.println("   [WARNING] Vehicle log journal write failed, writing directly: " + e.getMessage());
+        } finally {
+            appendLock.unlock();
+        }
+        return write_now(op, log);
+    }
+
+    // The record is already journaled, so it must be queued even if this thread is interrupted
+    private void put(Record r) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(r);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Without a journal: one statement, committed before returning
+    private static boolean write_now(byte op, VehicleLog log) {
+        try (Connection conn = DatabaseManager.connect()) {
+            if (op == SAVE) {
+                try (PreparedStatement pstmt = conn.prepareStatement(DatabaseManager.SAVE_VEHICLE_LOG_SQL)) {
+                    DatabaseManager.bind_vehicle_log(pstmt, log);
+                    pstmt.executeUpdate();
+                    PlateSearchIndex.add(log.getVehiclePlate());
+                    return true;
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(EXIT_SQL)) {
+                return update_exit(pstmt, log) > 0; // True if a record was actually updated
+            }
+        } catch (SQLException e) {
+            System.err.println((op == SAVE ? "Error saving vehicle log: " : "Error updating exit log: ") + e.getMessage());
+            return false;
+        }
+    }
+
+    private static int update_exit(PreparedStatement pstmt, VehicleLog log) throws SQLException {
+        TimeCodec.bind(pstmt, 1, log.getExitTime());
+        pstmt.setString(2, log.getTicketID());
+        return pstmt.executeUpdate();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Writing (writer thread, and startup)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private void start_writer() {
+        Thread writer = new Thread(this::run_writer, "log-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        synchronized (LogJournal.class) {
+            if (!hooked) {
+                hooked = true;
+                Runtime.getRuntime().addShutdownHook(new Thread(LogJournal::flush, "log-journal-final-flush"));
+            }
+        }
+    }
+
+    private void run_writer() {
+        List<Record> batch = new ArrayList<>(MAX_BATCH);
+        boolean failing = false;
+        try {
+            while (true) {
+                if (batch.isEmpty()) batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+                if (!url.equals(ConnectionPool.get_url())) {
+                    // The app switched databases: these stay journaled until this one is in use again
+                    Thread.sleep(RETRY_MS);
+                    continue;
+                }
+                try {
+                    write(batch);
+                    batch.clear();
+                    failing = false;
+                    empty_written_files();
+                } catch (SQLException e) {
+                    if (!failing) System.out.println("Error writing vehicle logs, retrying: " + e.getMessage());
+                    failing = true;
+                    Thread.sleep(RETRY_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Only happens when the JVM is going down; whatever is left is replayed at the next start
+        }
+    }
+
+    // One transaction: the records an earlier attempt didn't commit, and appliedSeq moved past the last one
+    private void write(List<Record> batch) throws SQLException {
+        long last = batch.get(batch.size() - 1).seq;
+        List<String> plates = DatabaseManager.in_transaction(conn -> {
+            List<String> saved = new ArrayList<>();
+            long done = applied_seq(conn);
+            try (PreparedStatement save = conn.prepareStatement(DatabaseManager.SAVE_VEHICLE_LOG_SQL);
+                 PreparedStatement exit = conn.prepareStatement(EXIT_SQL);
+                 PreparedStatement mark = conn.prepareStatement("UPDATE log_journal SET appliedSeq = ? WHERE id = 1")) {
+                for (Record r : batch) {
+                    if (r.seq > done && apply(r, save, exit) && r.op == SAVE) saved.add(r.log.getVehiclePlate());
+                }
+                mark.setLong(1, Math.max(done, last));
+                mark.executeUpdate();
+            }
+            return saved;
+        });
+        for (String plate : plates) PlateSearchIndex.add(plate);
+        synchronized (progress) {
+            written = Math.max(written, last);
+            progress.notifyAll();
+        }
+    }
+
+    // False if the table refused the record
+    private static boolean apply(Record r, PreparedStatement save, PreparedStatement exit) throws SQLException {
+        try {
+            if (r.op == SAVE) {
+                DatabaseManager.bind_vehicle_log(save, r.log);
+                save.executeUpdate();
+            } else if (update_exit(exit, r.log) == 0) {
+                System.err.println("Error updating exit log: no vehicle log for ticket " + r.log.getTicketID());
+            }
+            return true;
+        } catch (SQLException e) {
+            // A row the table refuses would be refused on every retry: report it and move on.
+            // Anything else (busy, I/O) fails the batch, which is retried whole.
+            if ((e.getErrorCode() & 0xFF) != SQLITE_CONSTRAINT) throw e;
+            System.err.println("Error saving vehicle log " + r.log.getTicketID() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // A file whose records are all in the table can start over
+    private void empty_written_files() {
+        synchronized (files) {
+            try {
+                for (int i = 0; i < files.length; i++) {
+                    if (lastInFile[i] != 0 && lastInFile[i] <= written) {
+                        files[i].truncate(0); // The append position moves back to 0 with it
+                        lastInFile[i] = 0;
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("   [WARNING] Could not empty the vehicle log journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean await_written() {
+        long target = appended;
+        if (written >= target) return true;
+        long deadline = System.currentTimeMillis() + FLUSH_LIMIT_MS;
+        synchronized (progress) {
+            while (written < target) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    System.out.println("   [WARNING] " + (target - written) + " journaled vehicle logs are not written yet.");
+                    return false;
+                }
+                try {
+                    progress.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Writes what the last run journaled but never committed, then starts both files over
+    private void recover() throws IOException, SQLException {
+        List<Record> pending = new ArrayList<>();
+        long last = written;
+        for (FileChannel channel : files) {
+            ByteBuffer file = ByteBuffer.allocate((int) channel.size());
+            while (file.hasRemaining() && channel.read(file, file.position()) >= 0) {
+                // Read it all
+            }
+            file.flip();
+            Record r;
+            while ((r = decode(file)) != null) {
+                last = Math.max(last, r.seq);
+                if (r.seq > written) pending.add(r);
+            }
+        }
+        pending.sort((x, y) -> Long.compare(x.seq, y.seq)); // The files take turns
+        for (int i = 0; i < pending.size(); i += MAX_BATCH) {
+            write(pending.subList(i, Math.min(i + MAX_BATCH, pending.size())));
+        }
+        if (!pending.isEmpty()) {
+            System.out.println("   [LOG JOURNAL] Wrote " + pending.size() + " vehicle logs journaled before the app stopped.");
+        }
+        for (FileChannel channel : files) channel.truncate(0);
+        appended = last;
+        written = last;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Record format: length (int), CRC32 of the rest (int), seq (long), op (byte),
+    //  ticketID, plate, spotID, type (flag + UTF), entry and exit time (flag + epoch ms, see TimeCodec)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Must hold appendLock
+    private ByteBuffer encode(long seq, byte op, VehicleLog log) throws IOException {
+        encoded.reset();
+        DataOutputStream out = new DataOutputStream(encoded);
+        out.writeLong(0); // Length and checksum, filled in below
+        out.writeLong(seq);
+        out.writeByte(op);
+        write_text(out, log.getTicketID());
+        write_text(out, log.getVehiclePlate());
+        write_text(out, log.getSpotID());
+        write_text(out, log.getVehicleType());
+        write_time(out, log.getEntryTime());
+        write_time(out, log.getExitTime());
+        out.flush();
+
+        ByteBuffer record = ByteBuffer.wrap(encoded.toByteArray());
+        checksum.reset();
+        checksum.update(record.array(), 8, record.capacity() - 8);
+        record.putInt(0, record.capacity() - 8);
+        record.putInt(4, (int) checksum.getValue());
+        return record;
+    }
+
+    // The next whole record, or null at the end of the file or at a record the crash cut short
+    private Record decode(ByteBuffer file) {
+        if (file.remaining() < 8) return null;
+        int length = file.getInt();
+        int sum = file.getInt();
+        if (length <= 0 || length > file.remaining()) return null;
+        byte[] payload = new byte[length];
+        file.get(payload);
+        checksum.reset();
+        checksum.update(payload);
+        if ((int) checksum.getValue() != sum) return null;
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            long seq = in.readLong();
+            byte op = in.readByte();
+            VehicleLog log = new VehicleLog(read_text(in), read_text(in), read_text(in), read_text(in),
+                    read_time(in), read_time(in));
+            return new Record(seq, op, log);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void write_text(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String read_text(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void write_time(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) out.writeLong(TimeCodec.to_millis(time));
+    }
+
+    private static LocalDateTime read_time(DataInputStream in) throws IOException {
+        return in.readBoolean() ? TimeCodec.from_millis(in.readLong()) : null;
+    }
+}
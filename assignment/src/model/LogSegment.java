@@ -0,0 +1,440 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+// One immutable file of archived vehicle logs (see LogArchive), stored column by column:
+//   plates, spot IDs and vehicle types: a sorted dictionary per file plus one bit-packed code per row
+//   entry times: the difference to the previous row (rows are sorted by entry time, so a few bytes each)
+//   exit times: the length of the stay; log IDs: the difference to the previous row; ticket IDs: UTF-8
+// Rows are cut into blocks of BLOCK_ROWS. The block index holds each block's first entry time, first log ID
+// and where its four streams start, so a scan can start at any block, run backwards, and skip blocks
+// outside a time range without touching them.
+// Reading maps the file and decodes straight from the mapping: only the dictionaries become Java objects
+// when the file is opened, and a VehicleLog is only built for a row that passes the filter.
+final class LogSegment {
+
+    private static final int MAGIC = 0x504C4F47; // "PLOG"
+    private static final int VERSION = 1;
+    static final int BLOCK_ROWS = 1024;
+
+    // Header: magic, version, rows, blocks, firstEntry, lastEntry, maxLogID, then the offsets of the 7 sections
+    private static final int HEADER_BYTES = 4 * 4 + 3 * 8 + 7 * 4;
+    // Block index entry: first entry time, first log ID, offsets of the entry / log ID / stay / ticket streams
+    private static final int BLOCK_ENTRY_BYTES = 2 * 8 + 4 * 4;
+
+    // Rows handed to write(), sorted by (entryTime, logID); every row is a closed visit
+    static final class Rows {
+        final long[] logIDs;
+        final String[] tickets;
+        final String[] plates;
+        final String[] spots;
+        final String[] types;
+        final long[] entries;
+        final long[] exits;
+        int size;
+
+        Rows(int capacity) {
+            logIDs = new long[capacity];
+            tickets = new String[capacity];
+            plates = new String[capacity];
+            spots = new String[capacity];
+            types = new String[capacity];
+            entries = new long[capacity];
+            exits = new long[capacity];
+        }
+
+        void add(long logID, String ticket, String plate, String spot, String type, long entry, long exit) {
+            logIDs[size] = logID;
+            tickets[size] = ticket;
+            plates[size] = plate;
+            spots[size] = spot;
+            types[size] = type;
+            entries[size] = entry;
+            exits[size] = exit;
+            size++;
+        }
+
+        long max_log_id() {
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) max = Math.max(max, logIDs[i]);
+            return max;
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Writing
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Writes "rows" to "file" and forces it to disk. Returns the file size.
+    static long write(Path file, Rows rows) throws IOException {
+        int n = rows.size;
+        int blocks = (n + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        String[] plateDict = dictionary(rows.plates, n);
+        String[] spotDict = dictionary(rows.spots, n);
+        String[] typeDict = dictionary(rows.types, n);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(n * 16 + 4096);
+        int[] sections = new int[7];
+        sections[0] = HEADER_BYTES + out.size();
+        write_dictionary(out, plateDict);
+        sections[1] = HEADER_BYTES + out.size();
+        write_dictionary(out, spotDict);
+        sections[2] = HEADER_BYTES + out.size();
+        write_dictionary(out, typeDict);
+        sections[3] = HEADER_BYTES + out.size();
+        write_codes(out, rows.plates, n, plateDict);
+        sections[4] = HEADER_BYTES + out.size();
+        write_codes(out, rows.spots, n, spotDict);
+        sections[5] = HEADER_BYTES + out.size();
+        write_codes(out, rows.types, n, typeDict);
+
+        // Column streams block by block; their offsets go into the block index written after them
+        ByteBuffer index = ByteBuffer.allocate(blocks * BLOCK_ENTRY_BYTES);
+        for (int b = 0; b < blocks; b++) {
+            int first = b * BLOCK_ROWS;
+            int last = Math.min(n, first + BLOCK_ROWS);
+            index.putLong(rows.entries[first]).putLong(rows.logIDs[first]);
+
+            index.putInt(HEADER_BYTES + out.size());
+            long prev = rows.entries[first];
+            for (int i = first; i < last; i++) {
+                put_varint(out, rows.entries[i] - prev);
+                prev = rows.entries[i];
+            }
+            index.putInt(HEADER_BYTES + out.size());
+            prev = rows.logIDs[first];
+            for (int i = first; i < last; i++) {
+                put_varint(out, zigzag(rows.logIDs[i] - prev));
+                prev = rows.logIDs[i];
+            }
+            index.putInt(HEADER_BYTES + out.size());
+            for (int i = first; i < last; i++) put_varint(out, zigzag(rows.exits[i] - rows.entries[i]));
+            index.putInt(HEADER_BYTES + out.size());
+            for (int i = first; i < last; i++) {
+                if (rows.tickets[i] == null) {
+                    put_varint(out, 0);
+                } else {
+                    byte[] bytes = rows.tickets[i].getBytes(StandardCharsets.UTF_8);
+                    put_varint(out, bytes.length + 1); // 0 = NULL
+                    out.write(bytes);
+                }
+            }
+        }
+        sections[6] = HEADER_BYTES + out.size();
+        out.write(index.array());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(blocks);
+        header.putLong(rows.entries[0]).putLong(rows.entries[n - 1]).putLong(rows.max_log_id());
+        for (int s : sections) header.putInt(s);
+        header.flip();
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) ch.write(header);
+            ByteBuffer body = ByteBuffer.wrap(out.toByteArray());
+            while (body.hasRemaining()) ch.write(body);
+            ch.force(true);
+            return ch.size();
+        }
+    }
+
+    // Sorted distinct non-null values
+    private static String[] dictionary(String[] values, int n) {
+        TreeSet<String> distinct = new TreeSet<>();
+        for (int i = 0; i < n; i++) if (values[i] != null) distinct.add(values[i]);
+        return distinct.toArray(new String[0]);
+    }
+
+    private static void write_dictionary(ByteArrayOutputStream out, String[] dict) throws IOException {
+        put_varint(out, dict.length);
+        for (String s : dict) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            put_varint(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    // Code = position in the dictionary; dict.length stands for NULL
+    private static void write_codes(ByteArrayOutputStream out, String[] values, int n, String[] dict) {
+        int bits = bits_for(dict.length);
+        long[] words = new long[(int) (((long) n * bits + 63) / 64)];
+        for (int i = 0; i < n && bits > 0; i++) {
+            long code = (values[i] == null) ? dict.length : Arrays.binarySearch(dict, values[i]);
+            long bit = (long) i * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            words[word] |= code << shift;
+            if (shift + bits > 64) words[word + 1] |= code >>> (64 - shift);
+        }
+        out.write(bits);
+        ByteBuffer buf = ByteBuffer.allocate(words.length * 8);
+        for (long w : words) buf.putLong(w);
+        out.write(buf.array(), 0, buf.capacity());
+    }
+
+    private static int bits_for(int dictSize) {
+        return 32 - Integer.numberOfLeadingZeros(dictSize); // Codes 0..dictSize
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void put_varint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Reading
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    final Path file;
+    final int rows;
+    final long firstEntry;
+    final long lastEntry;
+    final long maxLogID;
+    final String[] plates;      // Sorted
+    private final String[] spots;
+    private final String[] types;
+    private final int[] codesAt = new int[3];   // plate, spot, type
+    private final int[] bits = new int[3];
+    private final int blocks;
+    private final int blockIndexAt;
+    private final ByteBuffer data;              // Read with absolute gets only, so cursors can share it
+
+    private LogSegment(Path file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a version " + VERSION + " log segment");
+        }
+        rows = data.getInt(8);
+        blocks = data.getInt(12);
+        firstEntry = data.getLong(16);
+        lastEntry = data.getLong(24);
+        maxLogID = data.getLong(32);
+        int[] sections = new int[7];
+        for (int i = 0; i < 7; i++) sections[i] = data.getInt(40 + i * 4);
+        plates = read_dictionary(sections[0]);
+        spots = read_dictionary(sections[1]);
+        types = read_dictionary(sections[2]);
+        for (int c = 0; c < 3; c++) {
+            bits[c] = data.get(sections[3 + c]);
+            codesAt[c] = sections[3 + c] + 1;
+        }
+        blockIndexAt = sections[6];
+    }
+
+    static LogSegment open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // Stays valid after close
+            return new LogSegment(file, map);
+        }
+    }
+
+    private String[] read_dictionary(int at) {
+        int[] pos = {at};
+        String[] dict = new String[(int) read_varint(pos)];
+        for (int i = 0; i < dict.length; i++) dict[i] = read_string(pos, (int) read_varint(pos));
+        return dict;
+    }
+
+    private String read_string(int[] pos, int length) {
+        byte[] bytes = new byte[length];
+        data.get(pos[0], bytes);
+        pos[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long read_varint(int[] pos) {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data.get(pos[0]++);
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+            shift += 7;
+        }
+    }
+
+    private int code(int column, int row) {
+        int width = bits[column];
+        if (width == 0) return 0;
+        long bit = (long) row * width;
+        int at = codesAt[column] + (int) (bit >>> 6) * 8;
+        int shift = (int) (bit & 63);
+        long v = data.getLong(at) >>> shift;
+        if (shift + width > 64) v |= data.getLong(at + 8) << (64 - shift);
+        return (int) (v & ((1L << width) - 1));
+    }
+
+    private static String value(String[] dict, int code) {
+        return (code == dict.length) ? null : dict[code];
+    }
+
+    private long block_first_entry(int block) {
+        return data.getLong(blockIndexAt + block * BLOCK_ENTRY_BYTES);
+    }
+
+    // A scan over the rows matching "filter", or null if the zone map / dictionaries rule this file out
+    LogArchive.Cursor cursor(VehicleLogManager.Filter filter) {
+        long from = (filter.from == null) ? Long.MIN_VALUE : TimeCodec.to_millis(filter.from);
+        long to = (filter.to == null) ? Long.MAX_VALUE : TimeCodec.to_millis(filter.to);
+        if (lastEntry < from || firstEntry >= to) return null;
+
+        int plateCode = -1;
+        if (filter.plate != null) {
+            plateCode = Arrays.binarySearch(plates, filter.plate);
+            if (plateCode < 0) return null;
+        }
+        boolean[] typeOk = null;
+        if (filter.type != null) {
+            typeOk = new boolean[types.length + 1];
+            boolean any = false;
+            for (int i = 0; i < types.length; i++) any |= typeOk[i] = types[i].equalsIgnoreCase(filter.type);
+            if (!any) return null;
+        }
+        return new Scan(from, to, plateCode, typeOk, filter.newestFirst);
+    }
+
+    // The log of this ticket, or null. Compares the stored bytes; no strings are built for other rows.
+    VehicleLog find_ticket(String ticketID) {
+        byte[] wanted = ticketID.getBytes(StandardCharsets.UTF_8);
+        int[] pos = new int[1];
+        for (int b = 0; b < blocks; b++) {
+            int first = b * BLOCK_ROWS;
+            pos[0] = data.getInt(blockIndexAt + b * BLOCK_ENTRY_BYTES + 28); // Ticket stream
+            for (int row = first; row < Math.min(rows, first + BLOCK_ROWS); row++) {
+                int length = (int) read_varint(pos) - 1;
+                if (length == wanted.length && matches(pos[0], wanted)) {
+                    Scan scan = new Scan(Long.MIN_VALUE, Long.MAX_VALUE, -1, null, false);
+                    scan.load(b);
+                    scan.i = row - first;
+                    return scan.log();
+                }
+                if (length > 0) pos[0] += length;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(int at, byte[] wanted) {
+        for (int i = 0; i < wanted.length; i++) if (data.get(at + i) != wanted[i]) return false;
+        return true;
+    }
+
+    // Walks the blocks in order (or backwards), decoding one block of the varint streams at a time
+    private final class Scan implements LogArchive.Cursor {
+        private final long from;
+        private final long to;
+        private final int plateCode;        // -1 = any plate
+        private final boolean[] typeOk;     // null = any type
+        private final boolean backwards;
+
+        private final long[] entry = new long[BLOCK_ROWS];
+        private final long[] logID = new long[BLOCK_ROWS];
+        private final long[] stay = new long[BLOCK_ROWS];
+        private final int[] ticketAt = new int[BLOCK_ROWS];
+        private int block;                  // Block currently decoded
+        private int first;                  // Its first row
+        private int count;                  // Its row count
+        private int i;                      // Current row within it
+        private final int[] pos = new int[1];
+
+        Scan(long from, long to, int plateCode, boolean[] typeOk, boolean backwards) {
+            this.from = from;
+            this.to = to;
+            this.plateCode = plateCode;
+            this.typeOk = typeOk;
+            this.backwards = backwards;
+            this.block = backwards ? blocks : -1;
+            this.i = this.count = 0;
+        }
+
+        @Override
+        public boolean next() {
+            while (true) {
+                i = backwards ? i - 1 : i + 1;
+                if (i < 0 || i >= count) {
+                    if (!next_block()) return false;
+                    i = backwards ? count - 1 : 0;
+                }
+                long e = entry[i];
+                if (e < from || e >= to) continue;
+                int row = first + i;
+                if (plateCode >= 0 && code(0, row) != plateCode) continue;
+                if (typeOk != null && !typeOk[code(2, row)]) continue;
+                return true;
+            }
+        }
+
+        // Loads the next block that can hold rows in [from, to)
+        private boolean next_block() {
+            while (true) {
+                block += backwards ? -1 : 1;
+                if (block < 0 || block >= blocks) return false;
+                long start = block_first_entry(block);
+                long end = (block + 1 < blocks) ? block_first_entry(block + 1) : lastEntry; // Rows are <= end
+                if (start >= to || end < from) continue;
+                load(block);
+                return true;
+            }
+        }
+
+        void load(int b) {
+            block = b;
+            first = b * BLOCK_ROWS;
+            count = Math.min(rows, first + BLOCK_ROWS) - first;
+            int at = blockIndexAt + b * BLOCK_ENTRY_BYTES;
+            long prevEntry = data.getLong(at);
+            long prevLogID = data.getLong(at + 8);
+
+            pos[0] = data.getInt(at + 16);
+            for (int r = 0; r < count; r++) entry[r] = prevEntry += read_varint(pos);
+            pos[0] = data.getInt(at + 20);
+            for (int r = 0; r < count; r++) logID[r] = prevLogID += unzigzag(read_varint(pos));
+            pos[0] = data.getInt(at + 24);
+            for (int r = 0; r < count; r++) stay[r] = unzigzag(read_varint(pos));
+            pos[0] = data.getInt(at + 28);
+            for (int r = 0; r < count; r++) {
+                ticketAt[r] = pos[0];
+                long length = read_varint(pos) - 1;
+                if (length > 0) pos[0] += (int) length;
+            }
+        }
+
+        @Override
+        public long entry() { return entry[i]; }
+
+        @Override
+        public long log_id() { return logID[i]; }
+
+        @Override
+        public VehicleLog log() {
+            int row = first + i;
+            pos[0] = ticketAt[i];
+            int length = (int) read_varint(pos) - 1;
+            String ticket = (length < 0) ? null : read_string(pos, length);
+            return new VehicleLog(ticket, value(plates, code(0, row)), value(spots, code(1, row)), value(types, code(2, row)),
+                    TimeCodec.from_millis(entry[i]), TimeCodec.from_millis(entry[i] + stay[i]));
+        }
+    }
+}
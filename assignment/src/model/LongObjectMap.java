@@ -0,0 +1,171 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// A hash map from long to object without boxing: keys in a long[], values in an Object[] next to it
+// (open addressing, linear probing). Meant for indexes keyed by PlateCodec codes.
+//
+// One writer, many readers: put/remove/clear must be called under the owner's lock, get/size/for_each
+// can run from any thread at the same time without locking and without allocating.
+// A key is written after its value and a slot's key never changes, so a reader sees either the old or
+// the new value, never a half-written entry. Removed entries keep their key with a null value until
+// the next resize. Key 0 is reserved for "empty slot".
+public final class LongObjectMap<V> {
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    public interface Visitor<V> {
+        void accept(long key, V value);
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table;
+    private volatile int size;
+    private int used;               // Slots with a key, live or removed (writer only)
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        table = new Table(capacity_for(expectedSize));
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Readers (any thread)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) return null;
+        Table t = table;
+        int i = slot(key, t.mask);
+        while (true) {
+            long k = (long) KEYS.getAcquire(t.keys, i);
+            if (k == 0) return null;
+            if (k == key) return (V) VALUES.getAcquire(t.values, i);
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    public boolean contains(long key) {
+        return get(key) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void for_each(Visitor<? super V> visitor) {
+        Table t = table;
+        for (int i = 0; i < t.keys.length; i++) {
+            long k = (long) KEYS.getAcquire(t.keys, i);
+            if (k == 0) continue;
+            V v = (V) VALUES.getAcquire(t.values, i);
+            if (v != null) visitor.accept(k, v);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Writer (one thread at a time)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Returns the old value (null = none)
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) throw new IllegalArgumentException("Key 0 is reserved");
+        if (value == null) return remove(key);
+
+        Table t = table;
+        int i = slot(key, t.mask);
+        while (true) {
+            long k = t.keys[i];
+            if (k == key) {
+                V old = (V) t.values[i];
+                VALUES.setRelease(t.values, i, value);
+                if (old == null) size++;
+                return old;
+            }
+            if (k == 0) break;
+            i = (i + 1) & t.mask;
+        }
+
+        // New key: value first, then the key that makes it visible
+        VALUES.setRelease(t.values, i, value);
+        KEYS.setRelease(t.keys, i, key);
+        size++;
+        if (++used * 2 > t.keys.length) resize(capacity_for(size));
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) return null;
+        Table t = table;
+        int i = slot(key, t.mask);
+        while (true) {
+            long k = t.keys[i];
+            if (k == 0) return null;
+            if (k == key) {
+                V old = (V) t.values[i];
+                if (old != null) {
+                    VALUES.setRelease(t.values, i, null);
+                    size--;
+                }
+                return old;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    public void clear() {
+        table = new Table(16);
+        size = 0;
+        used = 0;
+    }
+
+    // Rebuilds without removed entries; readers keep using the old table until the new one is published
+    private void resize(int capacity) {
+        Table old = table;
+        Table t = new Table(capacity);
+        for (int j = 0; j < old.keys.length; j++) {
+            if (old.keys[j] == 0 || old.values[j] == null) continue;
+            int i = slot(old.keys[j], t.mask);
+            while (t.keys[i] != 0) i = (i + 1) & t.mask;
+            t.keys[i] = old.keys[j];
+            t.values[i] = old.values[j];
+        }
+        used = size;
+        table = t;
+    }
+
+    // Power of two, at most half full
+    private static int capacity_for(int entries) {
+        int capacity = 16;
+        while (capacity < entries * 2 + 2) capacity <<= 1;
+        return capacity;
+    }
+
+    // Mixes all 64 bits: packed plates differ mostly in their low digits
+    private static int slot(long key, int mask) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,280 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Describes the physical lot: buildings, floors, rows, spots per row, and which spot type
+// lives where. Build one in code with LotLayout.builder(), or load a text file:
+//
+//   # Comments start with '#'
+//   building floors=5 rows=10 spots=5            <- no id: spot IDs look like "F1-R1-S1"
+//   building B2 floors=8 rows=20 spots=25        <- with id: spot IDs look like "B2-F1-R1-S1"
+//   type HANDICAPPED floors=1                    <- rules are checked top to bottom, first match wins
+//   type RESERVED building=B2 floors=8 rows=1-4
+//   type COMPACT spots=1-2
+//   default REGULAR                              <- type for spots no rule matched
+//
+// Ranges are "a-b" or a single number; leaving a key out means "any".
+public class LotLayout {
+
+    public static class Building {
+        public final String id;       // "" for a single-building lot
+        public final int floors;
+        public final int rows;
+        public final int spotsPerRow;
+
+        Building(String id, int floors, int rows, int spotsPerRow) {
+            if (floors < 1 || rows < 1 || spotsPerRow < 1) {
+                throw new IllegalArgumentException("Building '" + id + "' needs at least 1 floor, row and spot");
+            }
+            this.id = id;
+            this.floors = floors;
+            this.rows = rows;
+            this.spotsPerRow = spotsPerRow;
+        }
+
+        public int get_spot_count() {
+            return floors * rows * spotsPerRow;
+        }
+    }
+
+    public static class TypeRule {
+        final ParkingSpot.SpotType type;
+        final String building;  // null = any building
+        final int floorFrom, floorTo, rowFrom, rowTo, spotFrom, spotTo;
+
+        TypeRule(ParkingSpot.SpotType type, String building,
+                 int floorFrom, int floorTo, int rowFrom, int rowTo, int spotFrom, int spotTo) {
+            this.type = type;
+            this.building = building;
+            this.floorFrom = floorFrom;
+            this.floorTo = floorTo;
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+            this.spotFrom = spotFrom;
+            this.spotTo = spotTo;
+        }
+
+        boolean matches(String buildingId, int floor, int row, int spot) {
+            return (building == null || building.equals(buildingId))
+                    && floor >= floorFrom && floor <= floorTo
+                    && row >= rowFrom && row <= rowTo
+                    && spot >= spotFrom && spot <= spotTo;
+        }
+    }
+
+    private final List<Building> buildings;
+    private final List<TypeRule> rules;
+    private final ParkingSpot.SpotType defaultType;
+
+    private LotLayout(List<Building> buildings, List<TypeRule> rules, ParkingSpot.SpotType defaultType) {
+        this.buildings = Collections.unmodifiableList(new ArrayList<>(buildings));
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.defaultType = defaultType;
+    }
+
+    // The original lot: 5 floors x 10 rows x 5 spots [cite: 360]
+    public static LotLayout default_layout() {
+        return builder()
+                .building("", 5, 10, 5)
+                .rule(ParkingSpot.SpotType.HANDICAPPED).floors(1, 1).add()   // Floor 1 is accessible
+                .rule(ParkingSpot.SpotType.RESERVED).floors(5, 5).add()      // Top floor VIP
+                .rule(ParkingSpot.SpotType.COMPACT).spots(1, 2).add()        // Small spots
+                .default_type(ParkingSpot.SpotType.REGULAR)
+                .build();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Reading the layout
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public List<Building> get_buildings() {
+        return buildings;
+    }
+
+    public int get_spot_count() {
+        int total = 0;
+        for (Building b : buildings) total += b.get_spot_count();
+        return total;
+    }
+
+    public ParkingSpot.SpotType type_of(String buildingId, int floor, int row, int spot) {
+        for (TypeRule rule : rules) {
+            if (rule.matches(buildingId, floor, row, spot)) return rule.type;
+        }
+        return defaultType;
+    }
+
+    public static String spot_id(String buildingId, int floor, int row, int spot) {
+        String id = String.format("F%d-R%d-S%d", floor, row, spot);
+        return buildingId.isEmpty() ? id : buildingId + "-" + id;
+    }
+
+    // Every spot the layout describes, all marked as free
+    public List<ParkingSpot> generate_spots() {
+        List<ParkingSpot> spots = new ArrayList<>(get_spot_count());
+        for (Building b : buildings) {
+            for (int f = 1; f <= b.floors; f++) {
+                for (int r = 1; r <= b.rows; r++) {
+                    for (int s = 1; s <= b.spotsPerRow; s++) {
+                        spots.add(new ParkingSpot(spot_id(b.id, f, r, s), f, r, type_of(b.id, f, r, s), false, null));
+                    }
+                }
+            }
+        }
+        return spots;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Loading from a file
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static LotLayout load(Path file) throws IOException {
+        Builder builder = builder();
+        List<String> lines = Files.readAllLines(file);
+
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment).trim();
+            if (line.isEmpty()) continue;
+
+            String[] words = line.split("\\s+");
+            try {
+                switch (words[0].toLowerCase()) {
+                    case "building": {
+                        boolean hasId = words.length > 1 && !words[1].contains("=");
+                        String id = hasId ? words[1] : "";
+                        int floors = 0, rows = 0, spots = 0;
+                        for (int i = hasId ? 2 : 1; i < words.length; i++) {
+                            String[] kv = split_pair(words[i]);
+                            switch (kv[0]) {
+                                case "floors": floors = Integer.parseInt(kv[1]); break;
+                                case "rows": rows = Integer.parseInt(kv[1]); break;
+                                case "spots": spots = Integer.parseInt(kv[1]); break;
+                                default: throw new IllegalArgumentException("unknown key '" + kv[0] + "'");
+                            }
+                        }
+                        builder.building(id, floors, rows, spots);
+                        break;
+                    }
+                    case "type": {
+                        RuleBuilder rule = builder.rule(parse_type(words[1]));
+                        for (int i = 2; i < words.length; i++) {
+                            String[] kv = split_pair(words[i]);
+                            if (kv[0].equals("building")) {
+                                rule.building(kv[1]);
+                                continue;
+                            }
+                            int[] range = parse_range(kv[1]);
+                            switch (kv[0]) {
+                                case "floors": rule.floors(range[0], range[1]); break;
+                                case "rows": rule.rows(range[0], range[1]); break;
+                                case "spots": rule.spots(range[0], range[1]); break;
+                                default: throw new IllegalArgumentException("unknown key '" + kv[0] + "'");
+                            }
+                        }
+                        rule.add();
+                        break;
+                    }
+                    case "default":
+                        builder.default_type(parse_type(words[1]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown keyword '" + words[0] + "'");
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(file + " line " + (n + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return builder.build();
+    }
+
+    private static String[] split_pair(String word) {
+        int eq = word.indexOf('=');
+        if (eq <= 0) throw new IllegalArgumentException("expected key=value, got '" + word + "'");
+        return new String[]{word.substring(0, eq).toLowerCase(), word.substring(eq + 1)};
+    }
+
+    private static int[] parse_range(String text) {
+        int dash = text.indexOf('-');
+        if (dash < 0) {
+            int value = Integer.parseInt(text);
+            return new int[]{value, value};
+        }
+        return new int[]{Integer.parseInt(text.substring(0, dash)), Integer.parseInt(text.substring(dash + 1))};
+    }
+
+    private static ParkingSpot.SpotType parse_type(String text) {
+        return ParkingSpot.SpotType.valueOf(text.toUpperCase());
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Builder API
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final List<Building> buildings = new ArrayList<>();
+        private final List<TypeRule> rules = new ArrayList<>();
+        private ParkingSpot.SpotType defaultType = ParkingSpot.SpotType.REGULAR;
+
+        // Use "" as the id for a single-building lot
+        public Builder building(String id, int floors, int rows, int spotsPerRow) {
+            for (Building b : buildings) {
+                if (b.id.equals(id)) throw new IllegalArgumentException("Building '" + id + "' declared twice");
+            }
+            buildings.add(new Building(id, floors, rows, spotsPerRow));
+            return this;
+        }
+
+        public RuleBuilder rule(ParkingSpot.SpotType type) {
+            return new RuleBuilder(this, type);
+        }
+
+        public Builder default_type(ParkingSpot.SpotType type) {
+            this.defaultType = type;
+            return this;
+        }
+
+        public LotLayout build() {
+            if (buildings.isEmpty()) throw new IllegalStateException("Layout has no buildings");
+            boolean unnamed = buildings.stream().anyMatch(b -> b.id.isEmpty());
+            if (unnamed && buildings.size() > 1) {
+                throw new IllegalStateException("Every building needs an id when the lot has more than one");
+            }
+            return new LotLayout(buildings, rules, defaultType);
+        }
+    }
+
+    public static class RuleBuilder {
+        private final Builder parent;
+        private final ParkingSpot.SpotType type;
+        private String building = null;
+        private int floorFrom = 1, floorTo = Integer.MAX_VALUE;
+        private int rowFrom = 1, rowTo = Integer.MAX_VALUE;
+        private int spotFrom = 1, spotTo = Integer.MAX_VALUE;
+
+        RuleBuilder(Builder parent, ParkingSpot.SpotType type) {
+            this.parent = parent;
+            this.type = type;
+        }
+
+        public RuleBuilder building(String id) { this.building = id; return this; }
+        public RuleBuilder floors(int from, int to) { this.floorFrom = from; this.floorTo = to; return this; }
+        public RuleBuilder rows(int from, int to) { this.rowFrom = from; this.rowTo = to; return this; }
+        public RuleBuilder spots(int from, int to) { this.spotFrom = from; this.spotTo = to; return this; }
+
+        public Builder add() {
+            parent.rules.add(new TypeRule(type, building, floorFrom, floorTo, rowFrom, rowTo, spotFrom, spotTo));
+            return parent;
+        }
+    }
+}
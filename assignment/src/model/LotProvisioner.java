@@ -0,0 +1,137 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Brings the "spots" table in line with a LotLayout in ONE transaction.
+// Instead of wiping and re-inserting, it compares the layout with what is stored:
+// new spots are inserted, spots whose floor/row/type changed are updated (occupancy is kept),
+// and spots the layout no longer has are removed - unless a vehicle is still parked there.
+public class LotProvisioner {
+
+    private static final String INSERT_SQL = "INSERT INTO spots (spotID, floor, row, type, isOccupied) VALUES(?,?,?,?,0)";
+    private static final String UPDATE_SQL = "UPDATE spots SET floor = ?, row = ?, type = ? WHERE spotID = ?";
+    private static final String DELETE_SQL = "DELETE FROM spots WHERE spotID = ? AND isOccupied = 0";
+
+    // One row of the current "spots" table
+    private static class StoredSpot {
+        final int floor;
+        final int row;
+        final String type;
+        final boolean occupied;
+
+        StoredSpot(int floor, int row, String type, boolean occupied) {
+            this.floor = floor;
+            this.row = row;
+            this.type = type;
+            this.occupied = occupied;
+        }
+    }
+
+    // removeMissing: also delete free spots that are not part of the layout
+    public static Report provision(LotLayout layout, boolean removeMissing) throws SQLException {
+        long start = System.nanoTime();
+        List<ParkingSpot> wanted = layout.generate_spots();
+        SpotIndex.flush(); // Compare against the real occupancy, not a stale one
+
+        Report report = DatabaseManager.in_transaction(conn -> {
+            Map<String, StoredSpot> stored = load_stored(conn);
+
+            List<ParkingSpot> inserts = new ArrayList<>();
+            List<ParkingSpot> updates = new ArrayList<>();
+            int unchanged = 0;
+
+            for (ParkingSpot spot : wanted) {
+                StoredSpot existing = stored.remove(spot.getSpotID());
+                if (existing == null) {
+                    inserts.add(spot);
+                } else if (existing.floor != spot.getFloor() || existing.row != spot.getRow()
+                        || !spot.getType().name().equals(existing.type)) {
+                    updates.add(spot);
+                } else {
+                    unchanged++;
+                }
+            }
+
+            // Whatever is left in "stored" is not in the layout any more
+            List<String> deletes = new ArrayList<>();
+            List<String> keptOccupied = new ArrayList<>();
+            if (removeMissing) {
+                for (Map.Entry<String, StoredSpot> e : stored.entrySet()) {
+                    if (e.getValue().occupied) keptOccupied.add(e.getKey());
+                    else deletes.add(e.getKey());
+                }
+            }
+
+            BatchWriter.Result<ParkingSpot> inserted = BatchWriter.write(conn, INSERT_SQL, inserts, (pstmt, s) -> {
+                pstmt.setString(1, s.getSpotID());
+                pstmt.setInt(2, s.getFloor());
+                pstmt.setInt(3, s.getRow());
+                pstmt.setString(4, s.getType().toString());
+            });
+            BatchWriter.Result<ParkingSpot> updated = BatchWriter.write(conn, UPDATE_SQL, updates, (pstmt, s) -> {
+                pstmt.setInt(1, s.getFloor());
+                pstmt.setInt(2, s.getRow());
+                pstmt.setString(3, s.getType().toString());
+                pstmt.setString(4, s.getSpotID());
+            });
+            BatchWriter.Result<String> removed = BatchWriter.write(conn, DELETE_SQL, deletes,
+                    (pstmt, id) -> pstmt.setString(1, id));
+
+            if (!inserted.isFullySuccessful() || !updated.isFullySuccessful() || !removed.isFullySuccessful()) {
+                // Half a layout is worse than the old one: undo the whole transaction
+                throw new SQLException("Provisioning aborted: " + inserted.getFailures().size() + " inserts, "
+                        + updated.getFailures().size() + " updates and " + removed.getFailures().size() + " deletes failed");
+            }
+            return new Report(inserts.size(), updates.size(), unchanged, deletes.size(), keptOccupied);
+        });
+
+        SpotIndex.reload();
+        report.millis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    private static Map<String, StoredSpot> load_stored(Connection conn) throws SQLException {
+        Map<String, StoredSpot> stored = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT spotID, floor, row, type, isOccupied FROM spots");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                stored.put(rs.getString(1), new StoredSpot(rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getInt(5) == 1));
+            }
+        }
+        return stored;
+    }
+
+    public static class Report {
+        public final int inserted;
+        public final int updated;
+        public final int unchanged;
+        public final int removed;
+        public final List<String> keptOccupied; // Not in the layout, but a vehicle is still parked there
+        long millis;
+
+        Report(int inserted, int updated, int unchanged, int removed, List<String> keptOccupied) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.unchanged = unchanged;
+            this.removed = removed;
+            this.keptOccupied = keptOccupied;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[LOT] inserted=%d updated=%d unchanged=%d removed=%d keptOccupied=%d in %d ms",
+                    inserted, updated, unchanged, removed, keptOccupied.size(), millis);
+        }
+    }
+}
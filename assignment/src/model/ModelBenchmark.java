@@ -0,0 +1,422 @@
+package model;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+// Microbenchmarks for the hot paths of the model package, run against generated datasets.
+// Works like a small JMH: warmup iterations, timed measurement iterations, a 99.9% confidence
+// interval, plus allocation (bytes/op) and GC counts, written to a JSON results file so every
+// performance change can be compared before/after.
+//
+//   java -Xmx4g model.ModelBenchmark --rows=10000,1000000 --bench=FineManager --out=bench.json
+//
+// Options (all optional):
+//   --rows=N,N,...     dataset sizes: rows in fines and vehicle_logs   (default 10000,1000000,10000000)
+//   --bench=REGEX      only benchmarks whose name matches              (default: all)
+//   --warmup=N         warmup iterations                               (default 3)
+//   --iterations=N     measured iterations                             (default 5)
+//   --time=MS          length of one iteration                         (default 1000)
+//   --dir=DIR          where datasets are generated and kept           (default bench-data)
+//   --out=FILE         results file                                    (default bench-results.json)
+//
+// Datasets are built once with SQL (bench-data/rows-N.db) and reused by later runs.
+// Each one holds N fines (5 per plate, 10% unpaid), N vehicle logs, a lot of min(N, 100000)
+// spots and an active ticket on every second spot.
+public class ModelBenchmark {
+
+    private static final int MAX_SPOTS = 100_000;
+
+    // --- SETTINGS ---
+    private long[] rowCounts = {10_000, 1_000_000, 10_000_000};
+    private Pattern filter = Pattern.compile(".*");
+    private int warmup = 3;
+    private int iterations = 5;
+    private long iterationMs = 1000;
+    private String dataDir = "bench-data";
+    private String outFile = "bench-results.json";
+
+    private final List<Result> results = new ArrayList<>();
+    private final PrintStream console = System.out;
+    private final PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+
+    // Consumes results so the JIT can't drop the call (what JMH's Blackhole does)
+    private static volatile Object sink;
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Benchmarks
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // One timed call. "before" and "after" run around it but are not measured.
+    private interface Op {
+        void run(Fixture f) throws Exception;
+    }
+
+    private static class Benchmark {
+        final String name;
+        final boolean usesData;   // False: pure code, measured once instead of once per dataset
+        final Op before;
+        final Op op;
+        final Op after;
+
+        Benchmark(String name, boolean usesData, Op before, Op op, Op after) {
+            this.name = name;
+            this.usesData = usesData;
+            this.before = before;
+            this.op = op;
+            this.after = after;
+        }
+    }
+
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> list = new ArrayList<>();
+        list.add(new Benchmark("TicketManager.issue_ticket", true,
+                f -> f.spot = DatabaseManager.find_available_spot("REGULAR"),
+                f -> f.ticket = TicketManager.issue_ticket(f.new_plate(), f.spot, "Car"),
+                f -> TicketManager.close_ticket(f.ticket.getVehiclePlate())));
+        list.add(new Benchmark("TicketManager.close_ticket", true,
+                f -> f.ticket = TicketManager.issue_ticket(f.new_plate(), DatabaseManager.find_available_spot("REGULAR"), "Car"),
+                f -> TicketManager.close_ticket(f.ticket.getVehiclePlate()),
+                null));
+        list.add(new Benchmark("TicketManager.process_successful_payment", true,
+                f -> {
+                    // Every second car leaves with an unpaid fine to settle
+                    f.ticket = TicketManager.issue_ticket(f.new_plate(), DatabaseManager.find_available_spot("REGULAR"), "Car");
+                    if (f.random.nextBoolean()) FineManager.issue_fine(f.ticket.getVehiclePlate(), "Overstayed", "Fixed", 0);
+                },
+                f -> TicketManager.process_successful_payment(f.ticket.getVehiclePlate(), "Cash"),
+                null));
+        list.add(new Benchmark("TicketManager.calculate_total_fee", true, null,
+                f -> sink = TicketManager.calculate_total_fee(f.parked_plate()), null));
+        list.add(new Benchmark("FineManager.get_fine", true, null,
+                f -> sink = FineManager.get_fine(f.fined_plate(), false), null));
+        list.add(new Benchmark("FineManager.is_vehicle_barred", true, null,
+                f -> sink = FineManager.is_vehicle_barred(f.fined_plate()), null));
+        list.add(new Benchmark("FineManager.calculate_fine_amount", false, null,
+                f -> sink = FineManager.calculate_fine_amount(f.scheme(), f.random.nextInt(100)), null));
+        list.add(new Benchmark("ParkingSpotManager.can_park", false, null,
+                f -> sink = ParkingSpotManager.can_park(f.vehicle_type(), f.spot_type()), null));
+        list.add(new Benchmark("DatabaseManager.find_available_spot", true, null,
+                f -> sink = DatabaseManager.find_available_spot(f.spot_type()), null));
+        list.add(new Benchmark("VehicleLogManager.fetch_logs", true, null,
+                f -> sink = VehicleLogManager.fetch_logs("SELECT * FROM vehicle_logs WHERE ticketID = ?", f.logged_ticket()), null));
+        return list;
+    }
+
+    // Per-dataset state the benchmarks pick their inputs from
+    private static class Fixture {
+        private static final String[] SCHEMES = {"Fixed", "Progressive", "Hourly"};
+        private static final String[] VEHICLES = {"Car", "Motorcycle", "SUV", "Truck", "Handicapped"};
+        private static final String[] SPOT_TYPES = {"COMPACT", "REGULAR", "HANDICAPPED", "RESERVED"};
+
+        final long rows;
+        final int spots;
+        final Random random = new Random(42);
+        private int newPlates = 0;
+        String spot;
+        Ticket ticket;
+
+        Fixture(long rows) {
+            this.rows = rows;
+            this.spots = (int) Math.min(rows, MAX_SPOTS);
+        }
+
+        String new_plate() { return "BN" + (newPlates++); }
+        String parked_plate() { return "BT" + (2 * random.nextInt(spots / 2)); }
+        String fined_plate() { return "BP" + random.nextInt((int) Math.max(1, rows / 5)); }
+        String logged_ticket() { return "T-L" + (long) (random.nextDouble() * rows); }
+        String scheme() { return SCHEMES[random.nextInt(SCHEMES.length)]; }
+        String vehicle_type() { return VEHICLES[random.nextInt(VEHICLES.length)]; }
+        String spot_type() { return SPOT_TYPES[random.nextInt(SPOT_TYPES.length)]; }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Running
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception {
+        ModelBenchmark bench = new ModelBenchmark();
+        bench.parse(args);
+        bench.run();
+    }
+
+    private void run() throws Exception {
+        List<Benchmark> selected = new ArrayList<>();
+        for (Benchmark b : benchmarks()) {
+            if (filter.matcher(b.name).find()) selected.add(b);
+        }
+        boolean pureDone = false;
+
+        for (long rows : rowCounts) {
+            open_dataset(rows);
+            for (Benchmark b : selected) {
+                if (!b.usesData && pureDone) continue;
+                results.add(measure(b, new Fixture(rows)));
+            }
+            pureDone = true;
+            ConnectionPool.shutdown();
+        }
+        write_results();
+        console.println("Results written to " + outFile);
+    }
+
+    private Result measure(Benchmark b, Fixture f) throws Exception {
+        String params = b.usesData ? String.valueOf(f.rows) : "-";
+        console.printf("%-40s rows=%-9s ", b.name, params);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<Double> scores = new ArrayList<>();
+        long measuredOps = 0;
+        long allocated = 0;
+        long gcCount = -gc_count();
+        long gcTime = -gc_time();
+
+        System.setOut(quiet);
+        try {
+            for (int i = 0; i < warmup + iterations; i++) {
+                boolean measured = i >= warmup;
+                if (measured && i == warmup) {
+                    gcCount = -gc_count();
+                    gcTime = -gc_time();
+                }
+                long timed = 0;
+                long ops = 0;
+                long end = System.nanoTime() + iterationMs * 1_000_000;
+                while (System.nanoTime() < end) {
+                    if (b.before != null) b.before.run(f);
+                    long bytes = threads.getCurrentThreadAllocatedBytes();
+                    long t0 = System.nanoTime();
+                    b.op.run(f);
+                    timed += System.nanoTime() - t0;
+                    if (measured) allocated += threads.getCurrentThreadAllocatedBytes() - bytes;
+                    if (b.after != null) b.after.run(f);
+                    ops++;
+                }
+                if (measured) {
+                    scores.add(timed / 1e3 / ops);
+                    measuredOps += ops;
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+
+        Result r = new Result(b.name, params, scores, allocated / (double) measuredOps,
+                gcCount + gc_count(), gcTime + gc_time(), measuredOps);
+        console.printf("%12.3f +- %-10.3f us/op %12.0f B/op  gc=%d (%d ms)%n",
+                r.mean, r.error, r.bytesPerOp, r.gcCount, r.gcTimeMs);
+        return r;
+    }
+
+    private static long gc_count() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    private static long gc_time() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Datasets
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private void open_dataset(long rows) throws SQLException {
+        new File(dataDir).mkdirs();
+        File file = new File(dataDir, "rows-" + rows + ".db");
+        boolean exists = file.exists();
+        ConnectionPool.configure("jdbc:sqlite:" + file.getPath(), 4);
+
+        System.setOut(quiet);
+        try {
+            DatabaseManager.initialize_database();
+        } finally {
+            System.setOut(console);
+        }
+        if (exists) {
+            console.println("Using dataset " + file);
+            return;
+        }
+
+        console.print("Generating dataset " + file + " ... ");
+        long start = System.nanoTime();
+        int spots = (int) Math.min(rows, MAX_SPOTS);
+
+        System.setOut(quiet);
+        try {
+            // 1000 spots per floor; floor 1 HANDICAPPED, spots 1-2 of each row COMPACT, rest REGULAR
+            ParkingSpotManager.provision_lot(LotLayout.builder()
+                    .building("", Math.max(1, spots / 1000), Math.min(100, Math.max(1, spots / 10)), 10)
+                    .rule(ParkingSpot.SpotType.HANDICAPPED).floors(1, 1).add()
+                    .rule(ParkingSpot.SpotType.COMPACT).spots(1, 2).add()
+                    .build());
+        } finally {
+            System.setOut(console);
+        }
+
+        DatabaseManager.in_transaction(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(fines_sql(rows));
+                stmt.executeUpdate(vehicle_logs_sql(rows));
+                // An active ticket on every second spot, plate BT<n>
+                stmt.executeUpdate("INSERT INTO tickets (ticketID, vehiclePlate, spotID, vehicleType, entryTime) "
+                        + "SELECT 'T-B' || (rowid - 1), 'BT' || (rowid - 1), spotID, 'Car', "
+                        + TimeCodec.to_millis(LocalDateTime.now().minusHours(2)) + " FROM spots WHERE (rowid - 1) % 2 = 0");
+                stmt.executeUpdate("UPDATE spots SET isOccupied = 1 WHERE spotID IN (SELECT spotID FROM tickets)");
+            }
+            return null;
+        });
+        try (Connection conn = DatabaseManager.connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE");
+        }
+        SpotIndex.reload();
+        BarredPlateCache.reload();
+        PlateSearchIndex.reload();
+        console.printf("done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    // n = 0..rows-1; 5 fines per plate BP<n/5>, every 10th unpaid; issueDate one minute apart (epoch ms, like TimeCodec)
+    private static String fines_sql(long rows) {
+        return "WITH RECURSIVE seq(n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < " + (rows - 1) + ") "
+                + "INSERT INTO fines (fineID, fineSchemeType, vehiclePlate, amount, reason, issueDate, isPaid, paymentDate, paymentMethod) "
+                + "SELECT 'F-' || (100000000 + n), 'Fixed', 'BP' || (n % " + Math.max(1, rows / 5) + "), 50.0, 'Overstayed', "
+                + "(1700000000 + n * 60) * 1000, "
+                + "CASE WHEN n % 10 = 0 THEN 0 ELSE 1 END, "
+                + "CASE WHEN n % 10 = 0 THEN NULL ELSE (1700003600 + n * 60) * 1000 END, "
+                + "CASE WHEN n % 10 = 0 THEN NULL ELSE 'Cash' END FROM seq";
+    }
+
+    // Closed visits T-L<n>, two hours each
+    private static String vehicle_logs_sql(long rows) {
+        return "WITH RECURSIVE seq(n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < " + (rows - 1) + ") "
+                + "INSERT INTO vehicle_logs (ticketID, vehiclePlate, spotID, vehicleType, entryTime, exitTime) "
+                + "SELECT 'T-L' || n, 'BL' || (n % 50000), 'F1-R1-S' || (n % 10 + 1), 'Car', "
+                + "(1700000000 + n * 60) * 1000, (1700007200 + n * 60) * 1000 FROM seq";
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Results
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private static class Result {
+        final String benchmark;
+        final String rows;
+        final List<Double> scores;   // us/op per measured iteration
+        final double mean;
+        final double error;          // Half-width of the 99.9% confidence interval
+        final double bytesPerOp;
+        final long gcCount;
+        final long gcTimeMs;
+        final long ops;
+
+        Result(String benchmark, String rows, List<Double> scores, double bytesPerOp, long gcCount, long gcTimeMs, long ops) {
+            this.benchmark = benchmark;
+            this.rows = rows;
+            this.scores = scores;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+            this.gcTimeMs = gcTimeMs;
+            this.ops = ops;
+
+            double sum = 0;
+            for (double s : scores) sum += s;
+            this.mean = sum / scores.size();
+            double var = 0;
+            for (double s : scores) var += (s - mean) * (s - mean);
+            int n = scores.size();
+            this.error = (n < 2) ? Double.NaN : t_999(n - 1) * Math.sqrt(var / (n - 1)) / Math.sqrt(n);
+        }
+    }
+
+    // Two-sided Student t quantile for 99.9% confidence
+    private static double t_999(int degrees) {
+        double[] table = {636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59};
+        if (degrees <= table.length) return table[degrees - 1];
+        if (degrees <= 20) return 3.85;
+        if (degrees <= 30) return 3.65;
+        return 3.29;
+    }
+
+    // Same shape as JMH's JSON output, so existing tooling can read it
+    private void write_results() throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            StringBuilder raw = new StringBuilder();
+            for (double s : r.scores) raw.append(raw.length() == 0 ? "" : ", ").append(num(s));
+            json.append("  {\n")
+                .append("    \"benchmark\": \"").append(r.benchmark).append("\",\n")
+                .append("    \"mode\": \"avgt\",\n")
+                .append("    \"warmupIterations\": ").append(warmup).append(",\n")
+                .append("    \"measurementIterations\": ").append(iterations).append(",\n")
+                .append("    \"measurementTime\": \"").append(iterationMs).append(" ms\",\n")
+                .append("    \"params\": { \"rows\": \"").append(r.rows).append("\" },\n")
+                .append("    \"primaryMetric\": {\n")
+                .append("      \"score\": ").append(num(r.mean)).append(",\n")
+                .append("      \"scoreError\": ").append(num(r.error)).append(",\n")
+                .append("      \"scoreUnit\": \"us/op\",\n")
+                .append("      \"rawData\": [[").append(raw).append("]]\n")
+                .append("    },\n")
+                .append("    \"secondaryMetrics\": {\n")
+                .append("      \"gc.alloc.rate.norm\": { \"score\": ").append(num(r.bytesPerOp)).append(", \"scoreUnit\": \"B/op\" },\n")
+                .append("      \"gc.count\": { \"score\": ").append(r.gcCount).append(", \"scoreUnit\": \"counts\" },\n")
+                .append("      \"gc.time\": { \"score\": ").append(r.gcTimeMs).append(", \"scoreUnit\": \"ms\" },\n")
+                .append("      \"ops\": { \"score\": ").append(r.ops).append(", \"scoreUnit\": \"ops\" }\n")
+                .append("    }\n")
+                .append("  }").append(i < results.size() - 1 ? "," : "").append("\n");
+        }
+        json.append("]\n");
+        try (FileWriter writer = new FileWriter(outFile)) {
+            writer.write(json.toString());
+        }
+    }
+
+    private static String num(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Options
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            String key = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "rows": {
+                    String[] parts = value.split(",");
+                    rowCounts = new long[parts.length];
+                    for (int i = 0; i < parts.length; i++) rowCounts[i] = Long.parseLong(parts[i].trim());
+                    break;
+                }
+                case "bench": filter = Pattern.compile(value); break;
+                case "warmup": warmup = Integer.parseInt(value); break;
+                case "iterations": iterations = Integer.parseInt(value); break;
+                case "time": iterationMs = Long.parseLong(value); break;
+                case "dir": dataDir = value; break;
+                case "out": outFile = value; break;
+                default: throw new IllegalArgumentException("Unknown option --" + key);
+            }
+        }
+        if (iterations < 1) throw new IllegalArgumentException("--iterations must be at least 1");
+    }
+}
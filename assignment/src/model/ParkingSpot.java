@@ -14,6 +14,17 @@ public class ParkingSpot {
         SpotType(double rate) {
             this.rate = rate;
         }
+
+        private static final SpotType[] ALL = values();
+
+        // Case-insensitive, no allocation. Null = not a spot type we know.
+        public static SpotType parse(String text) {
+            if (text == null) return null;
+            for (SpotType t : ALL) {
+                if (t.name().equalsIgnoreCase(text)) return t;
+            }
+            return null;
+        }
     }
 
     private String spotID;      // e.g., "F1-R1-S1"
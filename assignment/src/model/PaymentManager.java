@@ -0,0 +1,35 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Parking payments taken at the exit lane. They are written inside the checkout transaction
+// (TicketManager.process_successful_payment), so a payment exists exactly when its ticket was closed.
+// The parking fee goes into the revenue rollups in the same transaction; the fines on the quote are
+// counted by FineManager.settle_fines.
+public class PaymentManager {
+
+    private static final String SAVE_PAYMENT_SQL = "INSERT INTO payments "
+            + "(ticketID, vehiclePlate, hours, hourlyRate, parkingFee, fineAmount, total, paymentMethod, paymentDate, vehicleType) "
+            + "VALUES(?,?,?,?,?,?,?,?,?,?)";
+
+    // Inside the caller's transaction
+    public static void record_payment(Connection conn, ExitQuote quote, String paymentMethod) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SAVE_PAYMENT_SQL)) {
+            pstmt.setString(1, quote.getTicket().getTicketID());
+            pstmt.setString(2, quote.getVehiclePlate());
+            pstmt.setLong(3, quote.getHours());
+            pstmt.setDouble(4, quote.getHourlyRate());
+            pstmt.setDouble(5, quote.getParkingFee());
+            pstmt.setDouble(6, quote.getFineTotal());
+            pstmt.setDouble(7, quote.getTotal());
+            pstmt.setString(8, paymentMethod);
+            TimeCodec.bind(pstmt, 9, quote.getExitTime());
+            pstmt.setString(10, quote.getTicket().getVehicleType());
+            pstmt.executeUpdate();
+        }
+        RevenueRollup.record(conn, quote.getExitTime().toLocalDate(), RevenueRollup.Source.PARKING, paymentMethod,
+                RevenueRollup.parking_scheme(quote.getTicket()), quote.getParkingFee());
+    }
+}
@@ -0,0 +1,124 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Turns a plate into one long, so in-memory indexes can key on a primitive instead of a String
+// (see LongObjectMap). 8 bytes per plate instead of a String object, its char array and a map node.
+//
+//   code > 0 : packed. Canonical plates - only A-Z and 0-9, at most 12 characters, e.g. "WXY1234", "PUTRAJAYA1" -
+//              are written in base 37 (0 = end, 1-26 = A-Z, 27-36 = 0-9). 37^12 < 2^63, so it always fits.
+//   code < 0 : anything else ("wxy 1234", "CD-1234-99", very long plates) gets the next number from a
+//              dictionary that lives as long as the program.
+//   code = 0 : no plate. Never returned by encode(); free to use as "empty" by indexes.
+//
+// encode() is exact: two different strings never share a code. Plates typed in by a user should go
+// through normalize() first so "wxy 1234" and "WXY1234" are the same car.
+// Current user: BarredPlateCache. Vehicle logs are not held in memory (they stream from SQLite and
+// LogArchive), so nothing log-sized is keyed on these codes yet.
+public final class PlateCodec {
+
+    public static final int MAX_PACKED_LENGTH = 12;
+    private static final int BASE = 37;
+
+    // Fallback dictionary for plates that can't be packed. "reverse" (index = -code - 1) grows by doubling
+    // under the lock; decode() reads it without one. A new slot is filled before the array is published
+    // again, and a code only escapes encode() after that, so a reader never sees an empty slot for it.
+    private static final Map<String, Long> dictionary = new ConcurrentHashMap<>();
+    private static final Object reverseLock = new Object();
+    private static volatile String[] reverse = new String[64];
+    private static int reverseSize = 0;  // Under reverseLock
+
+    private PlateCodec() {}
+
+    // Upper case, no spaces or dashes. Returns the same String when it is already canonical (no allocation).
+    public static String normalize(String plate) {
+        if (plate == null) return null;
+        boolean canonical = true;
+        for (int i = 0; i < plate.length() && canonical; i++) {
+            char c = plate.charAt(i);
+            canonical = (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        if (canonical) return plate;
+
+        StringBuilder sb = new StringBuilder(plate.length());
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            if (c == ' ' || c == '-' || c == '\t') continue;
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    // Code for this exact plate. Odd plates are added to the dictionary the first time they are seen.
+    public static long encode(String plate) {
+        long packed = pack(plate);
+        if (packed != 0) return packed;
+        return dictionary.computeIfAbsent(plate, p -> {
+            synchronized (reverseLock) {
+                String[] slots = reverse;
+                if (reverseSize == slots.length) slots = Arrays.copyOf(slots, slots.length * 2);
+                slots[reverseSize++] = p;
+                reverse = slots; // Volatile write: publishes the new slot (amortised O(1), no copy per plate)
+                return -(long) reverseSize;
+            }
+        });
+    }
+
+    // Like encode(), but never grows the dictionary: 0 = an odd plate nothing has been stored under.
+    // Use this for lookups so random gate input can't fill the dictionary. No allocation.
+    public static long lookup(String plate) {
+        long packed = pack(plate);
+        if (packed != 0) return packed;
+        Long code = dictionary.get(plate);
+        return (code == null) ? 0 : code;
+    }
+
+    public static String decode(long code) {
+        if (code < 0) return reverse[(int) (-code - 1)];
+        if (code == 0) return null;
+
+        char[] buf = new char[MAX_PACKED_LENGTH];
+        int len = 0;
+        long rest = code;
+        while (rest != 0) {
+            int digit = (int) (rest % BASE);
+            buf[len++] = (digit <= 26) ? (char) ('A' + digit - 1) : (char) ('0' + digit - 27);
+            rest /= BASE;
+        }
+        // Written least significant first: reverse
+        for (int i = 0; i < len / 2; i++) {
+            char tmp = buf[i];
+            buf[i] = buf[len - 1 - i];
+            buf[len - 1 - i] = tmp;
+        }
+        return new String(buf, 0, len);
+    }
+
+    public static boolean is_packed(long code) {
+        return code > 0;
+    }
+
+    // How many odd plates the dictionary holds
+    public static int get_dictionary_size() {
+        synchronized (reverseLock) {
+            return reverseSize;
+        }
+    }
+
+    // 0 = can't be packed
+    private static long pack(String plate) {
+        if (plate == null || plate.isEmpty() || plate.length() > MAX_PACKED_LENGTH) return 0;
+        long code = 0;
+        for (int i = 0; i < plate.length(); i++) {
+            char c = plate.charAt(i);
+            int digit;
+            if (c >= 'A' && c <= 'Z') digit = c - 'A' + 1;
+            else if (c >= '0' && c <= '9') digit = c - '0' + 27;
+            else return 0;
+            code = code * BASE + digit;
+        }
+        return code;
+    }
+}
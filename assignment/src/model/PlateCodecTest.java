@@ -0,0 +1,92 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PlateCodecTest {
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== TEST 1: ROUND TRIP ===");
+        String[] plates = {"A1", "WXY1234", "PUTRAJAYA1", "ZZZZZZZZZZZZ", "999999999999", "wxy 1234", "CD-1234-99", "VERYLONGPLATE123"};
+        boolean exact = true;
+        for (String p : plates) {
+            long code = PlateCodec.encode(p);
+            exact &= p.equals(PlateCodec.decode(code)) && code == PlateCodec.encode(p) && code != 0;
+        }
+        check("Every plate decodes back to itself", exact);
+        check("Canonical plates are packed", PlateCodec.is_packed(PlateCodec.encode("ZZZZZZZZZZZZ")));
+        check("Odd plates use the dictionary", !PlateCodec.is_packed(PlateCodec.encode("wxy 1234")) && PlateCodec.get_dictionary_size() == 3);
+        check("Lookup never grows the dictionary", PlateCodec.lookup("never seen") == 0 && PlateCodec.get_dictionary_size() == 3);
+        check("normalize", PlateCodec.normalize(" wxy-1234 ").equals("WXY1234") && PlateCodec.normalize("WXY1234") == "WXY1234");
+
+        System.out.println("\n=== TEST 2: NO TWO PLATES SHARE A CODE ===");
+        Random random = new Random(42);
+        Map<Long, String> seen = new HashMap<>();
+        boolean unique = true;
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = 1 + random.nextInt(PlateCodec.MAX_PACKED_LENGTH);
+            for (int c = 0; c < len; c++) sb.append("ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".charAt(random.nextInt(36)));
+            String p = sb.toString();
+            String other = seen.put(PlateCodec.encode(p), p);
+            unique &= other == null || other.equals(p);
+        }
+        check("Unique codes", unique);
+
+        System.out.println("\n=== TEST 3: LONG-KEYED MAP ===");
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = 1 + random.nextInt(50_000);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+        }
+        boolean same = map.size() == expected.size();
+        for (long key = 1; key <= 50_000; key++) same &= java.util.Objects.equals(map.get(key), expected.get(key));
+        check("Same contents as HashMap", same);
+
+        // Readers run while the writer keeps resizing; a key that was put before the reader started is always found
+        LongObjectMap<Long> shared = new LongObjectMap<>();
+        for (long k = 1; k <= 1000; k++) shared.put(k, k);
+        boolean[] missing = {false};
+        Thread reader = new Thread(() -> {
+            for (int round = 0; round < 2000; round++) {
+                for (long k = 1; k <= 1000; k++) if (shared.get(k) == null) missing[0] = true;
+            }
+        });
+        reader.start();
+        for (long k = 1001; k <= 200_000; k++) shared.put(k, k);
+        reader.join();
+        check("Readers never miss a key during resize", !missing[0]);
+
+        System.out.println("\n=== TEST 4: MANY ODD PLATES ===");
+        // Two writers grow the dictionary at once; each decodes its own code straight away
+        int before = PlateCodec.get_dictionary_size();
+        boolean[] wrong = {false, false};
+        Thread[] writers = new Thread[2];
+        long start = System.nanoTime();
+        for (int w = 0; w < writers.length; w++) {
+            int id = w;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    String p = "odd-" + id + "-" + i;
+                    if (!p.equals(PlateCodec.decode(PlateCodec.encode(p)))) wrong[id] = true;
+                }
+            });
+            writers[w].start();
+        }
+        for (Thread t : writers) t.join();
+        System.out.printf("200,000 odd plates encoded in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        check("Odd plates decode while the dictionary grows", !wrong[0] && !wrong[1]);
+        check("Every odd plate got its own code", PlateCodec.get_dictionary_size() == before + 200_000);
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.printf("[%s] %s\n", passed ? "PASS" : "FAIL", name);
+    }
+}
@@ -0,0 +1,339 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// Every plate the lot has ever seen (fines, tickets, vehicle logs), with a trigram index so partial and
+// misread plates can be found without scanning millions of rows:
+//   prefix("WXY")     plates starting with WXY
+//   substring("123")  plates containing 123
+//   fuzzy("WXY1Z34")  plates at most one typo / OCR error away (one character wrong, missing or extra)
+// Searches return plates; fetch the rows for them with the per-plate queries, which are indexed.
+// A car stored under several spellings ("QZ-777", "qz 777", "QZ777") is one entry, and a search returns
+// every spelling it was written under, so exact per-plate queries find all of its rows.
+//
+// Built on the first search from the three tables. After that every write of a plate calls add() once it
+// has committed (DatabaseManager, FineManager, TicketManager.issue_ticket, LogJournal), so new plates are
+// searchable at once and a rolled-back write never adds one. Plates are never removed: a plate without
+// rows simply finds nothing.
+// Matching ignores case, spaces and dashes (PlateCodec.normalize).
+public class PlateSearchIndex {
+
+    // Trigram of canonical characters: A-Z = 1-26, 0-9 = 27-36, anything else = 0
+    private static final int ALPHABET = 37;
+    private static final int TRIGRAMS = ALPHABET * ALPHABET * ALPHABET;
+
+    private static volatile PlateSearchIndex current;
+
+    private final String url;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>(); // normalized plate -> id
+    private final Set<String> spellings = ConcurrentHashMap.newKeySet(); // every plate exactly as written
+    private final List<String[]> plates = new ArrayList<>();           // id -> its spellings, in the order seen
+    private final List<String> normalized = new ArrayList<>();         // id -> normalized plate
+    private final int[][] postings = new int[TRIGRAMS][];              // trigram -> ids, ascending
+    private final int[] postingSizes = new int[TRIGRAMS];
+
+    // While the tables are being read, plates written meanwhile wait here instead of blocking the writer
+    private volatile boolean loading = true;
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+
+    private PlateSearchIndex(String url) {
+        this.url = url;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Loading
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private static PlateSearchIndex get() {
+        PlateSearchIndex index = current;
+        if (index != null && !index.loading && index.url.equals(ConnectionPool.get_url())) return index;
+
+        synchronized (PlateSearchIndex.class) {
+            String url = ConnectionPool.get_url();
+            if (current == null || !current.url.equals(url)) {
+                PlateSearchIndex fresh = new PlateSearchIndex(url);
+                current = fresh; // Published before reading the tables, so no plate written meanwhile is missed
+                fresh.load();
+                fresh.lock.writeLock().lock();
+                try {
+                    for (String plate; (plate = fresh.pending.poll()) != null; ) fresh.insert(plate);
+                    fresh.loading = false;
+                } finally {
+                    fresh.lock.writeLock().unlock();
+                }
+            }
+            return current;
+        }
+    }
+
+    // Forget everything; the next search reads the tables again (after writing rows without the binders)
+    public static synchronized void reload() {
+        current = null;
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        String sql = "SELECT vehiclePlate FROM fines UNION SELECT vehiclePlate FROM tickets "
+                + "UNION SELECT vehiclePlate FROM vehicle_logs";
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String plate = rs.getString(1);
+                if (plate != null) insert(plate);
+            }
+            for (String plate : LogArchive.get_plates()) insert(plate);
+        } catch (SQLException e) {
+            System.out.println("Error loading plate search index: " + e.getMessage());
+        }
+        System.out.printf("   [SEARCH] Indexed %d plates in %d ms%n", plates.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Adding plates
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Called for every plate written, after its commit. Known spellings cost one hash lookup; nothing happens before the first search.
+    public static void add(String plate) {
+        PlateSearchIndex index = current;
+        if (index == null || plate == null || !index.url.equals(ConnectionPool.get_url())) return;
+        if (index.spellings.contains(plate)) return;
+
+        index.lock.writeLock().lock();
+        try {
+            if (index.loading) index.pending.add(plate);
+            else index.insert(plate);
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    // After a BatchWriter commit: adds the plates of the rows that were written, not the failed ones
+    static <T> void add_written(Collection<? extends T> rows, BatchWriter.Result<T> result, Function<? super T, String> plate) {
+        Set<Integer> failed = new HashSet<>();
+        for (BatchWriter.Failure<T> f : result.getFailures()) failed.add(f.getIndex());
+        int i = 0;
+        for (T row : rows) {
+            if (!failed.contains(i++)) add(plate.apply(row));
+        }
+    }
+
+    // Under the write lock (or by the loader, before anyone can search)
+    private void insert(String plate) {
+        if (!spellings.add(plate)) return;
+        String norm = PlateCodec.normalize(plate);
+        Integer known = ids.get(norm);
+        if (known != null) {
+            // Another spelling of a plate already indexed: same trigrams, just remember how it was written
+            String[] was = plates.get(known);
+            String[] now = Arrays.copyOf(was, was.length + 1);
+            now[was.length] = plate;
+            plates.set(known, now);
+            return;
+        }
+
+        int id = plates.size();
+        plates.add(new String[]{plate});
+        normalized.add(norm);
+        ids.put(norm, id);
+
+        int[] seen = new int[Math.max(0, norm.length() - 2)];
+        for (int i = 0; i + 3 <= norm.length(); i++) {
+            int t = trigram(norm, i);
+            // Same trigram twice in one plate ("AAA1AAA"): list the plate once
+            boolean dup = false;
+            for (int j = 0; j < i; j++) dup |= seen[j] == t;
+            seen[i] = t;
+            if (dup) continue;
+
+            int[] list = postings[t];
+            if (list == null) list = postings[t] = new int[4];
+            else if (postingSizes[t] == list.length) list = postings[t] = Arrays.copyOf(list, list.length * 2);
+            list[postingSizes[t]++] = id;
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Searches (results sorted, at most "limit" plates; each spelling counts as one)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static List<String> prefix(String query, int limit) {
+        String q = PlateCodec.normalize(query);
+        return get().search(q, limit, (norm) -> norm.startsWith(q));
+    }
+
+    public static List<String> substring(String query, int limit) {
+        String q = PlateCodec.normalize(query);
+        return get().search(q, limit, (norm) -> norm.contains(q));
+    }
+
+    // Exact match (if any) first, then the plates one edit away
+    public static List<String> fuzzy(String query, int limit) {
+        String q = PlateCodec.normalize(query);
+        PlateSearchIndex index = get();
+        index.lock.readLock().lock();
+        try {
+            List<String> found = new ArrayList<>();
+            // One edit changes at most 3 trigram positions, so a match still has all but at most 3 of the
+            // query's DISTINCT trigrams (a repeated one, like "111" in WA11111, only counts once)
+            int[][] lists = index.lists_for(q);
+            int needed = lists.length - 3;
+            if (needed <= 0) {
+                for (int id = 0; id < index.plates.size(); id++) {
+                    if (within_one_edit(q, index.normalized.get(id))) Collections.addAll(found, index.plates.get(id));
+                }
+            } else {
+                for (int id : candidates(lists, needed)) {
+                    if (within_one_edit(q, index.normalized.get(id))) Collections.addAll(found, index.plates.get(id));
+                }
+            }
+            found.sort((a, b) -> {
+                boolean ea = PlateCodec.normalize(a).equals(q);
+                boolean eb = PlateCodec.normalize(b).equals(q);
+                return (ea != eb) ? (ea ? -1 : 1) : a.compareTo(b);
+            });
+            return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+        } finally {
+            index.lock.readLock().unlock();
+        }
+    }
+
+    // Distinct plates (spellings of one car count once)
+    public static int get_plate_count() {
+        PlateSearchIndex index = get();
+        index.lock.readLock().lock();
+        try {
+            return index.plates.size();
+        } finally {
+            index.lock.readLock().unlock();
+        }
+    }
+
+    private interface Match {
+        boolean test(String normalizedPlate);
+    }
+
+    private List<String> search(String q, int limit, Match match) {
+        lock.readLock().lock();
+        try {
+            List<String> found = new ArrayList<>();
+            if (q.length() < 3) {
+                // Too short for a trigram: scan (fast, the plate list is in memory)
+                for (int id = 0; id < plates.size(); id++) {
+                    if (match.test(normalized.get(id))) Collections.addAll(found, plates.get(id));
+                }
+            } else {
+                for (int id : intersect(q)) {
+                    if (match.test(normalized.get(id))) Collections.addAll(found, plates.get(id));
+                }
+            }
+            Collections.sort(found);
+            return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids whose plate has every trigram of q (a superset of the plates containing q)
+    private int[] intersect(String q) {
+        int[][] lists = lists_for(q);
+        if (lists.length == 0) return new int[0];
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length)); // Smallest first
+        int[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            int[] other = lists[i];
+            int[] next = new int[Math.min(result.length, other.length)];
+            int n = 0;
+            int a = 0;
+            int b = 0;
+            while (a < result.length && b < other.length) {
+                if (result[a] < other[b]) a++;
+                else if (result[a] > other[b]) b++;
+                else {
+                    next[n++] = result[a];
+                    a++;
+                    b++;
+                }
+            }
+            result = Arrays.copyOf(next, n);
+        }
+        return result;
+    }
+
+    // Ids that are in at least "needed" of the posting lists
+    private static int[] candidates(int[][] lists, int needed) {
+        int total = 0;
+        for (int[] list : lists) total += list.length;
+        int[] all = new int[total];
+        int pos = 0;
+        for (int[] list : lists) {
+            System.arraycopy(list, 0, all, pos, list.length);
+            pos += list.length;
+        }
+        Arrays.sort(all);
+
+        int[] result = new int[total];
+        int n = 0;
+        for (int i = 0; i < total; ) {
+            int j = i;
+            while (j < total && all[j] == all[i]) j++;
+            if (j - i >= needed) result[n++] = all[i];
+            i = j;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // The posting list of every distinct trigram of q (trimmed copies); empty lists included
+    private int[][] lists_for(String q) {
+        List<int[]> lists = new ArrayList<>();
+        List<Integer> seen = new ArrayList<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            int t = trigram(q, i);
+            if (seen.contains(t)) continue;
+            seen.add(t);
+            lists.add(postings[t] == null ? new int[0] : Arrays.copyOf(postings[t], postingSizes[t]));
+        }
+        return lists.toArray(new int[0][]);
+    }
+
+    private static int trigram(String s, int i) {
+        return (symbol(s.charAt(i)) * ALPHABET + symbol(s.charAt(i + 1))) * ALPHABET + symbol(s.charAt(i + 2));
+    }
+
+    private static int symbol(char c) {
+        if (c >= 'A' && c <= 'Z') return c - 'A' + 1;
+        if (c >= '0' && c <= '9') return c - '0' + 27;
+        return 0;
+    }
+
+    // Levenshtein distance <= 1, without building the matrix
+    static boolean within_one_edit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+        if (la > lb) return within_one_edit(b, a);
+
+        int i = 0;
+        while (i < la && a.charAt(i) == b.charAt(i)) i++;
+        if (i == la) return true; // Equal, or b has one extra character at the end
+        if (la == lb) return a.regionMatches(i + 1, b, i + 1, la - i - 1);    // One character wrong
+        return a.regionMatches(i, b, i + 1, la - i);                          // One character missing from a
+    }
+}
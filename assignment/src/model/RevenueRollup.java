@@ -0,0 +1,282 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Revenue totals kept up to date by the payments themselves, so a report never scans payments or fines.
+// Every payment adds its amount to three rows of "revenue_rollups" in the payment's own transaction:
+// the day, the month and the year it was paid in, each split by source (parking fee or fine),
+// payment method and scheme (vehicle type for parking, fine scheme for fines).
+// A period is stored as the epoch day of its first day, so any date range is a handful of index ranges:
+// the loose days at both ends, whole months, whole years. A 10-year report reads about as many rows
+// as a 2-month one.
+// Amounts are kept in cents so the running sums never drift.
+public class RevenueRollup {
+
+    public enum Source { PARKING, FINE }
+
+    // Rollup granularity, as stored in the "grain" column
+    private static final int DAY = 0;
+    private static final int MONTH = 1;
+    private static final int YEAR = 2;
+
+    private static final String ADD_SQL = "INSERT INTO revenue_rollups "
+            + "(grain, period, source, paymentMethod, scheme, amountCents, payments) VALUES(?,?,?,?,?,?,?) "
+            + "ON CONFLICT(grain, period, source, paymentMethod, scheme) DO UPDATE SET "
+            + "amountCents = amountCents + excluded.amountCents, payments = payments + excluded.payments";
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Writing (inside the caller's payment transaction)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static void record(Connection conn, LocalDate day, Source source, String paymentMethod, String scheme, double amount) throws SQLException {
+        add(conn, day, source, paymentMethod, scheme, amount, 1);
+    }
+
+    // A payment that no longer counts (a paid fine that was revoked)
+    public static void reverse(Connection conn, LocalDate day, Source source, String paymentMethod, String scheme, double amount) throws SQLException {
+        add(conn, day, source, paymentMethod, scheme, -amount, -1);
+    }
+
+    // Adds up many payments per rollup key in memory and writes each key once (bulk saves); apply() inside the transaction
+    static final class Tally {
+        private final Map<List<Object>, long[]> sums = new HashMap<>(); // {day, source, method, scheme} -> {cents, payments}
+
+        void record(LocalDate day, Source source, String paymentMethod, String scheme, double amount) {
+            add(day, source, paymentMethod, scheme, Math.round(amount * 100), 1);
+        }
+
+        void reverse(LocalDate day, Source source, String paymentMethod, String scheme, double amount) {
+            add(day, source, paymentMethod, scheme, -Math.round(amount * 100), -1);
+        }
+
+        private void add(LocalDate day, Source source, String paymentMethod, String scheme, long cents, int payments) {
+            long[] sum = sums.computeIfAbsent(List.of(day, source, paymentMethod == null ? "" : paymentMethod,
+                    scheme == null ? "" : scheme), k -> new long[2]);
+            sum[0] += cents;
+            sum[1] += payments;
+        }
+
+        void apply(Connection conn) throws SQLException {
+            for (Map.Entry<List<Object>, long[]> e : sums.entrySet()) {
+                List<Object> key = e.getKey();
+                long[] sum = e.getValue();
+                if (sum[1] == 0 && sum[0] == 0) continue; // Reversed and recorded again: nothing moves
+                RevenueRollup.add(conn, (LocalDate) key.get(0), (Source) key.get(1), (String) key.get(2), (String) key.get(3),
+                        sum[0] / 100.0, (int) sum[1]);
+            }
+            sums.clear();
+        }
+    }
+
+    // Every rollup row of one source (all of its payments are gone, e.g. the fines table was cleared)
+    public static void clear(Connection conn, Source source) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM revenue_rollups WHERE source = ?")) {
+            pstmt.setString(1, source.name());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void add(Connection conn, LocalDate day, Source source, String paymentMethod, String scheme,
+                            double amount, int payments) throws SQLException {
+        long[] periods = {day.toEpochDay(), day.withDayOfMonth(1).toEpochDay(), day.withDayOfYear(1).toEpochDay()};
+        try (PreparedStatement pstmt = conn.prepareStatement(ADD_SQL)) {
+            for (int grain = DAY; grain <= YEAR; grain++) {
+                pstmt.setInt(1, grain);
+                pstmt.setLong(2, periods[grain]);
+                pstmt.setString(3, source.name());
+                pstmt.setString(4, paymentMethod == null ? "" : paymentMethod);
+                pstmt.setString(5, scheme == null ? "" : scheme);
+                pstmt.setLong(6, Math.round(amount * 100));
+                pstmt.setInt(7, payments);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // The scheme a parking payment is filed under
+    static String parking_scheme(Ticket t) {
+        return (t.getVehicleType() == null) ? "" : t.getVehicleType().toUpperCase();
+    }
+
+    // Recomputes every rollup from the payments and fines tables (repairs after hand-written SQL; checks the incremental rollups)
+    public static void rebuild() {
+        try {
+            DatabaseManager.in_transaction(conn -> {
+                rebuild(conn);
+                return null;
+            });
+            System.out.println("   [REVENUE] Rollups rebuilt.");
+        } catch (SQLException e) {
+            System.out.println("Error rebuilding revenue rollups: " + e.getMessage());
+        }
+    }
+
+    static void rebuild(Connection conn) throws SQLException {
+        // One row per payment line: (day 'YYYY-MM-DD', source, method, scheme, cents).
+        // Payment dates are epoch ms of local time (TimeCodec); 'localtime' gives back the local day.
+        // Runs on the current schema only: migrations 8 and 9 have their own frozen copy (SchemaMigrator.rollups_from).
+        String lines = "SELECT date(p.paymentDate / 1000, 'unixepoch', 'localtime') AS day, 'PARKING' AS source, "
+                + "COALESCE(p.paymentMethod, '') AS method, "
+                + "COALESCE(UPPER(p.vehicleType), '') AS scheme, "
+                + "CAST(ROUND(p.parkingFee * 100) AS INTEGER) AS cents FROM payments p "
+                + "UNION ALL "
+                + "SELECT date(f.paymentDate / 1000, 'unixepoch', 'localtime'), 'FINE', COALESCE(f.paymentMethod, ''), COALESCE(f.fineSchemeType, ''), "
+                + "CAST(ROUND(f.amount * 100) AS INTEGER) FROM fines f WHERE f.isPaid = 1 AND f.paymentDate IS NOT NULL";
+        String[] periods = {
+            "date(day)",
+            "date(day, 'start of month')",
+            "date(day, 'start of year')"
+        };
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM revenue_rollups");
+            for (int grain = DAY; grain <= YEAR; grain++) {
+                stmt.execute("INSERT INTO revenue_rollups (grain, period, source, paymentMethod, scheme, amountCents, payments) "
+                        + "SELECT " + grain + ", CAST(julianday(" + periods[grain] + ") - 2440587.5 AS INTEGER) AS period, "
+                        + "source, method, scheme, SUM(cents), COUNT(*) FROM (" + lines + ") "
+                        + "WHERE day IS NOT NULL AND date(day) IS NOT NULL GROUP BY period, source, method, scheme");
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Reports
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Totals for one date range, broken down three ways (amounts in RM)
+    public static final class Report {
+        public final LocalDate from;
+        public final LocalDate to;
+        public final double total;
+        public final int payments;
+        public final Map<String, Double> bySource = new TreeMap<>();
+        public final Map<String, Double> byMethod = new TreeMap<>();
+        public final Map<String, Double> byScheme = new TreeMap<>();
+        public final Map<String, Integer> paymentsBySource = new TreeMap<>();
+
+        Report(LocalDate from, LocalDate to, long totalCents, int payments) {
+            this.from = from;
+            this.to = to;
+            this.total = totalCents / 100.0;
+            this.payments = payments;
+        }
+
+        public double get(Source source) {
+            return bySource.getOrDefault(source.name(), 0.0);
+        }
+
+        public int count(Source source) {
+            return paymentsBySource.getOrDefault(source.name(), 0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[REVENUE] %s .. %s | RM %.2f from %d payments | %s | %s | %s",
+                    from, to, total, payments, bySource, byMethod, byScheme);
+        }
+    }
+
+    public static Report day(LocalDate day) {
+        return report(day, day);
+    }
+
+    // Monday to Sunday
+    public static Report week(LocalDate anyDay) {
+        LocalDate monday = anyDay.with(DayOfWeek.MONDAY);
+        return report(monday, monday.plusDays(6));
+    }
+
+    public static Report month(YearMonth month) {
+        return report(month.atDay(1), month.atEndOfMonth());
+    }
+
+    public static Report year(int year) {
+        return report(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+    }
+
+    // Both ends inclusive
+    public static Report report(LocalDate from, LocalDate to) {
+        List<long[]> ranges = split(from, to);
+        long totalCents = 0;
+        int payments = 0;
+        Map<String, Long> bySource = new TreeMap<>();
+        Map<String, Long> byMethod = new TreeMap<>();
+        Map<String, Long> byScheme = new TreeMap<>();
+        Map<String, Integer> paymentsBySource = new TreeMap<>();
+
+        if (!ranges.isEmpty()) {
+            StringBuilder where = new StringBuilder();
+            for (int i = 0; i < ranges.size(); i++) {
+                where.append(i == 0 ? "" : " OR ").append("(grain = ? AND period BETWEEN ? AND ?)");
+            }
+            String sql = "SELECT source, paymentMethod, scheme, SUM(amountCents), SUM(payments) FROM revenue_rollups WHERE "
+                    + where + " GROUP BY source, paymentMethod, scheme";
+
+            try (Connection conn = DatabaseManager.connect();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int p = 1;
+                for (long[] r : ranges) {
+                    pstmt.setInt(p++, (int) r[0]);
+                    pstmt.setLong(p++, r[1]);
+                    pstmt.setLong(p++, r[2]);
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    long cents = rs.getLong(4);
+                    totalCents += cents;
+                    payments += rs.getInt(5);
+                    paymentsBySource.merge(rs.getString(1), rs.getInt(5), Integer::sum);
+                    bySource.merge(rs.getString(1), cents, Long::sum);
+                    byMethod.merge(rs.getString(2).isEmpty() ? "Unknown" : rs.getString(2), cents, Long::sum);
+                    byScheme.merge(rs.getString(3).isEmpty() ? "Unknown" : rs.getString(3), cents, Long::sum);
+                }
+            } catch (SQLException e) {
+                System.out.println("Error reading revenue: " + e.getMessage());
+            }
+        }
+
+        Report report = new Report(from, to, totalCents, payments);
+        bySource.forEach((k, v) -> report.bySource.put(k, v / 100.0));
+        byMethod.forEach((k, v) -> report.byMethod.put(k, v / 100.0));
+        byScheme.forEach((k, v) -> report.byScheme.put(k, v / 100.0));
+        report.paymentsBySource.putAll(paymentsBySource);
+        return report;
+    }
+
+    // [from, to] as {grain, firstPeriod, lastPeriod} ranges: whole years where they fit, then whole months, then days
+    static List<long[]> split(LocalDate from, LocalDate to) {
+        List<long[]> ranges = new ArrayList<>();
+        LocalDate day = from;
+        while (!day.isAfter(to)) {
+            int grain;
+            LocalDate next;
+            if (day.getDayOfYear() == 1 && !day.plusYears(1).minusDays(1).isAfter(to)) {
+                grain = YEAR;
+                next = day.plusYears(1);
+            } else if (day.getDayOfMonth() == 1 && !day.plusMonths(1).minusDays(1).isAfter(to)) {
+                grain = MONTH;
+                next = day.plusMonths(1);
+            } else {
+                grain = DAY;
+                next = day.plusDays(1);
+            }
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[0] == grain) last[2] = day.toEpochDay(); // Extend the run
+            else ranges.add(new long[]{grain, day.toEpochDay(), day.toEpochDay()});
+            day = next;
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,399 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Owns the database schema. Every table/index change is a numbered migration that runs
+// exactly once per database file, in order, and is recorded in "schema_migrations".
+// To change the schema: append a new migration at the bottom of the list. Never edit an old one.
+public class SchemaMigrator {
+
+    // A migration body. Most are plain SQL, but data conversions can run Java code.
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        sql(1, "Base tables: tickets, spots, vehicle_logs, fines, DummyDataforFine",
+                "CREATE TABLE IF NOT EXISTS tickets ("
+                        + "ticketID TEXT PRIMARY KEY, "
+                        + "vehiclePlate TEXT UNIQUE, " // One active ticket per car
+                        + "spotID TEXT, "
+                        + "vehicleType TEXT, "
+                        + "entryTime TEXT"
+                        + ")",
+                "CREATE TABLE IF NOT EXISTS spots ("
+                        + "spotID TEXT PRIMARY KEY, "
+                        + "floor INTEGER, "
+                        + "row INTEGER, "
+                        + "type TEXT, "
+                        + "isOccupied INTEGER DEFAULT 0"
+                        + ")",
+                "CREATE TABLE IF NOT EXISTS vehicle_logs ("
+                        + "logID INTEGER PRIMARY KEY AUTOINCREMENT, "
+                        + "ticketID TEXT, "
+                        + "vehiclePlate TEXT, "
+                        + "spotID TEXT, "
+                        + "vehicleType TEXT, "
+                        + "entryTime TEXT, "
+                        + "exitTime TEXT"
+                        + ")",
+                // Note: SQLite uses INTEGER (0 or 1) for booleans, and TEXT for dates.
+                "CREATE TABLE IF NOT EXISTS fines ("
+                        + "fineID TEXT PRIMARY KEY, "
+                        + "fineSchemeType TEXT, "
+                        + "vehiclePlate TEXT NOT NULL, "
+                        + "amount REAL NOT NULL, "
+                        + "reason TEXT, "
+                        + "issueDate TEXT, "
+                        + "isPaid INTEGER DEFAULT 0, "
+                        + "paymentDate TEXT, "
+                        + "paymentMethod TEXT"
+                        + ")",
+                "CREATE TABLE IF NOT EXISTS DummyDataforFine ("
+                        + "fineID TEXT PRIMARY KEY, "
+                        + "overtimeAmount REAL,"
+                        + "paymentWay TEXT,"
+                        + "paymentDate TEXT,"
+                        + "staffInCharge TEXT,"
+                        + "FOREIGN KEY(fineID) REFERENCES fines(fineID)"
+                        + ")");
+
+        sql(2, "Hot-path indexes for gate checks, spot allocation and log lookups",
+                // FineManager.get_fine: WHERE vehiclePlate = ? AND isPaid = ? ORDER BY issueDate DESC
+                "CREATE INDEX IF NOT EXISTS idx_fines_plate_paid_date ON fines(vehiclePlate, isPaid, issueDate)",
+                // DatabaseManager.find_available_spot: covers the whole query, never touches the table
+                "CREATE INDEX IF NOT EXISTS idx_spots_type_occupied ON spots(type, isOccupied, spotID)",
+                "CREATE INDEX IF NOT EXISTS idx_vehicle_logs_ticket ON vehicle_logs(ticketID)",
+                "CREATE INDEX IF NOT EXISTS idx_vehicle_logs_exit ON vehicle_logs(exitTime)");
+
+        sql(3, "ID sequences for fines and tickets (see SequenceAllocator)",
+                "CREATE TABLE IF NOT EXISTS sequences ("
+                        + "name TEXT PRIMARY KEY, "
+                        + "nextValue INTEGER NOT NULL"
+                        + ")");
+
+        sql(4, "Ticket lookups used by the atomic entry in TicketManager.issue_ticket",
+                // "Is this plate already inside?" is checked inside the entry transaction
+                "CREATE INDEX IF NOT EXISTS idx_tickets_plate ON tickets(vehiclePlate)",
+                // SpotIndex.load: which spots have an active ticket
+                "CREATE INDEX IF NOT EXISTS idx_tickets_spot ON tickets(spotID)");
+
+        // Written on every exit, so kept lean: rowid key (no AUTOINCREMENT bookkeeping), no extra indexes
+        sql(5, "Parking payments written by the checkout transaction (see PaymentManager)",
+                "CREATE TABLE IF NOT EXISTS payments ("
+                        + "paymentID INTEGER PRIMARY KEY, "
+                        + "ticketID TEXT NOT NULL, "
+                        + "vehiclePlate TEXT NOT NULL, "
+                        + "hours INTEGER NOT NULL, "
+                        + "hourlyRate REAL NOT NULL, "
+                        + "parkingFee REAL NOT NULL, "
+                        + "fineAmount REAL NOT NULL, "
+                        + "total REAL NOT NULL, "
+                        + "paymentMethod TEXT, "
+                        + "paymentDate TEXT NOT NULL"
+                        + ")");
+
+        sql(6, "Newest-first paging of the fines table (see FineManager.get_fines_page)",
+                // Keyset: ORDER BY issueDate DESC, fineID DESC walks this index backwards; COUNT(*) and OFFSET seeks never touch the table
+                "CREATE INDEX IF NOT EXISTS idx_fines_issue_date ON fines(issueDate, fineID)");
+
+        sql(7, "Plate lookups in the vehicle history (see PlateSearchIndex)",
+                // Rows for the plates a search found; also makes the index's startup scan a DISTINCT over an index
+                "CREATE INDEX IF NOT EXISTS idx_vehicle_logs_plate ON vehicle_logs(vehiclePlate)");
+
+        add(8, "Revenue per day/month/year, source, method and scheme (see RevenueRollup)", conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                // period = epoch day of the period's first day; the key is the only index reports need
+                stmt.execute("CREATE TABLE IF NOT EXISTS revenue_rollups ("
+                        + "grain INTEGER NOT NULL, "
+                        + "period INTEGER NOT NULL, "
+                        + "source TEXT NOT NULL, "
+                        + "paymentMethod TEXT NOT NULL, "
+                        + "scheme TEXT NOT NULL, "
+                        + "amountCents INTEGER NOT NULL, "
+                        + "payments INTEGER NOT NULL, "
+                        + "PRIMARY KEY (grain, period, source, paymentMethod, scheme)"
+                        + ") WITHOUT ROWID");
+            }
+            // Existing payments and paid fines. Dates are still text here ("2026-02-11T14:30..." from
+            // LocalDateTime.toString), and the vehicle type is only in the logs.
+            rollups_from(conn, "SELECT substr(p.paymentDate, 1, 10) AS day, 'PARKING' AS source, "
+                    + "COALESCE(p.paymentMethod, '') AS method, "
+                    + "COALESCE((SELECT UPPER(l.vehicleType) FROM vehicle_logs l WHERE l.ticketID = p.ticketID LIMIT 1), '') AS scheme, "
+                    + "CAST(ROUND(p.parkingFee * 100) AS INTEGER) AS cents FROM payments p "
+                    + "UNION ALL "
+                    + "SELECT substr(f.paymentDate, 1, 10), 'FINE', COALESCE(f.paymentMethod, ''), COALESCE(f.fineSchemeType, ''), "
+                    + "CAST(ROUND(f.amount * 100) AS INTEGER) FROM fines f WHERE f.isPaid = 1 AND f.paymentDate IS NOT NULL");
+        });
+
+        // Dates were text in three formats (see TimeCodec.parse_text). SQLite can't change a column's type,
+        // so each table is copied into one with INTEGER time columns, converting every row on the way.
+        add(9, "Time columns as INTEGER epoch milliseconds (see TimeCodec)", conn -> {
+            int unreadable = 0;
+            unreadable += retype(conn, "tickets",
+                    "ticketID TEXT PRIMARY KEY, vehiclePlate TEXT UNIQUE, spotID TEXT, vehicleType TEXT, entryTime INTEGER",
+                    new String[]{"entryTime"},
+                    "CREATE INDEX IF NOT EXISTS idx_tickets_plate ON tickets(vehiclePlate)",
+                    "CREATE INDEX IF NOT EXISTS idx_tickets_spot ON tickets(spotID)");
+            unreadable += retype(conn, "vehicle_logs",
+                    "logID INTEGER PRIMARY KEY AUTOINCREMENT, ticketID TEXT, vehiclePlate TEXT, spotID TEXT, vehicleType TEXT, "
+                            + "entryTime INTEGER, exitTime INTEGER",
+                    new String[]{"entryTime", "exitTime"},
+                    "CREATE INDEX IF NOT EXISTS idx_vehicle_logs_ticket ON vehicle_logs(ticketID)",
+                    "CREATE INDEX IF NOT EXISTS idx_vehicle_logs_exit ON vehicle_logs(exitTime)",
+                    "CREATE INDEX IF NOT EXISTS idx_vehicle_logs_plate ON vehicle_logs(vehiclePlate)");
+            unreadable += retype(conn, "fines",
+                    "fineID TEXT PRIMARY KEY, fineSchemeType TEXT, vehiclePlate TEXT NOT NULL, amount REAL NOT NULL, reason TEXT, "
+                            + "issueDate INTEGER, isPaid INTEGER DEFAULT 0, paymentDate INTEGER, paymentMethod TEXT",
+                    new String[]{"issueDate", "paymentDate"},
+                    "CREATE INDEX IF NOT EXISTS idx_fines_plate_paid_date ON fines(vehiclePlate, isPaid, issueDate)",
+                    "CREATE INDEX IF NOT EXISTS idx_fines_issue_date ON fines(issueDate, fineID)");
+            unreadable += retype(conn, "DummyDataforFine",
+                    "fineID TEXT PRIMARY KEY, overtimeAmount REAL, paymentWay TEXT, paymentDate INTEGER, staffInCharge TEXT, "
+                            + "FOREIGN KEY(fineID) REFERENCES fines(fineID)",
+                    new String[]{"paymentDate"});
+            unreadable += retype(conn, "payments",
+                    "paymentID INTEGER PRIMARY KEY, ticketID TEXT NOT NULL, vehiclePlate TEXT NOT NULL, hours INTEGER NOT NULL, "
+                            + "hourlyRate REAL NOT NULL, parkingFee REAL NOT NULL, fineAmount REAL NOT NULL, total REAL NOT NULL, "
+                            + "paymentMethod TEXT, paymentDate INTEGER NOT NULL",
+                    new String[]{"paymentDate"});
+            if (unreadable > 0) {
+                System.out.println("   [WARNING] " + unreadable + " stored times were in no known format and are now empty.");
+            }
+            // Recount from the converted dates: migration 8 read the text, which may not have been ISO.
+            // Dates are now epoch ms of local time; the vehicle type is still only in the logs.
+            rollups_from(conn, "SELECT date(p.paymentDate / 1000, 'unixepoch', 'localtime') AS day, 'PARKING' AS source, "
+                    + "COALESCE(p.paymentMethod, '') AS method, "
+                    + "COALESCE((SELECT UPPER(l.vehicleType) FROM vehicle_logs l WHERE l.ticketID = p.ticketID LIMIT 1), '') AS scheme, "
+                    + "CAST(ROUND(p.parkingFee * 100) AS INTEGER) AS cents FROM payments p "
+                    + "UNION ALL "
+                    + "SELECT date(f.paymentDate / 1000, 'unixepoch', 'localtime'), 'FINE', COALESCE(f.paymentMethod, ''), "
+                    + "COALESCE(f.fineSchemeType, ''), CAST(ROUND(f.amount * 100) AS INTEGER) "
+                    + "FROM fines f WHERE f.isPaid = 1 AND f.paymentDate IS NOT NULL");
+        });
+
+        sql(10, "Time-range scans of the vehicle history (see VehicleLogManager.stream_logs)",
+                // entered_between() and its ORDER BY entryTime walk this index; logID is the rowid, so it breaks ties for free
+                "CREATE INDEX IF NOT EXISTS idx_vehicle_logs_entry ON vehicle_logs(entryTime)");
+
+        sql(11, "Payments keep the vehicle type, so revenue rebuilds don't need the (archivable) vehicle logs",
+                "ALTER TABLE payments ADD COLUMN vehicleType TEXT",
+                "UPDATE payments SET vehicleType = "
+                        + "(SELECT l.vehicleType FROM vehicle_logs l WHERE l.ticketID = payments.ticketID LIMIT 1)");
+
+        sql(12, "Archived vehicle log segments (see LogArchive)",
+                "CREATE TABLE IF NOT EXISTS log_segments ("
+                        + "segmentID INTEGER PRIMARY KEY, "
+                        + "fileName TEXT NOT NULL UNIQUE, "
+                        + "rowCount INTEGER NOT NULL, "
+                        + "firstEntry INTEGER NOT NULL, "
+                        + "lastEntry INTEGER NOT NULL, "
+                        + "maxLogID INTEGER NOT NULL, "
+                        + "archivedAt INTEGER NOT NULL"
+                        + ")");
+
+        sql(13, "Last journaled vehicle log written to vehicle_logs (see LogJournal)",
+                // One row; its appliedSeq moves forward in the same transaction as the logs it covers
+                "CREATE TABLE IF NOT EXISTS log_journal ("
+                        + "id INTEGER PRIMARY KEY CHECK (id = 1), "
+                        + "appliedSeq INTEGER NOT NULL"
+                        + ")",
+                "INSERT OR IGNORE INTO log_journal (id, appliedSeq) VALUES (1, 0)");
+
+        sql(14, "Fine paging that includes fines without an issue date (see FineManager.get_fines_page)",
+                "CREATE INDEX IF NOT EXISTS idx_fines_page ON fines(COALESCE(issueDate, 0), fineID)");
+    }
+
+    // Migrations 8 and 9: refills revenue_rollups from "lines" (day 'YYYY-MM-DD', source, method, scheme, cents).
+    // Written for the schema of those versions and frozen with them; RevenueRollup.rebuild is the live version.
+    private static void rollups_from(Connection conn, String lines) throws SQLException {
+        String[] periods = {"date(day)", "date(day, 'start of month')", "date(day, 'start of year')"}; // grain 0, 1, 2
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM revenue_rollups");
+            for (int grain = 0; grain < periods.length; grain++) {
+                stmt.execute("INSERT INTO revenue_rollups (grain, period, source, paymentMethod, scheme, amountCents, payments) "
+                        + "SELECT " + grain + ", CAST(julianday(" + periods[grain] + ") - 2440587.5 AS INTEGER) AS period, "
+                        + "source, method, scheme, SUM(cents), COUNT(*) FROM (" + lines + ") "
+                        + "WHERE day IS NOT NULL AND date(day) IS NOT NULL GROUP BY period, source, method, scheme");
+            }
+        }
+    }
+
+    // Replaces "table" with a copy whose columns are "definition", converting the text in "timeColumns"
+    // to epoch milliseconds, then recreates the table's indexes. Returns how many times could not be read.
+    private static int retype(Connection conn, String table, String definition, String[] timeColumns,
+                              String... indexes) throws SQLException {
+        String copy = table + "_v9";
+        List<String> columns = new ArrayList<>();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE " + copy + " (" + definition + ")");
+            ResultSetMetaData meta = stmt.executeQuery("SELECT * FROM " + copy + " LIMIT 0").getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) columns.add(meta.getColumnName(i));
+        }
+        List<String> times = List.of(timeColumns);
+        String names = String.join(", ", columns);
+        int unreadable = 0;
+        int pending = 0;
+
+        try (PreparedStatement read = conn.prepareStatement("SELECT " + names + " FROM " + table);
+             PreparedStatement write = conn.prepareStatement("INSERT INTO " + copy + " (" + names + ") VALUES("
+                     + "?,".repeat(columns.size() - 1) + "?)")) {
+            ResultSet rs = read.executeQuery();
+            while (rs.next()) {
+                for (int i = 1; i <= columns.size(); i++) {
+                    Object value = rs.getObject(i);
+                    if (value instanceof String && times.contains(columns.get(i - 1))) {
+                        value = TimeCodec.parse_text((String) value);
+                        if (value == null) unreadable++;
+                    }
+                    write.setObject(i, value);
+                }
+                write.addBatch();
+                if (++pending == 10_000) {
+                    write.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) write.executeBatch();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE " + table);
+            stmt.execute("ALTER TABLE " + copy + " RENAME TO " + table);
+            for (String index : indexes) stmt.execute(index);
+        }
+        return unreadable;
+    }
+
+    private static void sql(int version, String description, String... statements) {
+        add(version, description, conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String s : statements) {
+                    stmt.execute(s);
+                }
+            }
+        });
+    }
+
+    private static void add(int version, String description, Step step) {
+        if (!MIGRATIONS.isEmpty() && MIGRATIONS.get(MIGRATIONS.size() - 1).version >= version) {
+            throw new IllegalStateException("Migration " + version + " is out of order");
+        }
+        MIGRATIONS.add(new Migration(version, description, step));
+    }
+
+    public static int get_latest_version() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Running migrations
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Brings the database up to the latest version. Safe to call on every startup.
+    // Returns the schema version the database ends up at.
+    public static synchronized int migrate() throws SQLException {
+        try (Connection conn = DatabaseManager.connect()) {
+            if (conn == null) throw new SQLException("No database connection available");
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations ("
+                        + "version INTEGER PRIMARY KEY, "
+                        + "description TEXT, "
+                        + "appliedAt TEXT"
+                        + ")");
+            }
+
+            int current = read_version(conn);
+            boolean changed = false;
+
+            for (Migration m : MIGRATIONS) {
+                if (m.version <= current) continue;
+
+                // Each migration commits on its own, so a failure leaves the DB at the last good version
+                conn.setAutoCommit(false);
+                try {
+                    m.step.apply(conn);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT OR IGNORE INTO schema_migrations (version, description, appliedAt) VALUES(?,?,?)")) {
+                        pstmt.setInt(1, m.version);
+                        pstmt.setString(2, m.description);
+                        pstmt.setString(3, LocalDateTime.now().toString());
+                        pstmt.executeUpdate();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Migration " + m.version + " (" + m.description + ") failed: " + e.getMessage(), e);
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+
+                System.out.println("   [SCHEMA] Applied migration " + m.version + ": " + m.description);
+                current = m.version;
+                changed = true;
+            }
+
+            refresh_statistics(conn, changed);
+            return current;
+        }
+    }
+
+    public static int get_schema_version() {
+        try (Connection conn = DatabaseManager.connect()) {
+            return (conn == null) ? 0 : read_version(conn);
+        } catch (SQLException e) {
+            // schema_migrations does not exist yet
+            return 0;
+        }
+    }
+
+    private static int read_version(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COALESCE(MAX(version), 0) FROM schema_migrations");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Gives the query planner real row counts so it picks the indexes above.
+    // A full ANALYZE only after a schema change; otherwise PRAGMA optimize re-analyzes what drifted.
+    private static void refresh_statistics(Connection conn, boolean schemaChanged) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (schemaChanged || !has_statistics(conn)) {
+                stmt.execute("ANALYZE");
+            } else {
+                stmt.execute("PRAGMA optimize");
+            }
+        }
+    }
+
+    private static boolean has_statistics(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'sqlite_stat1'");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+}
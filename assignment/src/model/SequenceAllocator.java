@@ -0,0 +1,104 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Hands out unique, increasing numbers for fine and ticket IDs without scanning their tables.
+// Numbers are reserved from the "sequences" table in blocks (one small write transaction per block)
+// and then served from memory. Reservation is an atomic UPDATE, so several threads - or several
+// app instances on the same database file - never receive the same number.
+// Numbers reserved but not used before shutdown are skipped, so IDs can have gaps.
+public class SequenceAllocator {
+
+    // Only digits after the prefix count as "ours"; legacy IDs like "T-WAA1234-02141030" are ignored
+    public static final SequenceAllocator FINES = new SequenceAllocator("fines", "F-", 1000, 20,
+            "SELECT MAX(CAST(SUBSTR(fineID, 3) AS INTEGER)) FROM fines "
+                    + "WHERE fineID GLOB 'F-[0-9]*' AND SUBSTR(fineID, 3) NOT GLOB '*[^0-9]*'");
+
+    public static final SequenceAllocator TICKETS = new SequenceAllocator("tickets", "T-", 100000, 50,
+            "SELECT MAX(n) FROM ("
+                    + "SELECT CAST(SUBSTR(ticketID, 3) AS INTEGER) AS n FROM tickets "
+                    + "WHERE ticketID GLOB 'T-[0-9]*' AND SUBSTR(ticketID, 3) NOT GLOB '*[^0-9]*' "
+                    + "UNION ALL "
+                    + "SELECT CAST(SUBSTR(ticketID, 3) AS INTEGER) FROM vehicle_logs "
+                    + "WHERE ticketID GLOB 'T-[0-9]*' AND SUBSTR(ticketID, 3) NOT GLOB '*[^0-9]*')");
+
+    private final String name;
+    private final String prefix;
+    private final long floor;      // Highest value considered "already used" on an empty database
+    private final int blockSize;
+    private final String seedSql;  // Finds the highest number already used, run once per database
+
+    // Current block: [next, limit) is reserved for this process
+    private long next = 0;
+    private long limit = 0;
+    private String blockUrl = null; // The database the block was reserved from
+
+    private SequenceAllocator(String name, String prefix, long floor, int blockSize, String seedSql) {
+        this.name = name;
+        this.prefix = prefix;
+        this.floor = floor;
+        this.blockSize = blockSize;
+        this.seedSql = seedSql;
+    }
+
+    // e.g. "F-1001"
+    public String next_id() {
+        return prefix + next_value();
+    }
+
+    public synchronized long next_value() {
+        String url = ConnectionPool.get_url();
+        if (next >= limit || !url.equals(blockUrl)) {
+            try {
+                next = reserve_block();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not allocate a new " + name + " ID: " + e.getMessage(), e);
+            }
+            limit = next + blockSize;
+            blockUrl = url;
+        }
+        return next++;
+    }
+
+    // Returns the first number of a freshly reserved block
+    private long reserve_block() throws SQLException {
+        return DatabaseManager.in_transaction(conn -> {
+            // Write first so the transaction takes the write lock immediately
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE sequences SET nextValue = nextValue + ? WHERE name = ?")) {
+                pstmt.setInt(1, blockSize);
+                pstmt.setString(2, name);
+                if (pstmt.executeUpdate() == 0) {
+                    long start = seed(conn);
+                    try (PreparedStatement insert = conn.prepareStatement(
+                            "INSERT INTO sequences (name, nextValue) VALUES(?,?)")) {
+                        insert.setString(1, name);
+                        insert.setLong(2, start + blockSize);
+                        insert.executeUpdate();
+                    }
+                    return start;
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT nextValue FROM sequences WHERE name = ?")) {
+                pstmt.setString(1, name);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1) - blockSize;
+                }
+            }
+        });
+    }
+
+    // First use on this database: continue after the highest ID already stored
+    private long seed(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(seedSql);
+             ResultSet rs = pstmt.executeQuery()) {
+            long max = rs.next() ? rs.getLong(1) : 0;
+            System.out.println("   [SEQUENCE] Seeded '" + name + "' after " + Math.max(max, floor));
+            return Math.max(max, floor) + 1;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SequenceAllocatorTest {
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("=== SYSTEM STARTUP ===");
+        DatabaseManager.initialize_database();
+
+        System.out.println("\n=== TEST 1: CONCURRENT FINE IDS ===");
+        // 8 "cashier" threads issuing at the same time must never see the same ID
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int perThread = 500;
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int n = 0; n < perThread; n++) {
+                    ids.add(FineManager.get_next_fine_id());
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread t : workers) t.join();
+        check("Unique fine IDs", ids.size() == threads * perThread);
+
+        System.out.println("\n=== TEST 2: TICKET ID FORMAT ===");
+        Ticket a = Ticket.create_new("WAA1111", "F1-R1-S1", "Car");
+        Ticket b = Ticket.create_new("WAA1111", "F1-R1-S2", "Car"); // Same plate, same minute
+        System.out.println("Ticket IDs: " + a.getTicketID() + ", " + b.getTicketID());
+        check("Same-minute tickets get different IDs", !a.getTicketID().equals(b.getTicketID()));
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.printf("[%s] %s\n", passed ? "PASS" : "FAIL", name);
+    }
+}
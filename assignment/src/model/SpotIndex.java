@@ -0,0 +1,460 @@
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory picture of which spots are free, built once from the "spots" table.
+// Every spot gets an ordinal (0..n-1); free spots are bits in one BitSet per spot type
+// and one per floor, so finding, claiming and releasing a spot never reads SQLite.
+// Changes made through set_occupied() are written back to the spots table in the background
+// (write-behind) in small batches; callers that already persist the change themselves
+// (e.g. inside their own transaction) use the *_in_memory methods instead.
+//
+// Occupancy counters (lot, spot type, floor) move with every claim and release, so the dashboard and the
+// "lot full" check at the gate read one number instead of counting bits or tickets. They are only
+// written under the index lock, so plain atomics are exact and readers never take the lock.
+public class SpotIndex {
+
+    private static final long FLUSH_INTERVAL_MS = 100;
+
+    private static volatile SpotIndex current;
+    private static ScheduledExecutorService flusher;
+
+    // --- STATISTICS ---
+    private static final AtomicLong claims = new AtomicLong();
+    private static final AtomicLong releases = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();      // Claim found no free spot
+    private static final AtomicLong flushedRows = new AtomicLong();
+
+    // --- INDEX DATA (immutable after load) ---
+    private final String url;
+    private final String[] spotIDs;
+    private final int[] floors;
+    private final ParkingSpot.SpotType[] types;
+    private final Map<String, Integer> ordinals;
+    private final int[] capacityByType;
+    private final Map<Integer, Integer> capacityByFloor = new HashMap<>();
+
+    // --- OCCUPANCY (written under "this", read without it) ---
+    private final AtomicInteger occupiedTotal = new AtomicInteger();
+    private final AtomicInteger[] occupiedByType;
+    private final Map<Integer, AtomicInteger> occupiedByFloor = new HashMap<>(); // Keys fixed after construction
+
+    // --- MUTABLE STATE (guarded by "this") ---
+    private final BitSet[] freeByType;
+    private final Map<Integer, BitSet> freeByFloor = new HashMap<>();
+    private final int[] searchHint;     // Where the last claim of each type stopped
+    private final BitSet dirty;         // Ordinals whose state still has to reach the spots table
+    private final Object flushLock = new Object(); // One flush at a time
+
+    private SpotIndex(String url, List<String> ids, List<Integer> floorList, List<ParkingSpot.SpotType> typeList, BitSet occupied) {
+        int n = ids.size();
+        this.url = url;
+        this.spotIDs = ids.toArray(new String[0]);
+        this.floors = new int[n];
+        this.types = typeList.toArray(new ParkingSpot.SpotType[0]);
+        this.ordinals = new HashMap<>(n * 2);
+        this.dirty = new BitSet(n);
+
+        int typeCount = ParkingSpot.SpotType.values().length;
+        this.freeByType = new BitSet[typeCount];
+        this.searchHint = new int[typeCount];
+        this.capacityByType = new int[typeCount];
+        this.occupiedByType = new AtomicInteger[typeCount];
+        for (int t = 0; t < typeCount; t++) {
+            freeByType[t] = new BitSet(n);
+            occupiedByType[t] = new AtomicInteger();
+        }
+
+        for (int i = 0; i < n; i++) {
+            floors[i] = floorList.get(i);
+            ordinals.put(spotIDs[i], i);
+            freeByFloor.computeIfAbsent(floors[i], f -> new BitSet(n));
+            occupiedByFloor.computeIfAbsent(floors[i], f -> new AtomicInteger());
+            capacityByType[types[i].ordinal()]++;
+            capacityByFloor.merge(floors[i], 1, Integer::sum);
+            if (!occupied.get(i)) {
+                freeByType[types[i].ordinal()].set(i);
+                freeByFloor.get(floors[i]).set(i);
+            } else {
+                count(i, 1);
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Loading
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // The index for the database the pool currently points at (built on first use)
+    static SpotIndex get() {
+        SpotIndex index = current;
+        if (index != null && index.url.equals(ConnectionPool.get_url())) return index;
+
+        synchronized (SpotIndex.class) {
+            String url = ConnectionPool.get_url();
+            if (current == null || !current.url.equals(url)) {
+                current = load(url);
+                start_flusher();
+            }
+            return current;
+        }
+    }
+
+    // Call ONCE at startup (DatabaseManager.initialize_database): builds the index, which also sets the
+    // occupancy counters from the spots table and the active tickets
+    public static void warm_up() {
+        SpotIndex index = get();
+        System.out.println("   [SPOT INDEX] " + index.occupiedTotal.get() + "/" + index.spotIDs.length + " spots occupied.");
+    }
+
+    // Call after the spots table was changed behind the index's back (e.g. re-provisioning)
+    public static synchronized void reload() {
+        if (current != null) current.flush_pending();
+        current = null;
+    }
+
+    private static SpotIndex load(String url) {
+        List<String> ids = new ArrayList<>();
+        List<Integer> floorList = new ArrayList<>();
+        List<ParkingSpot.SpotType> typeList = new ArrayList<>();
+        BitSet occupied = new BitSet();
+        BitSet repaired = new BitSet();    // Free in the table but a ticket is parked there
+
+        // A spot counts as taken if the table says so OR an active ticket points at it.
+        // That also repairs any write-behind update lost in a crash (the row is written back below).
+        String sql = "SELECT s.spotID, s.floor, s.type, s.isOccupied, "
+                + "EXISTS (SELECT 1 FROM tickets t WHERE t.spotID = s.spotID) AS hasTicket "
+                + "FROM spots s ORDER BY s.rowid";
+
+        try (Connection conn = DatabaseManager.connect();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ParkingSpot.SpotType type;
+                try {
+                    type = ParkingSpot.SpotType.valueOf(rs.getString("type"));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    System.out.println("   [WARNING] Spot " + rs.getString("spotID") + " has unknown type, skipped.");
+                    continue;
+                }
+                if (rs.getInt("isOccupied") == 1 || rs.getInt("hasTicket") == 1) {
+                    occupied.set(ids.size());
+                    if (rs.getInt("isOccupied") == 0) repaired.set(ids.size());
+                }
+                ids.add(rs.getString("spotID"));
+                floorList.add(rs.getInt("floor"));
+                typeList.add(type);
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading spot index: " + e.getMessage());
+        }
+        SpotIndex index = new SpotIndex(url, ids, floorList, typeList, occupied);
+        if (!repaired.isEmpty()) {
+            System.out.println("   [WARNING] " + repaired.cardinality() + " spots with a parked vehicle were marked free in the spots table. Repairing.");
+            index.dirty.or(repaired);
+        }
+        return index;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Lookups and claims
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static String find_free(ParkingSpot.SpotType type) {
+        SpotIndex index = get();
+        if (index.none_free(type)) return null; // Full: no lock, no bit scan
+        return index.first_free(type);
+    }
+
+    // Claims a free spot of this type and persists it in the background. Null = none left.
+    public static String claim(ParkingSpot.SpotType type) {
+        SpotIndex index = get();
+        if (index.none_free(type)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        String id = index.claim_any(type, -1);
+        if (id != null) index.mark_dirty(id);
+        return id;
+    }
+
+    public static String claim(ParkingSpot.SpotType type, int floor) {
+        SpotIndex index = get();
+        String id = index.claim_any(type, floor);
+        if (id != null) index.mark_dirty(id);
+        return id;
+    }
+
+    // Sets the state of one spot and persists it in the background.
+    // Returns false if the spot does not exist in the index.
+    public static boolean set_occupied(String spotID, boolean occupied) {
+        SpotIndex index = get();
+        Integer ordinal = index.ordinals.get(spotID);
+        if (ordinal == null) return false;
+        synchronized (index) {
+            index.apply(ordinal, occupied);
+            index.dirty.set(ordinal);
+        }
+        return true;
+    }
+
+    // Result of claim_in_memory
+    enum Claim {
+        TAKEN,              // Unknown spot, or somebody else has it
+        CLAIMED,            // Ours; the spots table should still say it is free
+        CLAIMED_UNFLUSHED   // Ours, but its release was never written back: the table still says occupied
+    }
+
+    // Compare-and-set on one spot WITHOUT write-behind: the caller persists it itself.
+    static Claim claim_in_memory(String spotID) {
+        SpotIndex index = get();
+        Integer ordinal = index.ordinals.get(spotID);
+        if (ordinal == null) return Claim.TAKEN;
+        synchronized (index) {
+            if (!index.freeByType[index.types[ordinal].ordinal()].get(ordinal)) return Claim.TAKEN;
+            index.apply(ordinal, true);
+            if (index.dirty.get(ordinal)) {
+                // The pending write was "free"; the caller's own write replaces it
+                index.dirty.clear(ordinal);
+                return Claim.CLAIMED_UNFLUSHED;
+            }
+            return Claim.CLAIMED;
+        }
+    }
+
+    static void release_in_memory(String spotID) {
+        release_in_memory(spotID, false);
+    }
+
+    // Undoes claim_in_memory after the caller's write failed. "unflushed" = the claim was CLAIMED_UNFLUSHED:
+    // the pending "free" it took over was never written, so it goes back to the write-behind.
+    static void release_in_memory(String spotID, boolean unflushed) {
+        SpotIndex index = get();
+        Integer ordinal = index.ordinals.get(spotID);
+        if (ordinal == null) return;
+        synchronized (index) {
+            index.apply(ordinal, false);
+            if (unflushed) index.dirty.set(ordinal);
+        }
+    }
+
+    // Another process took the spot: just make the index agree, nothing to persist
+    static void mark_taken_in_memory(String spotID) {
+        SpotIndex index = get();
+        Integer ordinal = index.ordinals.get(spotID);
+        if (ordinal == null) return;
+        synchronized (index) {
+            index.apply(ordinal, true);
+        }
+    }
+
+    public static boolean is_occupied(String spotID) {
+        SpotIndex index = get();
+        Integer ordinal = index.ordinals.get(spotID);
+        if (ordinal == null) return false;
+        synchronized (index) {
+            return !index.freeByType[index.types[ordinal].ordinal()].get(ordinal);
+        }
+    }
+
+    public static ParkingSpot.SpotType type_of(String spotID) {
+        SpotIndex index = get();
+        Integer ordinal = index.ordinals.get(spotID);
+        return (ordinal == null) ? null : index.types[ordinal];
+    }
+
+    public static int get_spot_count() {
+        return get().spotIDs.length;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Occupancy (O(1), never waits for a claim or touches SQLite)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static int get_occupied_count() {
+        return get().occupiedTotal.get();
+    }
+
+    public static int get_occupied_count(ParkingSpot.SpotType type) {
+        return get().occupiedByType[type.ordinal()].get();
+    }
+
+    public static int get_capacity(ParkingSpot.SpotType type) {
+        return get().capacityByType[type.ordinal()];
+    }
+
+    public static int get_free_count(ParkingSpot.SpotType type) {
+        SpotIndex index = get();
+        return Math.max(0, index.capacityByType[type.ordinal()] - index.occupiedByType[type.ordinal()].get());
+    }
+
+    // No such floor = 0
+    public static int get_occupied_count_on_floor(int floor) {
+        AtomicInteger count = get().occupiedByFloor.get(floor);
+        return (count == null) ? 0 : count.get();
+    }
+
+    public static int get_capacity_on_floor(int floor) {
+        return get().capacityByFloor.getOrDefault(floor, 0);
+    }
+
+    // Floors that have spots, lowest first
+    public static List<Integer> get_floors() {
+        List<Integer> floors = new ArrayList<>(get().capacityByFloor.keySet());
+        floors.sort(null);
+        return floors;
+    }
+
+    // True if every spot of this type is taken (also true for a type the lot doesn't have)
+    public static boolean is_full(ParkingSpot.SpotType type) {
+        return get().none_free(type);
+    }
+
+    private boolean none_free(ParkingSpot.SpotType type) {
+        return occupiedByType[type.ordinal()].get() >= capacityByType[type.ordinal()];
+    }
+
+    private synchronized String first_free(ParkingSpot.SpotType type) {
+        BitSet free = freeByType[type.ordinal()];
+        int i = free.nextSetBit(searchHint[type.ordinal()]);
+        if (i < 0) i = free.nextSetBit(0);
+        return (i < 0) ? null : spotIDs[i];
+    }
+
+    // floor = -1 means any floor
+    private synchronized String claim_any(ParkingSpot.SpotType type, int floor) {
+        int t = type.ordinal();
+        int i;
+        if (floor < 0) {
+            // Continue where the last claim stopped so we don't rescan the full front of the lot
+            i = freeByType[t].nextSetBit(searchHint[t]);
+            if (i < 0) i = freeByType[t].nextSetBit(0);
+        } else {
+            BitSet onFloor = freeByFloor.get(floor);
+            i = (onFloor == null) ? -1 : onFloor.nextSetBit(0);
+            while (i >= 0 && types[i] != type) i = onFloor.nextSetBit(i + 1);
+        }
+        if (i < 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        searchHint[t] = i + 1;
+        apply(i, true);
+        return spotIDs[i];
+    }
+
+    // Must hold the lock
+    private void apply(int ordinal, boolean occupied) {
+        BitSet byType = freeByType[types[ordinal].ordinal()];
+        boolean wasFree = byType.get(ordinal);
+        if (occupied == !wasFree) return; // No change
+
+        byType.set(ordinal, !occupied);
+        freeByFloor.get(floors[ordinal]).set(ordinal, !occupied);
+        count(ordinal, occupied ? 1 : -1);
+        if (occupied) claims.incrementAndGet();
+        else releases.incrementAndGet();
+    }
+
+    // Must hold the lock (or be in the constructor)
+    private void count(int ordinal, int delta) {
+        occupiedTotal.addAndGet(delta);
+        occupiedByType[types[ordinal].ordinal()].addAndGet(delta);
+        occupiedByFloor.get(floors[ordinal]).addAndGet(delta);
+    }
+
+    private void mark_dirty(String spotID) {
+        int ordinal = ordinals.get(spotID);
+        synchronized (this) {
+            dirty.set(ordinal);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Write-behind
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    private static synchronized void start_flusher() {
+        if (flusher != null) return;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "spot-index-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(SpotIndex::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(SpotIndex::flush, "spot-index-final-flush"));
+    }
+
+    // Writes every pending spot change to the spots table now.
+    // If the background flusher is busy, this waits until its write is committed.
+    public static void flush() {
+        SpotIndex index = current;
+        if (index != null) index.flush_pending();
+    }
+
+    private void flush_pending() {
+        synchronized (flushLock) {
+            write_pending();
+        }
+    }
+
+    private void write_pending() {
+        List<String> ids = new ArrayList<>();
+        List<Boolean> states = new ArrayList<>();
+        synchronized (this) {
+            if (dirty.isEmpty()) return;
+            if (!url.equals(ConnectionPool.get_url())) {
+                System.out.println("   [WARNING] Dropped " + dirty.cardinality() + " spot updates for a database that is no longer in use.");
+                dirty.clear();
+                return;
+            }
+            for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+                ids.add(spotIDs[i]);
+                states.add(!freeByType[types[i].ordinal()].get(i));
+            }
+            dirty.clear();
+        }
+
+        List<Integer> rows = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) rows.add(i);
+        BatchWriter.Result<Integer> result = BatchWriter.write("UPDATE spots SET isOccupied = ? WHERE spotID = ?", rows,
+                (pstmt, i) -> {
+                    pstmt.setInt(1, states.get(i) ? 1 : 0);
+                    pstmt.setString(2, ids.get(i));
+                });
+        flushedRows.addAndGet(result.getWritten());
+
+        if (!result.isFullySuccessful()) {
+            // Try again on the next tick
+            synchronized (this) {
+                for (BatchWriter.Failure<Integer> f : result.getFailures()) {
+                    dirty.set(ordinals.get(ids.get(f.getRow())));
+                }
+            }
+            System.out.println("Error flushing spot index: " + result.getFailures().get(0));
+        }
+    }
+
+    public static String get_stats() {
+        SpotIndex index = get();
+        int pending;
+        synchronized (index) {
+            pending = index.dirty.cardinality();
+        }
+        return String.format("[SPOT INDEX] spots=%d occupied=%d claims=%d releases=%d misses=%d pendingWrites=%d flushedRows=%d",
+                index.spotIDs.length, index.occupiedTotal.get(), claims.get(), releases.get(), misses.get(), pending, flushedRows.get());
+    }
+}
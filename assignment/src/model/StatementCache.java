@@ -0,0 +1,205 @@
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps the PreparedStatements of ONE pooled connection alive, keyed by their SQL text.
+// conn.prepareStatement(sql) on a pooled connection lands here, and pstmt.close() only
+// resets the statement so the next caller with the same SQL skips the parse step.
+public class StatementCache {
+
+    private static final int MAX_STATEMENTS = 128; // Per connection; least recently used is finalized first
+
+    // --- GLOBAL STATISTICS (all connections) ---
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+    private static final Map<String, LongAdder> missesBySql = new ConcurrentHashMap<>();
+
+    private final Connection raw;
+    private final LinkedHashMap<String, Entry> statements = new LinkedHashMap<>(32, 0.75f, true);
+
+    private static class Entry {
+        final PreparedStatement ps;
+        boolean inUse = false;
+        boolean evicted = false;
+
+        Entry(PreparedStatement ps) {
+            this.ps = ps;
+        }
+    }
+
+    StatementCache(Connection raw) {
+        this.raw = raw;
+    }
+
+    // A pooled connection is only used by one thread at a time, so no locking is needed here.
+    PreparedStatement prepare(String sql) throws SQLException {
+        Entry entry = statements.get(sql);
+
+        if (entry != null && !entry.inUse && !entry.ps.isClosed()) {
+            hits.incrementAndGet();
+        } else if (entry != null && entry.inUse) {
+            // Same SQL is still open further up the call stack: give out a private, uncached copy
+            record_miss(sql);
+            return raw.prepareStatement(sql);
+        } else {
+            record_miss(sql);
+            entry = new Entry(raw.prepareStatement(sql));
+            statements.put(sql, entry);
+            evict_overflow();
+        }
+
+        entry.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new CachedHandler(entry));
+    }
+
+    private void evict_overflow() {
+        Iterator<Entry> it = statements.values().iterator();
+        while (statements.size() > MAX_STATEMENTS && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            evictions.incrementAndGet();
+            if (eldest.inUse) {
+                eldest.evicted = true; // Finalized when its current user closes it
+            } else {
+                close_quietly(eldest.ps);
+            }
+        }
+    }
+
+    // Called when the pool destroys the physical connection
+    void close_all() {
+        for (Entry entry : statements.values()) {
+            close_quietly(entry.ps);
+        }
+        statements.clear();
+    }
+
+    private static void record_miss(String sql) {
+        misses.incrementAndGet();
+        missesBySql.computeIfAbsent(sql, k -> new LongAdder()).increment();
+    }
+
+    private static void close_quietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    // Turns close() into "reset for reuse" and closes any ResultSet the caller forgot about.
+    private static class CachedHandler implements InvocationHandler {
+        private final Entry entry;
+        private ResultSet openResult;
+        private boolean closed = false;
+
+        CachedHandler(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.ps.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached[" + entry.ps + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(entry.ps, args);
+                    } catch (InvocationTargetException e) {
+                        ConnectionPool.record_error(e.getCause());
+                        throw e.getCause();
+                    }
+                    if (result instanceof ResultSet) {
+                        openResult = (ResultSet) result;
+                    }
+                    return result;
+            }
+        }
+
+        private void release() throws SQLException {
+            try {
+                if (openResult != null && !openResult.isClosed()) {
+                    openResult.close();
+                }
+                if (entry.evicted) {
+                    entry.ps.close();
+                } else if (!entry.ps.isClosed()) {
+                    entry.ps.clearParameters();
+                    entry.ps.clearBatch();
+                }
+            } finally {
+                openResult = null;
+                entry.inUse = false;
+            }
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Statistics
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    public static long get_hits() {
+        return hits.get();
+    }
+
+    public static long get_misses() {
+        return misses.get();
+    }
+
+    // How many times each SQL text had to be parsed. Once warm, every entry should stay at
+    // (number of pooled connections) or below - anything higher is re-parsing on the hot path.
+    public static Map<String, Long> get_misses_by_sql() {
+        Map<String, Long> copy = new TreeMap<>();
+        missesBySql.forEach((sql, count) -> copy.put(sql, count.sum()));
+        return copy;
+    }
+
+    public static void reset_stats() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        missesBySql.clear();
+    }
+
+    public static String get_stats() {
+        long h = hits.get();
+        long m = misses.get();
+        double hitRate = (h + m == 0) ? 0.0 : 100.0 * h / (h + m);
+        return String.format("[STMT CACHE] hits=%d misses=%d (%.1f%% hit rate) evictions=%d distinctSql=%d",
+                h, m, hitRate, evictions.get(), missesBySql.size());
+    }
+}
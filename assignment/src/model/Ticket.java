@@ -6,10 +6,11 @@ import java.time.format.DateTimeFormatter;
 public class Ticket {
 
     // --- Attributes ---
-    private String ticketID;      // Format: T-PLATE-TIMESTAMP
+    private String ticketID;      // Format: T-100001 (older tickets: T-PLATE-MMddHHmm)
     private String vehiclePlate;
     private String spotID;        // for example: "F1-R1-S5"
     private String vehicleType;   // for example: "Car", "SUV"
+    private VehicleType type;     // Parsed once; null = a type the lot doesn't know
     private LocalDateTime entryTime;
 
     // --- Private Constructor (Encapsulation) ---
@@ -18,6 +19,7 @@ public class Ticket {
         this.vehiclePlate = vehiclePlate;
         this.spotID = spotID;
         this.vehicleType = vehicleType;
+        this.type = VehicleType.parse(vehicleType);
         this.entryTime = entryTime;
     }
 
@@ -25,19 +27,22 @@ public class Ticket {
     // Usage: Ticket t = Ticket.create_new("ABC1234", "F1-R1-S1", "Car");
     public static Ticket create_new(String vehiclePlate, String spotID, String vehicleType) {
         LocalDateTime now = LocalDateTime.now();
-        
-    
-        // We use a short timestamp (MMddHHmm) to keep ID readable
-        String timeStamp = now.format(DateTimeFormatter.ofPattern("MMddHHmm"));
-        String newID = "T-" + vehiclePlate + "-" + timeStamp;
+
+        // Sequence number instead of plate + minute, so two entries in the same minute never clash
+        String newID = SequenceAllocator.TICKETS.next_id();
 
         return new Ticket(newID, vehiclePlate, spotID, vehicleType, now);
     }
 
     // --- Factory Method: Load EXISTING Ticket (From Database) ---
-    public static Ticket load_existing(String ticketID, String vehiclePlate, String spotID, String vehicleType, String dateStr) {
-        LocalDateTime date = LocalDateTime.parse(dateStr);
-        return new Ticket(ticketID, vehiclePlate, spotID, vehicleType, date);
+    // entryTime as read by TimeCodec.read
+    public static Ticket load_existing(String ticketID, String vehiclePlate, String spotID, String vehicleType, LocalDateTime entryTime) {
+        return new Ticket(ticketID, vehiclePlate, spotID, vehicleType, entryTime);
+    }
+
+    // --- Same ticket, other spot (the requested spot was taken by another gate first) ---
+    Ticket with_spot(String newSpotID) {
+        return new Ticket(ticketID, vehiclePlate, newSpotID, vehicleType, entryTime);
     }
 
     // --- Getters ---
@@ -45,6 +50,7 @@ public class Ticket {
     public String getVehiclePlate() { return vehiclePlate; }
     public String getSpotID() { return spotID; }
     public String getVehicleType() { return vehicleType; }
+    public VehicleType getType() { return type; }
     public LocalDateTime getEntryTime() { return entryTime; }
 
     @Override
@@ -1,5 +1,6 @@
 package model;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -13,87 +14,168 @@ public class TicketManager {
     private static final double RATE_HANDICAPPED = 2.00; 
     private static final double RATE_RESERVED = 10.00;
 
+    // How often one entry may lose a spot to another gate in the database before giving up
+    private static final int MAX_SPOT_ATTEMPTS = 10;
+
+    private enum EntryResult { ISSUED, SPOT_TAKEN, ALREADY_INSIDE }
+
     // =======================================================================================
     // 1. ENTRY AND EXIT LOGIC
     // =======================================================================================
 
     // --- 1: Issue a Ticket (Entry) ---
+    // Atomic: the spot claim, the ticket and the entry log row are ONE transaction, so two gates can
+    // never get the same spot and a crash never leaves a ticket on a free spot. If "spotID" is taken
+    // by the time we get there, the next free spot of the same type is used instead.
     public static Ticket issue_ticket(String plate, String spotID, String type) {
         
         // 1. Check if they are barred/have fines!
         if (FineManager.is_vehicle_barred(plate)) {
+            BarredPlateCache.Summary owed = BarredPlateCache.get_summary(plate);
+            System.out.println("   [ALERT] GATE BLOCKED! " + plate + " owes RM " + (owed == null ? 0.0 : owed.latestAmount));
             System.out.println("   [ALERT] Entry Denied: Vehicle " + plate + " has outstanding fines!");
             // return null
         }
 
-        // 2. Check if vehicle is already inside
+        // 2. Lot full for this type? Answered from the occupancy counters, before any SQLite work
+        ParkingSpot.SpotType spotType = SpotIndex.type_of(spotID);
+        if (spotType == null) {
+            System.out.println("   [ERROR] Spot " + spotID + " does not exist.");
+            return null;
+        }
+        if (SpotIndex.is_full(spotType)) {
+            System.out.println("   [ERROR] No free " + spotType + " spot for " + plate + ". Lot full.");
+            return null;
+        }
+
+        // 3. Check if vehicle is already inside
         Ticket existing = DatabaseManager.get_active_ticket(plate);
         if (existing != null) {
             System.out.println("   [ERROR] Vehicle " + plate + " is already inside.");
             return existing;
         }
 
-        // 3. Create and Save
+        // 4. Claim a spot and save, retrying with the next candidate when another gate wins
+
         Ticket newTicket = Ticket.create_new(plate, spotID, type);
-        DatabaseManager.save_ticket(newTicket);
-        DatabaseManager.update_spot_status(spotID, true); // Mark spot as occupied
-        System.out.println("   [SUCCESS] Ticket generated: " + newTicket.getTicketID());
-        return newTicket;
+        String candidate = spotID;
+        int conflicts = 0;
+        while (conflicts < MAX_SPOT_ATTEMPTS) {
+            // a) Compare-and-set in memory first: losing here costs no database round-trip
+            SpotIndex.Claim claim = SpotIndex.claim_in_memory(candidate);
+            if (claim == SpotIndex.Claim.TAKEN) {
+                candidate = SpotIndex.find_free(spotType);
+                if (candidate == null) break;
+                continue;
+            }
+
+            // b) Compare-and-set in the database, together with the ticket and the log row
+            Ticket attempt = newTicket.with_spot(candidate);
+            boolean unflushed = claim == SpotIndex.Claim.CLAIMED_UNFLUSHED;
+            EntryResult result;
+            try {
+                result = save_entry(attempt, unflushed);
+                if (result == EntryResult.SPOT_TAKEN) {
+                    // The table may only be behind on a release: write pending changes and try once more
+                    SpotIndex.flush();
+                    result = save_entry(attempt, false);
+                }
+            } catch (SQLException e) {
+                SpotIndex.release_in_memory(candidate, unflushed); // The table may still say occupied
+                System.out.println("Error issuing ticket: " + e.getMessage());
+                return null;
+            }
+
+            switch (result) {
+                case ISSUED:
+                    PlateSearchIndex.add(plate);
+                    ChangeBus.publish(ChangeBus.Event.ticket_issued(attempt));
+                    ChangeBus.publish(ChangeBus.Event.spot_changed(candidate, plate));
+                    System.out.println("   [SUCCESS] Ticket generated: " + attempt.getTicketID());
+                    return attempt;
+                case ALREADY_INSIDE:
+                    // Another gate let the same plate in a moment ago
+                    SpotIndex.release_in_memory(candidate, unflushed);
+                    System.out.println("   [ERROR] Vehicle " + plate + " is already inside.");
+                    return DatabaseManager.get_active_ticket(plate);
+                default:
+                    // Really occupied (e.g. by another process): the index now agrees, move on
+                    conflicts++;
+                    candidate = SpotIndex.find_free(spotType);
+            }
+            if (candidate == null) break;
+        }
+
+        System.out.println("   [ERROR] No free " + spotType + " spot for " + plate + ".");
+        return null;
+    }
+
+    private static EntryResult save_entry(Ticket t, boolean force) throws SQLException {
+        return DatabaseManager.in_transaction(conn -> {
+            // The ticket goes first: it takes SQLite's write lock, so the plate check cannot race
+            if (!DatabaseManager.insert_ticket_if_absent(conn, t)) return EntryResult.ALREADY_INSIDE;
+            if (!DatabaseManager.claim_spot(conn, t.getSpotID(), force)) {
+                conn.rollback(); // Undo the ticket
+                return EntryResult.SPOT_TAKEN;
+            }
+            DatabaseManager.save_vehicle_log(conn, new VehicleLog(t.getTicketID(), t.getVehiclePlate(),
+                    t.getSpotID(), t.getVehicleType(), t.getEntryTime(), null));
+            return EntryResult.ISSUED;
+        });
     }
 
     // --- 2: Calculate Duration (Time) ---
     public static long calculate_duration(String plate) {
         Ticket t = DatabaseManager.get_active_ticket(plate);
         if (t == null) return 0;
+        return billable_hours(t.getEntryTime(), LocalDateTime.now());
+    }
 
-        LocalDateTime entry = t.getEntryTime();
-        LocalDateTime exit = LocalDateTime.now();
-
-        // Rule: Rounded up to the nearest hour (Ceiling rounding)
+    // Rule: Rounded up to the nearest hour (Ceiling rounding), minimum 1 hour charge
+    static long billable_hours(LocalDateTime entry, LocalDateTime exit) {
         long minutes = ChronoUnit.MINUTES.between(entry, exit);
         long hours = (long) Math.ceil(minutes / 60.0);
-        
-        if (hours <= 0) hours = 1; // Minimum 1 hour charge
-        return hours;
+        return Math.max(hours, 1);
     }
 
-    // --- 3: Calculate Total Fee ---
+    // --- 3: Quote the Exit (ONE query: ticket + unpaid fines) ---
+    // Show this to the driver, then pass the same quote to process_successful_payment.
+    public static ExitQuote get_exit_quote(String plate) {
+        ExitQuote quote = DatabaseManager.get_exit_quote(plate);
+        if (quote == null) {
+            System.out.println("   [ERROR] No active ticket found for " + plate);
+        }
+        return quote;
+    }
+
+    // --- 4: Calculate Total Fee ---
     public static double calculate_total_fee(String plate) {
-        
-        // 1. Get the Ticket Details
-        Ticket t = DatabaseManager.get_active_ticket(plate);
-        if (t == null) {
+        ExitQuote quote = DatabaseManager.get_exit_quote(plate);
+        if (quote == null) {
             System.out.println("   [ERROR] Cannot calculate fee. No ticket found.");
             return 0.0;
         }
-
-    // 2. Calculate Duration
-    long hours = calculate_duration(plate);
-    double hourlyRate = get_rate_for_type(t.getVehicleType()); // helper method to get rate
-    double parkingFee = hours * hourlyRate;
-
-    // 5. Check for Unpaid Fines
-    Fine unpaidFine = FineManager.get_fine(plate, false);
-    double fineAmount = (unpaidFine != null) ? unpaidFine.getAmount() : 0.0;
-    
-    // 6. Return Total
-    return parkingFee + fineAmount;
+        return quote.getTotal();
     }
 
-    // --- FACADE METHOD 4: Process Payment & Exit (The "Master" Function) ---
+    // --- FACADE METHOD 5: Process Payment & Exit (The "Master" Function) ---
     // CALL THIS WHEN THE USER CLICKS "PAY"
-    public static void process_successful_payment(String plate, String paymentMethod) {
-        
-        // 1. Pay any outstanding fines first
-        Fine unpaidFine = FineManager.get_fine(plate, false);
-        if (unpaidFine != null) {
-            System.out.println("   [PAYMENT] Clearing outstanding fine of RM " + unpaidFine.getAmount());
-            FineManager.process_payment(plate, paymentMethod); 
-        }
+    public static boolean process_successful_payment(String plate, String paymentMethod) {
+        ExitQuote quote = get_exit_quote(plate);
+        return quote != null && process_successful_payment(quote, paymentMethod);
+    }
 
-        // 2. Close the parking ticket
-        close_ticket(plate);
-        System.out.println("   [COMPLETE] Transaction finished. Have a nice day!");
+    // Pays exactly what the quote says; nothing is looked up again.
+    // The whole exit is ONE transaction (see checkout): it either happens completely or not at all.
+    public static boolean process_successful_payment(ExitQuote quote, String paymentMethod) {
+        if (!quote.getFines().isEmpty()) {
+            System.out.println("   [PAYMENT] Clearing outstanding fines of RM " + quote.getFineTotal());
+        }
+        boolean success = checkout(quote.getTicket(), quote.getExitTime(), quote, paymentMethod);
+        if (success) {
+            System.out.println("   [COMPLETE] Transaction finished. Have a nice day!");
+        }
+        return success;
     }
 
     // --- internal helper: Closwe Ticket & Log Exit ---
@@ -105,9 +187,16 @@ public class TicketManager {
             return;
         }
 
-    
         // exit time is NOW
-        LocalDateTime exit = LocalDateTime.now();
+        checkout(t, LocalDateTime.now(), null, null);
+    }
+
+    // The exit pipeline, in one transaction:
+    //   delete the ticket -> settle the quoted fines -> record the payment -> log the exit -> free the spot
+    // quote == null closes the ticket without taking a payment (close_ticket).
+    // Returns false, with nothing written, if another lane already closed the ticket or the quoted
+    // fines were paid/revoked in the meantime.
+    private static boolean checkout(Ticket t, LocalDateTime exit, ExitQuote quote, String paymentMethod) {
 
         // save history log (plate, type, entry, exit)
         VehicleLog log = new VehicleLog(
@@ -118,16 +207,46 @@ public class TicketManager {
                 t.getEntryTime(),
                 exit
         );
-        DatabaseManager.save_vehicle_log(log);
 
-        // keep your existing behavior: remove active ticket after exit
-        boolean success = DatabaseManager.delete_ticket(plate);
+        boolean success;
+        try {
+            success = DatabaseManager.in_transaction(conn -> {
+                // Goes first: takes SQLite's write lock, so two lanes can't both check out this ticket
+                if (!DatabaseManager.delete_ticket(conn, t.getTicketID())) return false;
+                if (quote != null) {
+                    int settled = FineManager.settle_fines(conn, quote.getFines(), paymentMethod, exit);
+                    if (settled != quote.getFines().size()) {
+                        throw new SQLException("The fines changed after the quote was made. Please quote again.");
+                    }
+                    PaymentManager.record_payment(conn, quote, paymentMethod);
+                }
+                DatabaseManager.save_vehicle_log(conn, log);
+                DatabaseManager.release_spot(conn, t.getSpotID());
+                return true;
+            });
+        } catch (SQLException e) {
+            System.out.println("Error closing ticket: " + e.getMessage());
+            success = false;
+        }
 
         if (success) {
+            SpotIndex.release_in_memory(t.getSpotID());
+            if (quote != null && !quote.getFines().isEmpty()) {
+                for (Fine f : quote.getFines()) {
+                    FineManager.forget_details(f.getFineID());
+                    ChangeBus.publish(ChangeBus.Event.fine_paid(new Fine(f.getFineID(), f.getVehiclePlate(), f.getAmount(),
+                            f.getReason(), f.getFineSchemeType(), true, f.getIssueDate(), exit, paymentMethod)));
+                }
+                BarredPlateCache.refresh(t.getVehiclePlate());
+            }
+            ChangeBus.publish(ChangeBus.Event.ticket_closed(t));
+            ChangeBus.publish(ChangeBus.Event.spot_changed(t.getSpotID(), null));
+            System.out.println("Log saved for: " + log.getVehiclePlate());
             System.out.println("   [INFO] Gate Open + Spot " + t.getSpotID() + ". is now free.");
         } else {
             System.out.println("   [ERROR] Could not close ticket. Database error.");
         }
+        return success;
     }
 
     // Returns a list of ALL vehicles currently inside the parking lot
@@ -135,25 +254,54 @@ public class TicketManager {
         return DatabaseManager.get_all_tickets();
     }
 
-    // Returns Total count of cars currently parked
+    // Returns Total count of cars currently parked (occupied spots, from SpotIndex's counters)
     public static int get_current_parked_count() {
-        return get_all_active_tickets().size();
+        return SpotIndex.get_occupied_count();
     }
 
     // Filter tickets by type
     public static List<Ticket> filter_tickets_by_type(String type) {
+        VehicleType wanted = VehicleType.parse(type);
         return get_all_active_tickets().stream()
-                .filter(t -> t.getVehicleType().equalsIgnoreCase(type))
+                .filter(t -> (wanted != null) ? t.getType() == wanted : t.getVehicleType().equalsIgnoreCase(type))
                 .collect(Collectors.toList());
     }
 
-    // Search for specific ticket by Plate or Ticket ID
+    // Search for specific ticket by Plate or Ticket ID.
+    // No exact match: the plate may have been typed or read wrong, so try the active plates one character off
+    // (every spelling of each, so "QZ778" still finds a car that came in as "QZ-778").
     public static Ticket search_ticket(String query) {
-        return DatabaseManager.find_ticket_by_id_or_plate(query);
+        Ticket exact = DatabaseManager.find_ticket_by_id_or_plate(query);
+        if (exact != null) return exact;
+
+        Ticket match = null;
+        for (String plate : PlateSearchIndex.fuzzy(query, 20)) {
+            Ticket t = DatabaseManager.get_active_ticket(plate);
+            if (t == null) continue;
+            if (match != null) {
+                System.out.println("   [INFO] " + query + " is close to more than one parked vehicle. Please check the plate.");
+                return null;
+            }
+            match = t;
+        }
+        if (match != null) {
+            System.out.println("   [INFO] No ticket for " + query + ". Closest match: " + match.getVehiclePlate());
+        }
+        return match;
     }
 
     // --- Helper for Rates ---
-    private static double get_rate_for_type(String type) {
+    static double get_rate_for_type(VehicleType type) {
+        switch (type) {
+            case MOTORCYCLE: return RATE_COMPACT;
+            case HANDICAPPED: return RATE_HANDICAPPED;
+            default: return RATE_REGULAR; // Car, SUV, Truck
+        }
+    }
+
+    static double get_rate_for_type(String type) {
+        VehicleType known = VehicleType.parse(type);
+        if (known != null) return get_rate_for_type(known);
         type = type.toLowerCase();
         if (type.contains("motorcycle") || type.contains("compact")) return RATE_COMPACT;
         if (type.contains("suv") || type.contains("truck") || type.contains("car")) return RATE_REGULAR;
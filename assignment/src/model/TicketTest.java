@@ -1,11 +1,16 @@
 package model;
 
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class TicketTest {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         System.out.println("=== SYSTEM STARTUP ===");
         
         // 1. Initialize Tables
         DatabaseManager.initialize_ticket_table(); 
+        ParkingSpotManager.reset_and_initialize_lot(); // Tickets can only be issued for spots that exist
 
         System.out.println("\n=== TEST 1: VEHICLE ENTRY ===");
         // Simulate a user entering: Plate JVA123, Spot F1-R1-S1, Type Car
@@ -38,5 +43,255 @@ public class TicketTest {
         if (check == null) {
             System.out.println("Verification: Ticket successfully removed from Active list.");
         }
+
+        System.out.println("\n=== TEST 6: CONCURRENT ENTRIES ===");
+        // 8 gates, all asking for the same spot: every car must still end up on its own spot
+        int gates = 8;
+        int carsPerGate = 20;
+        int regularFree = SpotIndex.get_free_count(ParkingSpot.SpotType.REGULAR);
+        Set<String> spots = ConcurrentHashMap.newKeySet();
+        Thread[] workers = new Thread[gates];
+        for (int g = 0; g < gates; g++) {
+            int gate = g;
+            workers[g] = new Thread(() -> {
+                for (int n = 0; n < carsPerGate; n++) {
+                    Ticket t = TicketManager.issue_ticket(String.format("RACE%d%03d", gate, n), "F2-R1-S3", "Car");
+                    if (t != null && !spots.add(t.getSpotID())) {
+                        System.out.println("   DUPLICATE SPOT " + t.getSpotID());
+                    }
+                }
+            });
+            workers[g].start();
+        }
+        for (Thread t : workers) t.join();
+
+        List<Ticket> active = TicketManager.get_all_active_tickets();
+        check("Every free REGULAR spot was handed out once", spots.size() == Math.min(regularFree, gates * carsPerGate));
+        check("One ticket per spot", active.size() == spots.size());
+        SpotIndex.flush();
+        check("Spot table agrees", count_occupied() == spots.size());
+
+        for (Ticket t : active) TicketManager.close_ticket(t.getVehiclePlate());
+        check("All spots free again", count_occupied() == 0);
+
+        System.out.println("\n=== TEST 7: EXIT QUOTE & PAYMENT ===");
+        TicketManager.issue_ticket("QTE777", "F2-R1-S4", "Car");
+        FineManager.issue_fine("QTE777", "Overstayed", "Fixed", 0);
+        ExitQuote quote = TicketManager.get_exit_quote("QTE777");
+        System.out.println(quote);
+        check("Quote = 1 hour parking + fine", quote.getHours() == 1 && quote.getTotal() == 5.00 + 50.00);
+        check("calculate_total_fee agrees", TicketManager.calculate_total_fee("QTE777") == quote.getTotal());
+        TicketManager.process_successful_payment(quote, "Card");
+        check("Fine paid", FineManager.get_fine("QTE777", false) == null);
+        check("Ticket closed", DatabaseManager.get_active_ticket("QTE777") == null);
+        check("Payment recorded", count("SELECT COUNT(*) FROM payments WHERE ticketID = '" + quote.getTicket().getTicketID() + "'") == 1);
+
+        System.out.println("\n=== TEST 8: STALE QUOTE LEAVES NOTHING HALF-DONE ===");
+        TicketManager.issue_ticket("QTE888", "F2-R1-S5", "Car");
+        FineManager.issue_fine("QTE888", "Overstayed", "Fixed", 0);
+        ExitQuote stale = TicketManager.get_exit_quote("QTE888");
+        FineManager.process_payment("QTE888", "Cash"); // Paid at the office after the quote was shown
+        check("Stale quote is refused", !TicketManager.process_successful_payment(stale, "Card"));
+        check("Ticket still active", DatabaseManager.get_active_ticket("QTE888") != null);
+        check("No payment written", count("SELECT COUNT(*) FROM payments WHERE vehiclePlate = 'QTE888'") == 0);
+        check("Fresh quote goes through", TicketManager.process_successful_payment("QTE888", "Card"));
+        check("Spot released", !SpotIndex.is_occupied("F2-R1-S5") && count_occupied() == 0);
+
+        System.out.println("\n=== TEST 9: BARRED-PLATE CACHE FOLLOWS EVERY WRITE ===");
+        FineManager.issue_fine("BAR999", "Overstayed", "Fixed", 0);
+        check("Barred after a fine", FineManager.is_vehicle_barred("BAR999"));
+        FineManager.process_payment("BAR999", "Cash");
+        check("Clear after paying at the office", !FineManager.is_vehicle_barred("BAR999"));
+        FineManager.issue_fine("BAR999", "Overstayed", "Fixed", 0);
+        FineManager.revoke_fine(FineManager.get_fine("BAR999", false).getFineID());
+        check("Clear after a revoke", !FineManager.is_vehicle_barred("BAR999"));
+        TicketManager.issue_ticket("BAR999", "F2-R1-S4", "Car");
+        FineManager.issue_fine("BAR999", "Overstayed", "Fixed", 0);
+        TicketManager.process_successful_payment("BAR999", "Card");
+        check("Clear after paying at the exit", !FineManager.is_vehicle_barred("BAR999"));
+        check("Cache agrees with the table", BarredPlateCache.check_staleness() == 0);
+        System.out.println(BarredPlateCache.get_stats());
+
+        System.out.println("\n=== TEST 10: PLATE SEARCH ===");
+        TicketManager.issue_ticket("SRC4821", "F2-R1-S5", "Car");
+        check("Prefix finds the plate", PlateSearchIndex.prefix("src4", 10).contains("SRC4821"));
+        check("Substring finds the plate", PlateSearchIndex.substring("C48", 10).contains("SRC4821"));
+        check("Fuzzy finds an OCR misread (8 -> B)", PlateSearchIndex.fuzzy("SRC4B21", 10).contains("SRC4821"));
+        TicketManager.issue_ticket("WB11111", "F1-R1-S3", "Car");
+        TicketManager.close_ticket("WB11111");
+        check("Fuzzy counts a repeated trigram once", PlateSearchIndex.fuzzy("WA11111", 10).contains("WB11111"));
+        Ticket misread = TicketManager.search_ticket("SRC4B21");
+        check("search_ticket falls back to the parked plate", misread != null && misread.getVehiclePlate().equals("SRC4821"));
+        check("search_ticket still finds ticket IDs", TicketManager.search_ticket(misread.getTicketID()) != null);
+        TicketManager.close_ticket("SRC4821");
+
+        System.out.println("\n=== TEST 11: CHANGE EVENTS ===");
+        java.util.List<ChangeBus.Event> seen = new java.util.ArrayList<>();
+        ChangeBus.Listener recorder = seen::add;
+        ChangeBus.subscribe(recorder);
+        Ticket evt = TicketManager.issue_ticket("EVT1001", "F2-R1-S5", "Car");
+        TicketManager.close_ticket("EVT1001");
+        ChangeBus.unsubscribe(recorder);
+        check("Entry and exit publish ticket and spot events", seen.size() == 4
+                && seen.get(0).kind == ChangeBus.Kind.TICKET_ISSUED && seen.get(0).key.equals(evt.getTicketID())
+                && seen.get(1).kind == ChangeBus.Kind.SPOT_CHANGED && "EVT1001".equals(seen.get(1).plate)
+                && seen.get(2).kind == ChangeBus.Kind.TICKET_CLOSED
+                && seen.get(3).kind == ChangeBus.Kind.SPOT_CHANGED && seen.get(3).plate == null);
+
+        System.out.println("\n=== TEST 12: OCCUPANCY COUNTERS ===");
+        int parkedBefore = TicketManager.get_current_parked_count();
+        int handicappedBefore = SpotIndex.get_occupied_count(ParkingSpot.SpotType.HANDICAPPED);
+        TicketManager.issue_ticket("OCC1001", "F1-R1-S3", "Handicapped");
+        check("Entry counts the spot", TicketManager.get_current_parked_count() == parkedBefore + 1
+                && SpotIndex.get_occupied_count(ParkingSpot.SpotType.HANDICAPPED) == handicappedBefore + 1);
+        int byFloor = 0;
+        for (int floor : SpotIndex.get_floors()) byFloor += SpotIndex.get_occupied_count_on_floor(floor);
+        SpotIndex.flush();
+        check("Counters agree with the spots table", byFloor == TicketManager.get_current_parked_count()
+                && count_occupied() == TicketManager.get_current_parked_count());
+        TicketManager.close_ticket("OCC1001");
+        check("Exit releases the count", TicketManager.get_current_parked_count() == parkedBefore);
+
+        System.out.println("\n=== TEST 13: REVENUE ROLLUPS ===");
+        java.time.LocalDate today = java.time.LocalDate.now();
+        RevenueRollup.Report dayBefore = RevenueRollup.day(today);
+        TicketManager.issue_ticket("REV1001", "F2-R1-S5", "Car");
+        FineManager.issue_fine("REV1001", "Overstayed", "Fixed", 0);
+        ExitQuote revQuote = TicketManager.get_exit_quote("REV1001");
+        TicketManager.process_successful_payment(revQuote, "Card");
+        RevenueRollup.Report dayAfter = RevenueRollup.day(today);
+        check("Exit payment lands in today's rollup", Math.abs(dayAfter.total - dayBefore.total - revQuote.getTotal()) < 0.005
+                && dayAfter.count(RevenueRollup.Source.PARKING) == dayBefore.count(RevenueRollup.Source.PARKING) + 1
+                && dayAfter.count(RevenueRollup.Source.FINE) == dayBefore.count(RevenueRollup.Source.FINE) + 1);
+        RevenueRollup.Report incremental = RevenueRollup.report(java.time.LocalDate.of(2000, 1, 1), today);
+        RevenueRollup.rebuild();
+        RevenueRollup.Report rebuilt = RevenueRollup.report(java.time.LocalDate.of(2000, 1, 1), today);
+        check("Incremental rollups match a rebuild", incremental.total == rebuilt.total && incremental.payments == rebuilt.payments
+                && incremental.byScheme.equals(rebuilt.byScheme));
+        check("A long range is a few index ranges",
+                RevenueRollup.split(java.time.LocalDate.of(2015, 3, 17), java.time.LocalDate.of(2026, 2, 11)).size() == 5);
+
+        System.out.println("\n=== TEST 14: STREAMING THE VEHICLE HISTORY ===");
+        java.time.LocalDateTime testStart = java.time.LocalDateTime.now().minusMinutes(1);
+        TicketManager.issue_ticket("LOG1001", "F2-R2-S5", "Car");
+        TicketManager.close_ticket("LOG1001");
+        TicketManager.issue_ticket("LOG1001", "F2-R2-S5", "Car");
+        TicketManager.close_ticket("LOG1001");
+        List<VehicleLog> streamed = new java.util.ArrayList<>();
+        int handed = VehicleLogManager.stream_logs(new VehicleLogManager.Filter().plate("LOG1001").type("car")
+                .entered_between(testStart, null), streamed::add);
+        check("Filter finds both visits", handed == 2 && streamed.size() == 2
+                && !streamed.get(0).getEntryTime().isAfter(streamed.get(1).getEntryTime()));
+        check("Type is part of the filter", VehicleLogManager.stream_logs(
+                new VehicleLogManager.Filter().plate("LOG1001").type("Motorcycle"), log -> true) == 0);
+        check("Time range is part of the filter", VehicleLogManager.stream_logs(
+                new VehicleLogManager.Filter().plate("LOG1001").entered_between(null, testStart), log -> true) == 0);
+        check("Sink can stop the stream", VehicleLogManager.stream_logs(
+                new VehicleLogManager.Filter().newest_first(), log -> false) == 1);
+
+        System.out.println("\n=== TEST 15: ARCHIVED VEHICLE LOGS ===");
+        java.time.LocalDateTime longAgo = java.time.LocalDateTime.now().minusDays(400).withNano(0);
+        DatabaseManager.save_vehicle_logs(List.of(
+                new VehicleLog("ARC-T1", "ARC1001", "F1-R1-S1", "Car", longAgo, longAgo.plusHours(2)),
+                new VehicleLog("ARC-T2", "ARC1001", "F1-R1-S2", "Car", longAgo.plusDays(1), longAgo.plusDays(1).plusHours(3))));
+        TicketManager.issue_ticket("ARC1001", "F2-R2-S5", "Car");
+        TicketManager.close_ticket("ARC1001");
+        long archivedBefore = LogArchive.get_archived_count();
+        check("Old closed logs leave the live table", LogArchive.archive_older_than(java.time.Duration.ofDays(365)) >= 2
+                && count("SELECT COUNT(*) FROM vehicle_logs WHERE vehiclePlate = 'ARC1001'") == 1
+                && LogArchive.get_archived_count() >= archivedBefore + 2);
+        List<VehicleLog> history = VehicleLogManager.get_logs_by_plate("ARC1001");
+        check("History merges archived and live visits, newest first", history.size() == 3
+                && history.get(1).getTicketID().equals("ARC-T2") && history.get(2).getTicketID().equals("ARC-T1")
+                && history.get(2).getEntryTime().equals(longAgo) && history.get(2).getExitTime().equals(longAgo.plusHours(2)));
+        VehicleLog archived = VehicleLogManager.get_log_by_ticket("ARC-T1");
+        check("Archived log found by ticket", archived != null && archived.getSpotID().equals("F1-R1-S1"));
+        LogArchive.reload();
+        check("Archive survives a reload", VehicleLogManager.stream_logs(
+                new VehicleLogManager.Filter().plate("ARC1001").entered_between(null, longAgo.plusDays(2)), log -> true) == 2);
+
+        System.out.println("\n=== TEST 16: JOURNALED VEHICLE LOGS ===");
+        int appliedBefore = count("SELECT appliedSeq FROM log_journal");
+        boolean acked = VehicleLogManager.log_vehicle_entry("JRN-T1", "JRN1001", "F3-R1-S1", "Car")
+                & VehicleLogManager.update_vehicle_exit("JRN-T1");
+        DatabaseManager.save_vehicle_log(new VehicleLog("JRN-T2", "JRN1001", "F3-R1-S2", "Car", longAgo, null));
+        VehicleLog journaled = VehicleLogManager.get_log_by_ticket("JRN-T1");
+        check("Reads see journaled writes", acked && journaled != null && journaled.getExitTime() != null
+                && VehicleLogManager.get_logs_by_plate("JRN1001").size() == 2);
+        check("Each record written once, through the journal", count("SELECT appliedSeq FROM log_journal") == appliedBefore + 3
+                && count("SELECT COUNT(*) FROM vehicle_logs WHERE ticketID LIKE 'JRN-T%'") == 2);
+
+        System.out.println("\n=== TEST 17: FAILED ENTRY ON A SPOT WITH A PENDING RELEASE ===");
+        String lostSpot = "F2-R2-S4";
+        SpotIndex.set_occupied(lostSpot, true);
+        SpotIndex.flush();                          // The table says occupied...
+        SpotIndex.set_occupied(lostSpot, false);    // ...and the release is still waiting to be written
+        execute("CREATE TRIGGER fail_entry BEFORE INSERT ON vehicle_logs WHEN NEW.vehiclePlate = 'LOST1001' "
+                + "BEGIN SELECT RAISE(ABORT, 'entry refused for the test'); END");
+        Ticket refused = TicketManager.issue_ticket("LOST1001", lostSpot, "Car");
+        execute("DROP TRIGGER fail_entry");
+        SpotIndex.flush();
+        check("Failed entry hands the spot back to the table", refused == null
+                && count("SELECT isOccupied FROM spots WHERE spotID = '" + lostSpot + "'") == 0);
+        check("Rolled-back plate is not searchable", PlateSearchIndex.prefix("LOST1001", 10).isEmpty());
+        Ticket retried = TicketManager.issue_ticket("LOST1001", lostSpot, "Car");
+        check("Spot can be issued again", retried != null && retried.getSpotID().equals(lostSpot));
+        TicketManager.close_ticket("LOST1001");
+
+        System.out.println("\n=== TEST 18: ONE CAR, SEVERAL PLATE SPELLINGS ===");
+        FineManager.save_fine(Fine.create_new("QZ777", 50.0, "Overstayed", "Fixed"));
+        FineManager.save_fine(Fine.create_new("QZ-777", 50.0, "Overstayed", "Fixed"));
+        check("Plate filter finds every spelling", FineManager.count_fines("QZ") == 2 && FineManager.count_fines("Z77") == 2);
+        java.util.List<Fine> many = new java.util.ArrayList<>();
+        for (int n = 0; n < 600; n++) many.add(Fine.create_new("QY-9" + String.format("%03d", n), 50.0, "Overstayed", "Fixed"));
+        FineManager.save_fines(many);
+        check("Too many plates to list: the LIKE fallback matches them the same way", FineManager.count_fines("QY9") == 600);
+        TicketManager.issue_ticket("QZ778", "F2-R1-S5", "Car");
+        TicketManager.close_ticket("QZ778");         // The index now knows the car as "QZ778"...
+        TicketManager.issue_ticket("QZ-778", "F2-R1-S5", "Car"); // ...and it comes back spelled differently
+        Ticket spelled = TicketManager.search_ticket("QZ778");
+        check("search_ticket finds the car under its other spelling", spelled != null && spelled.getVehiclePlate().equals("QZ-778"));
+        TicketManager.close_ticket("QZ-778");
+
+        System.out.println("\n=== TEST 19: FINE EVENTS TELL NEW FROM EDITED ===");
+        java.util.List<ChangeBus.Event> fineEvents = new java.util.ArrayList<>();
+        ChangeBus.Listener fineRecorder = fineEvents::add;
+        ChangeBus.subscribe(fineRecorder);
+        Fine edited = Fine.create_new("EDT1001", 50.0, "Overstayed", "Fixed");
+        FineManager.save_fine(edited);
+        FineManager.save_fine(edited);      // Saved again: an edit, not a new fine
+        FineManager.revoke_fine(edited.getFineID());
+        ChangeBus.unsubscribe(fineRecorder);
+        check("Issued, then updated, then revoked", fineEvents.size() == 3
+                && fineEvents.get(0).kind == ChangeBus.Kind.FINE_ISSUED
+                && fineEvents.get(1).kind == ChangeBus.Kind.FINE_UPDATED
+                && fineEvents.get(2).kind == ChangeBus.Kind.FINE_REVOKED);
+    }
+
+    private static void execute(String sql) {
+        try (java.sql.Connection conn = DatabaseManager.connect();
+             java.sql.Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        } catch (java.sql.SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static int count_occupied() {
+        return count("SELECT COUNT(*) FROM spots WHERE isOccupied = 1");
+    }
+
+    private static int count(String sql) {
+        try (java.sql.Connection conn = DatabaseManager.connect();
+             java.sql.PreparedStatement pstmt = conn.prepareStatement(sql);
+             java.sql.ResultSet rs = pstmt.executeQuery()) {
+            return rs.getInt(1);
+        } catch (java.sql.SQLException e) {
+            return -1;
+        }
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.printf("[%s] %s\n", passed ? "PASS" : "FAIL", name);
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package model;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+// The one place a point in time is turned into a database value and back.
+// Every time column (entryTime, exitTime, issueDate, paymentDate) is an INTEGER holding epoch
+// milliseconds of the local wall-clock time in the system zone. Numbers sort, compare and
+// range-scan in index order, and binding one costs no formatting or parsing.
+// Anything shown to a person is formatted from the LocalDateTime (see DatabaseManager.formatDateTime).
+public class TimeCodec {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    public static long to_millis(LocalDateTime time) {
+        return time.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    public static LocalDateTime from_millis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+
+    // Binds "time" to placeholder "index"; null stays NULL
+    public static void bind(PreparedStatement pstmt, int index, LocalDateTime time) throws SQLException {
+        if (time == null) pstmt.setNull(index, Types.INTEGER);
+        else pstmt.setLong(index, to_millis(time));
+    }
+
+    // The time in "column" of the current row; null if the column is NULL
+    public static LocalDateTime read(ResultSet rs, String column) throws SQLException {
+        long millis = rs.getLong(column);
+        return rs.wasNull() ? null : from_millis(millis);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Text written before migration 9 (see SchemaMigrator)
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // Formats the old code wrote: LocalDateTime.toString() (fines, tickets, payments, VehicleLogTestDataGenerator),
+    // formatDateTime (vehicle_logs) and the "yyyy-MM-dd HH:mm:ss" the log reader used to expect
+    private static final DateTimeFormatter[] TEXT_FORMATS = {
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+        DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm a", Locale.ENGLISH),
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+    };
+
+    // Epoch milliseconds of a timestamp stored as text; null if it is in none of the known formats
+    static Long parse_text(String text) {
+        if (text == null) return null;
+        String s = text.trim().toUpperCase(Locale.ENGLISH); // "pm" from some locales
+        for (DateTimeFormatter format : TEXT_FORMATS) {
+            try {
+                return to_millis(LocalDateTime.parse(s, format));
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        return null;
+    }
+}
@@ -2,106 +2,229 @@ package model;
 
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 
 public class VehicleLogManager {
 
     // --- 1. LOG ENTRY (The "Check-In" Process) ---
+    // Returns as soon as the entry is journaled; the row is written with the next group commit (see LogJournal)
     public static boolean log_vehicle_entry(String ticketID, String plate, String spotID, String type) {
-        String sql = "INSERT INTO vehicle_logs(ticketID, vehiclePlate, spotID, vehicleType, entryTime) VALUES(?,?,?,?,?)";
-        
-        try (Connection conn = DatabaseManager.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, ticketID);
-            pstmt.setString(2, plate);
-            pstmt.setString(3, spotID);
-            pstmt.setString(4, type);
-            // Use standard format for DB consistency [cite: 2026-02-14]
-            pstmt.setString(5, DatabaseManager.formatDateTime(LocalDateTime.now()));
-
-            pstmt.executeUpdate();
-            System.out.println("ENTRY LOGGED: " + plate + " at " + spotID);
-            return true;
-
-        } catch (SQLException e) {
-            System.err.println("Error logging entry: " + e.getMessage());
+        if (!LogJournal.save(new VehicleLog(ticketID, plate, spotID, type, LocalDateTime.now(), null))) {
             return false;
         }
+        System.out.println("ENTRY LOGGED: " + plate + " at " + spotID);
+        return true;
     }
 
     // --- 2. LOG EXIT (The "Check-Out" Process) ---
+    // We only update the exitTime. The entryTime stays the same.
+    // Journaled like the entry, so true means "recorded": a ticket with no log row is reported when the
+    // batch is written. Without a journal (in-memory database) it is written now and true means a row was updated.
     public static boolean update_vehicle_exit(String ticketID) {
-        // We only update the exitTime. The entryTime stays the same.
-        String sql = "UPDATE vehicle_logs SET exitTime = ? WHERE ticketID = ?";
-
-        try (Connection conn = DatabaseManager.connect();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            String timeNow = DatabaseManager.formatDateTime(LocalDateTime.now());
-            pstmt.setString(1, timeNow);
-            pstmt.setString(2, ticketID);
-
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0; // Returns true if a record was actually updated
-
-        } catch (SQLException e) {
-            System.err.println("Error updating exit log: " + e.getMessage());
-            return false;
-        }
+        return LogJournal.exit(ticketID, LocalDateTime.now());
     }
 
     // --- 3. FETCH ACTIVE VEHICLES (For your "Active Vehicles" Tab) ---
     public static List<VehicleLog> get_active_logs() {
         // "Active" means exitTime is NULL
         String sql = "SELECT * FROM vehicle_logs WHERE exitTime IS NULL";
+        LogJournal.flush();
         return fetch_logs(sql);
     }
 
     // --- 4. FETCH HISTORY (For "Financial Reports" or history checks) ---
+    // Holds the whole table in memory; exports and reports over long histories use stream_logs instead
     public static List<VehicleLog> get_all_logs() {
-        String sql = "SELECT * FROM vehicle_logs ORDER BY entryTime DESC";
-        return fetch_logs(sql);
+        List<VehicleLog> logs = new ArrayList<>();
+        stream_logs(new Filter().newest_first(), logs::add);
+        return logs;
     }
 
     // --- 5. FIND SPECIFIC LOG ---
     public static VehicleLog get_log_by_ticket(String ticketID) {
-        String sql = "SELECT * FROM vehicle_logs WHERE ticketID = '" + ticketID + "'";
-        List<VehicleLog> results = fetch_logs(sql);
-        return results.isEmpty() ? null : results.get(0);
+        String sql = "SELECT * FROM vehicle_logs WHERE ticketID = ?";
+        LogJournal.flush();
+        LogArchive archive = LogArchive.get();
+        archive.lock.readLock().lock();
+        try {
+            List<VehicleLog> results = fetch_logs(sql, ticketID);
+            return results.isEmpty() ? archive.find_ticket(ticketID) : results.get(0);
+        } finally {
+            archive.lock.readLock().unlock();
+        }
+    }
+
+    // --- 6. HISTORY OF ONE PLATE (use PlateSearchIndex to find the plate from a partial or misread one) ---
+    public static List<VehicleLog> get_logs_by_plate(String plate) {
+        List<VehicleLog> logs = new ArrayList<>();
+        stream_logs(new Filter().plate(plate).newest_first(), logs::add);
+        return logs;
+    }
+
+    // --- 7. STREAM HISTORY (exports and reports over years of logs, in constant memory) ---
+    // Hands every log matching "filter" to "sink" one at a time while the rows are read; nothing is collected.
+    // Archived logs (see LogArchive) are merged in, in the same order. Reading stops as soon as sink returns
+    // false. Returns how many logs were handed over.
+    // One pooled connection (and its read snapshot) is held until this returns, so keep sink quick.
+    // Like every read here, it first waits for logs still in the LogJournal: it sees every write made before it.
+    public static int stream_logs(Filter filter, Predicate<? super VehicleLog> sink) {
+        LogJournal.flush();
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT * FROM vehicle_logs" + filter.where(params) + filter.order();
+        LogArchive archive = LogArchive.get();
+        archive.lock.readLock().lock(); // No log moves into the archive while both are read
+        try {
+            return scan(sql, params.toArray(), archive.cursors(filter), filter.newestFirst, sink);
+        } finally {
+            archive.lock.readLock().unlock();
+        }
+    }
+
+    // Which logs stream_logs reads. Every condition goes into the SQL, so rows that don't match never leave SQLite.
+    // Usage: new VehicleLogManager.Filter().type("Car").entered_between(monthStart, nextMonthStart)
+    public static final class Filter {
+        // Read by LogSegment too
+        String plate;
+        String type;
+        LocalDateTime from;
+        LocalDateTime to;
+        boolean newestFirst;
+
+        // Exact plate (find it with PlateSearchIndex first if it is partial or misread)
+        public Filter plate(String plate) {
+            this.plate = plate;
+            return this;
+        }
+
+        // Vehicle type, any case ("Car", "SUV"...)
+        public Filter type(String vehicleType) {
+            this.type = vehicleType;
+            return this;
+        }
+
+        // Entered at or after "from" and before "to"; null = no limit on that side
+        public Filter entered_between(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        // Default is oldest first
+        public Filter newest_first() {
+            this.newestFirst = true;
+            return this;
+        }
+
+        // " WHERE ..." (or "") with its values appended to "params"
+        String where(List<Object> params) {
+            List<String> conditions = new ArrayList<>();
+            if (plate != null) {
+                conditions.add("vehiclePlate = ?");
+                params.add(plate);
+            }
+            if (type != null) {
+                conditions.add("vehicleType = ? COLLATE NOCASE");
+                params.add(type);
+            }
+            if (from != null) {
+                conditions.add("entryTime >= ?");
+                params.add(TimeCodec.to_millis(from));
+            }
+            if (to != null) {
+                conditions.add("entryTime < ?");
+                params.add(TimeCodec.to_millis(to));
+            }
+            return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        }
+
+        // idx_vehicle_logs_entry delivers this order without sorting
+        String order() {
+            return newestFirst ? " ORDER BY entryTime DESC, logID DESC" : " ORDER BY entryTime, logID";
+        }
     }
 
     // --- HELPER: CENTRALIZED ROW MAPPING ---
-    private static List<VehicleLog> fetch_logs(String query) {
+    // Values in "params" fill the "?" placeholders of the query in order
+    static List<VehicleLog> fetch_logs(String query, Object... params) {
         List<VehicleLog> logs = new ArrayList<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        scan(query, params, List.of(), false, logs::add);
+        return logs;
+    }
 
+    // Rows SQLite hands over per step of the cursor
+    private static final int FETCH_SIZE = 500;
+
+    // Rows of "query" (ordered by entryTime, logID in the direction "newestFirst" says), merged with "archived"
+    private static int scan(String query, Object[] params, List<LogArchive.Cursor> archived, boolean newestFirst,
+                            Predicate<? super VehicleLog> sink) {
+        int[] handed = {0};
+        Predicate<VehicleLog> counted = log -> {
+            handed[0]++;
+            return sink.test(log);
+        };
         try (Connection conn = DatabaseManager.connect();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-
-            while (rs.next()) {
-                // Parse Dates safely
-                String entryStr = rs.getString("entryTime");
-                String exitStr = rs.getString("exitTime");
-                
-                LocalDateTime entry = LocalDateTime.parse(entryStr, formatter);
-                LocalDateTime exit = (exitStr != null) ? LocalDateTime.parse(exitStr, formatter) : null;
-
-                logs.add(new VehicleLog(
-                    rs.getString("ticketID"),
-                    rs.getString("vehiclePlate"),
-                    rs.getString("spotID"),
-                    rs.getString("vehicleType"),
-                    entry,
-                    exit
-                ));
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+
+            pstmt.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (archived.isEmpty()) {
+                    while (rs.next()) {
+                        if (!counted.test(read_log(rs))) break;
+                    }
+                } else {
+                    List<LogArchive.Cursor> cursors = new ArrayList<>(archived);
+                    cursors.add(new LiveCursor(rs));
+                    LogArchive.merge(cursors, newestFirst, counted);
+                }
             }
-        } catch (Exception e) {
+        } catch (SQLException e) {
             System.err.println("Error fetching logs: " + e.getMessage());
         }
-        return logs;
+        return handed[0];
+    }
+
+    // The live table's side of a merge with the archive
+    private static final class LiveCursor implements LogArchive.Cursor {
+        private final ResultSet rs;
+        private long entry;
+        private long logID;
+
+        LiveCursor(ResultSet rs) {
+            this.rs = rs;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            if (!rs.next()) return false;
+            entry = rs.getLong("entryTime");
+            if (rs.wasNull()) entry = Long.MIN_VALUE; // SQLite sorts NULL first
+            logID = rs.getLong("logID");
+            return true;
+        }
+
+        @Override
+        public long entry() { return entry; }
+
+        @Override
+        public long log_id() { return logID; }
+
+        @Override
+        public VehicleLog log() throws SQLException { return read_log(rs); }
+    }
+
+    private static VehicleLog read_log(ResultSet rs) throws SQLException {
+        return new VehicleLog(
+            rs.getString("ticketID"),
+            rs.getString("vehiclePlate"),
+            rs.getString("spotID"),
+            rs.getString("vehicleType"),
+            TimeCodec.read(rs, "entryTime"),
+            TimeCodec.read(rs, "exitTime")
+        );
     }
 }
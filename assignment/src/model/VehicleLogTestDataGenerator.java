@@ -4,7 +4,6 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Random;
 
 public class VehicleLogTestDataGenerator {
@@ -28,7 +27,6 @@ public class VehicleLogTestDataGenerator {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             Random rand = new Random();
-            DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
             for (int i = 0; i < NUM_LOGS; i++) {
                 // 1. Random Vehicle Details
@@ -56,14 +54,8 @@ public class VehicleLogTestDataGenerator {
                 pstmt.setString(2, plate);
                 pstmt.setString(3, spot);
                 pstmt.setString(4, type);
-                pstmt.setString(5, entry.format(formatter));
-                
-                if (exit != null) {
-                    pstmt.setString(6, exit.format(formatter));
-                } else {
-                    // Important for "Active Vehicles" tab
-                    pstmt.setString(6, null); 
-                }
+                TimeCodec.bind(pstmt, 5, entry);
+                TimeCodec.bind(pstmt, 6, exit); // Null is important for "Active Vehicles" tab
 
                 pstmt.addBatch(); // Batch for speed [cite: 2026-02-13]
             }
@@ -0,0 +1,40 @@
+package model;
+
+// The vehicle types the lot knows about. Tickets and logs still store the label ("Car") in the database;
+// in memory the type is this enum, so comparisons and rule checks don't upper-case strings every time.
+public enum VehicleType {
+    MOTORCYCLE("Motorcycle"),
+    CAR("Car"),
+    SUV("SUV"),
+    TRUCK("Truck"),
+    HANDICAPPED("Handicapped");
+
+    private static final VehicleType[] ALL = values();
+
+    public final String label;
+
+    VehicleType(String label) {
+        this.label = label;
+    }
+
+    // Case-insensitive, no allocation. Null = not a vehicle type we know.
+    public static VehicleType parse(String text) {
+        if (text == null) return null;
+        for (VehicleType t : ALL) {
+            if (t.name().equalsIgnoreCase(text)) return t;
+        }
+        return null;
+    }
+
+    // Which spots this vehicle may use
+    public boolean fits(ParkingSpot.SpotType spot) {
+        switch (this) {
+            case MOTORCYCLE: return spot == ParkingSpot.SpotType.COMPACT;
+            case CAR: return spot == ParkingSpot.SpotType.COMPACT || spot == ParkingSpot.SpotType.REGULAR;
+            case SUV:
+            case TRUCK: return spot == ParkingSpot.SpotType.REGULAR;
+            case HANDICAPPED: return true; // ANY spot (priority logic handled in UI)
+            default: return false;
+        }
+    }
+}
@@ -4,20 +4,49 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import model.ChangeBus;
 import model.DatabaseManager;
 import model.Fine;
 import model.FineManager;
+import model.ParkingSpot;
+import model.ParkingSpotManager;
+import model.RevenueRollup;
+import model.SpotIndex;
+import model.Ticket;
+import model.TicketManager;
 
 public class AdminPanel extends JPanel {
 
     // UI Components (Context Variables)
     private JComboBox<String> fineSchemeCombo;
     private JLabel lblTotalRevenue;
+    private JLabel lblRevenueBreakdown;
+    private JComboBox<String> revenuePeriodCombo;
+    private SwingWorker<RevenueRollup.Report, Void> revenueLoader;
+    private static final String[] REVENUE_PERIODS = {"Today", "This Week", "This Month", "This Year", "All Time"};
     private JLabel lblOccupancyRate;
     private JTable lotStatusTable;
     private JTable currentVehiclesTable;
     private JTable finesTable;
+    private JProgressBar finesProgress;
+    private TableLoader<?> finesLoader;    // The load in progress, cancelled when a newer one starts
+    private KeyedTableModel<ParkingSpot> spotsModel;
+    private KeyedTableModel<Ticket> vehiclesModel;
+
+    // Tables follow committed changes row by row (see ChangeBus); bursts are applied once per tick
+    private final EventBatcher changes = new EventBatcher(this::applyChanges);
+    private final List<ChangeBus.Event> heldFineChanges = new ArrayList<>(); // Arrived while the fines table was loading
+    private final Timer durationTimer = new Timer(60_000, e -> vehiclesModel.refresh_all()); // "Est. Duration" ticks on
 
     public AdminPanel() {
         // 1. Layout Manager (Like CSS Grid/Flexbox)
@@ -36,6 +65,20 @@ public class AdminPanel extends JPanel {
         add(dashboardTabs, BorderLayout.CENTER);
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        changes.attach();
+        durationTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        changes.detach();
+        durationTimer.stop();
+        super.removeNotify();
+    }
+
     // --- SECTION 1: TOP CONFIG PANEL ---
     private JPanel createTopConfigPanel() {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 10));
@@ -61,20 +104,41 @@ public class AdminPanel extends JPanel {
         
             // If the user clicked confirm and it saved successfully, refresh the UI [cite: 2026-02-14]
             if (dialog.isSucceeded()) {
+                // The new row reaches the Financial Reports table through ChangeBus [cite: 2026-02-13]
                 JOptionPane.showMessageDialog(this, "Fine issued successfully!");
-                // Call a method to reload your Financial Reports table [cite: 2026-02-13]
-                refreshFinancialTable(); 
             }
         });
         panel.add(btnIssueFine);
     
-        lblOccupancyRate = new JLabel("  |  Occupancy: 12% (18/150 Spots)");
+        lblOccupancyRate = new JLabel();
         lblOccupancyRate.setFont(lblOccupancyRate.getFont().deriveFont(Font.BOLD));
+        updateOccupancy();
         panel.add(lblOccupancyRate);
     
         return panel;
     }
 
+    // Live counters from SpotIndex (memory only, no query); called again on every tick with spot changes
+    private void updateOccupancy() {
+        int total = SpotIndex.get_spot_count();
+        int occupied = SpotIndex.get_occupied_count();
+        int percent = (total == 0) ? 0 : Math.round(100f * occupied / total);
+        lblOccupancyRate.setText(String.format("  |  Occupancy: %d%% (%d/%d Spots)", percent, occupied, total));
+
+        // Per type and per floor on hover
+        StringBuilder tip = new StringBuilder("<html>");
+        for (ParkingSpot.SpotType type : ParkingSpot.SpotType.values()) {
+            if (SpotIndex.get_capacity(type) == 0) continue;
+            tip.append(type).append(": ").append(SpotIndex.get_occupied_count(type)).append('/').append(SpotIndex.get_capacity(type))
+               .append(SpotIndex.is_full(type) ? " (FULL)" : "").append("<br>");
+        }
+        for (int floor : SpotIndex.get_floors()) {
+            tip.append("Floor ").append(floor).append(": ").append(SpotIndex.get_occupied_count_on_floor(floor))
+               .append('/').append(SpotIndex.get_capacity_on_floor(floor)).append("<br>");
+        }
+        lblOccupancyRate.setToolTipText(tip.append("</html>").toString());
+    }
+
     // --- SECTION 2: LOT STATUS TAB [cite: 443] ---
     private JPanel createLotStatusPanel() {
         JPanel panel = new JPanel(new BorderLayout());
@@ -82,15 +146,19 @@ public class AdminPanel extends JPanel {
         // Define Table Columns
         String[] columns = {"Floor", "Row", "Spot ID", "Type", "Status", "Current Plate"};
 
-        // Create Model (The Data)
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
-        lotStatusTable = new JTable(model);
-
-        // STUB DATA: Adding fake rows so you can see the UI
-        model.addRow(new Object[]{1, 1, "F1-R1-S1", "HANDICAPPED", "OCCUPIED", "WAA1234"});
-        model.addRow(new Object[]{1, 1, "F1-R1-S2", "HANDICAPPED", "AVAILABLE", "-"});
-        model.addRow(new Object[]{1, 2, "F1-R2-S1", "COMPACT", "AVAILABLE", "-"});
-        model.addRow(new Object[]{2, 1, "F2-R1-S1", "REGULAR", "OCCUPIED", "JDT9999"});
+        // Create Model (The Data): every spot, read once, then kept current by SPOT_CHANGED events
+        spotsModel = new KeyedTableModel<>(columns, ParkingSpot::getSpotID, (s, column) -> {
+            switch (column) {
+                case 0: return s.getFloor();
+                case 1: return s.getRow();
+                case 2: return s.getSpotID();
+                case 3: return s.getType();
+                case 4: return s.isOccupied() ? "OCCUPIED" : "AVAILABLE";
+                default: return (s.getCurrentVehiclePlate() == null || s.getCurrentVehiclePlate().isEmpty()) ? "-" : s.getCurrentVehiclePlate();
+            }
+        });
+        lotStatusTable = new JTable(spotsModel);
+        spotsModel.reload(ParkingSpotManager::get_all_spots);
 
         // Add to ScrollPane (Overflow: scroll)
         panel.add(new JScrollPane(lotStatusTable), BorderLayout.CENTER);
@@ -102,12 +170,18 @@ public class AdminPanel extends JPanel {
         JPanel panel = new JPanel(new BorderLayout());
 
         String[] columns = {"Ticket ID", "Plate Number", "Spot ID", "Entry Time", "Est. Duration"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
-        currentVehiclesTable = new JTable(model);
-
-        // STUB DATA
-        model.addRow(new Object[]{"T-WAA1234-1000", "WAA1234", "F1-R1-S1", "2026-02-14 10:00 AM", "5 hours"});
-        model.addRow(new Object[]{"T-JDT9999-1230", "JDT9999", "F2-R1-S1", "2026-02-14 12:30 PM", "2.5 hours"});
+        // Active tickets, newest first; TICKET_ISSUED adds a row at the top, TICKET_CLOSED removes one
+        vehiclesModel = new KeyedTableModel<>(columns, Ticket::getTicketID, (t, column) -> {
+            switch (column) {
+                case 0: return t.getTicketID();
+                case 1: return t.getVehiclePlate();
+                case 2: return t.getSpotID();
+                case 3: return DatabaseManager.formatDateTime(t.getEntryTime());
+                default: return String.format("%.1f hours", Duration.between(t.getEntryTime(), LocalDateTime.now()).toMinutes() / 60.0);
+            }
+        });
+        currentVehiclesTable = new JTable(vehiclesModel);
+        vehiclesModel.reload(TicketManager::get_all_active_tickets);
 
         panel.add(new JScrollPane(currentVehiclesTable), BorderLayout.CENTER);
         return panel;
@@ -118,12 +192,21 @@ public class AdminPanel extends JPanel {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
     
         // A. Revenue Summary
-        JPanel revenuePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JPanel revenuePanel = new JPanel(new BorderLayout(5, 5));
         revenuePanel.setBorder(BorderFactory.createTitledBorder("Revenue Summary"));
-        lblTotalRevenue = new JLabel("Total Revenue Collected: RM 1,250.00");
+        revenuePeriodCombo = new JComboBox<>(REVENUE_PERIODS);
+        revenuePeriodCombo.addActionListener(e -> refreshRevenue());
+        lblTotalRevenue = new JLabel("Total Revenue Collected: ...");
         lblTotalRevenue.setFont(new Font("Segoe UI", Font.BOLD, 24));
         lblTotalRevenue.setForeground(new Color(0, 150, 0));
-        revenuePanel.add(lblTotalRevenue);
+        lblRevenueBreakdown = new JLabel(" ");
+        JPanel revenueTop = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        revenueTop.add(revenuePeriodCombo);
+        revenueTop.add(lblTotalRevenue);
+        revenuePanel.add(revenueTop, BorderLayout.NORTH);
+        revenuePanel.add(lblRevenueBreakdown, BorderLayout.CENTER);
+        panel.add(revenuePanel, BorderLayout.NORTH);
+        refreshRevenue();
     
         JPanel finesSection = new JPanel(new BorderLayout(5, 5));
         finesSection.setBorder(BorderFactory.createTitledBorder("Outstanding Unpaid Fines"));
@@ -147,25 +230,13 @@ public class AdminPanel extends JPanel {
         DefaultTableModel model = new DefaultTableModel(columns, 0);
         finesTable = new JTable(model);
 
-        // Fetch live data from FineManager [cite: 2026-02-13]
-        java.util.List<model.Fine> allFines = FineManager.view_all_fines();
-        if (allFines != null) {
-            for (model.Fine f : allFines) {
-                // Only show UNPAID fines in this specific dashboard table [cite: 2026-02-14]
-                if (!f.isPaid()) {
-                    model.addRow(new Object[]{
-                        f.getFineID(),
-                        f.getVehiclePlate(),
-                        String.format("%.2f", f.getAmount()),
-                        f.getReason(),
-                        // Use your custom formatter for a professional look [cite: 2026-02-14]
-                        DatabaseManager.formatDateTime(f.getIssueDate())
-                    });
-                }
-            }
-        }
-
+        finesProgress = new JProgressBar(0, 100);
+        finesProgress.setVisible(false);
         finesSection.add(new JScrollPane(finesTable), BorderLayout.CENTER);
+        finesSection.add(finesProgress, BorderLayout.SOUTH);
+
+        // Fetch live data from FineManager in the background [cite: 2026-02-13]
+        refreshFinancialTable();
         panel.add(finesSection, BorderLayout.CENTER);
 
         return panel;
@@ -178,25 +249,125 @@ public class AdminPanel extends JPanel {
         // TODO: Call FineManager.setScheme(selected) here later
     }
 
+    // Reloads the unpaid fines on a worker thread; rows appear in chunks and an older load still running is cancelled
     public void refreshFinancialTable() {
-    // Get the current model [cite: 2026-02-13]
-    DefaultTableModel model = (DefaultTableModel) finesTable.getModel();
-    model.setRowCount(0); // Clear current rows
-
-    // Fetch live data [cite: 2026-02-13, 2026-02-14]
-    java.util.List<Fine> allFines = FineManager.view_all_fines();
-    if (allFines != null) {
-        for (Fine f : allFines) {
-            if (!f.isPaid()) {
-                model.addRow(new Object[]{
-                    f.getFineID(),
-                    f.getVehiclePlate(),
-                    String.format("%.2f", f.getAmount()),
-                    f.getReason(),
-                    DatabaseManager.formatDateTime(f.getIssueDate())
-                });
+        DefaultTableModel model = (DefaultTableModel) finesTable.getModel();
+
+        // Only show UNPAID fines in this specific dashboard table [cite: 2026-02-14]
+        heldFineChanges.clear(); // The new load sees them
+        finesLoader = TableLoader.<Fine>start(finesLoader, model,
+                FineManager::count_unpaid_fines,
+                FineManager::stream_unpaid_fines,
+                AdminPanel::unpaidFineRow,
+                finesProgress);
+        finesLoader.on_loaded(() -> {
+            List<ChangeBus.Event> held = new ArrayList<>(heldFineChanges);
+            heldFineChanges.clear();
+            applyFineChanges(held);
+        });
+    }
+
+    private static Object[] unpaidFineRow(Fine f) {
+        return new Object[]{
+            f.getFineID(),
+            f.getVehiclePlate(),
+            String.format("%.2f", f.getAmount()),
+            f.getReason(),
+            // Use your custom formatter for a professional look [cite: 2026-02-14]
+            DatabaseManager.formatDateTime(f.getIssueDate())
+        };
+    }
+
+    // Revenue for the chosen period, from the daily/monthly/yearly rollups (a few index ranges whatever the period)
+    private void refreshRevenue() {
+        String period = (String) revenuePeriodCombo.getSelectedItem();
+        if (revenueLoader != null) revenueLoader.cancel(false);
+        revenueLoader = new SwingWorker<RevenueRollup.Report, Void>() {
+            @Override
+            protected RevenueRollup.Report doInBackground() {
+                LocalDate today = LocalDate.now();
+                switch (period) {
+                    case "Today": return RevenueRollup.day(today);
+                    case "This Week": return RevenueRollup.week(today);
+                    case "This Month": return RevenueRollup.month(YearMonth.from(today));
+                    case "This Year": return RevenueRollup.year(today.getYear());
+                    default: return RevenueRollup.report(LocalDate.of(1970, 1, 1), today);
+                }
             }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) return;
+                try {
+                    RevenueRollup.Report r = get();
+                    lblTotalRevenue.setText(String.format("Total Revenue Collected: RM %,.2f", r.total));
+                    lblRevenueBreakdown.setText(String.format(
+                            "<html>Parking: RM %,.2f (%d) &nbsp;|&nbsp; Fines: RM %,.2f (%d)<br>By method: %s<br>By scheme: %s</html>",
+                            r.get(RevenueRollup.Source.PARKING), r.count(RevenueRollup.Source.PARKING),
+                            r.get(RevenueRollup.Source.FINE), r.count(RevenueRollup.Source.FINE),
+                            format_amounts(r.byMethod), format_amounts(r.byScheme)));
+                } catch (Exception e) {
+                    System.out.println("Error loading revenue: " + e.getMessage());
+                }
+            }
+        };
+        revenueLoader.execute();
+    }
+
+    private static String format_amounts(Map<String, Double> amounts) {
+        if (amounts.isEmpty()) return "-";
+        StringBuilder sb = new StringBuilder();
+        amounts.forEach((k, v) -> sb.append(sb.length() == 0 ? "" : ", ").append(k).append(String.format(" RM %,.2f", v)));
+        return sb.toString();
+    }
+
+    // --- LIVE UPDATES (Swing thread, one call per EventBatcher tick) ---
+    private void applyChanges(List<ChangeBus.Event> events) {
+        List<ChangeBus.Event> fineChanges = new ArrayList<>();
+        boolean spotsChanged = false;
+        boolean revenueChanged = false;
+        for (ChangeBus.Event e : events) {
+            revenueChanged |= e.kind == ChangeBus.Kind.TICKET_CLOSED || e.kind == ChangeBus.Kind.FINE_PAID
+                    || e.kind == ChangeBus.Kind.FINE_REVOKED || (e.kind == ChangeBus.Kind.FINE_UPDATED && e.fine.isPaid()) || (e.kind == ChangeBus.Kind.RELOADED && e.key.equals("fines"));
+            spotsChanged |= e.kind == ChangeBus.Kind.SPOT_CHANGED || (e.kind == ChangeBus.Kind.RELOADED && e.key.equals("spots"));
+            switch (e.kind) {
+                case TICKET_ISSUED:
+                    vehiclesModel.put(e.ticket);
+                    break;
+                case TICKET_CLOSED:
+                    vehiclesModel.remove(e.key);
+                    break;
+                case SPOT_CHANGED:
+                    spotsModel.update(e.key, s -> new ParkingSpot(s.getSpotID(), s.getFloor(), s.getRow(), s.getType(),
+                            e.plate != null, e.plate));
+                    break;
+                case RELOADED:
+                    if (e.key.equals("spots")) spotsModel.invalidate();
+                    else if (e.key.equals("tickets")) vehiclesModel.invalidate();
+                    else if (e.key.equals("fines")) refreshFinancialTable();
+                    break;
+                default:
+                    fineChanges.add(e);
+            }
+        }
+        if (spotsChanged) updateOccupancy();
+        if (revenueChanged) refreshRevenue();
+        if (finesLoader != null && !finesLoader.isDone()) heldFineChanges.addAll(fineChanges);
+        else applyFineChanges(fineChanges);
+    }
+
+    // Unpaid fines table: paid, revoked and edited fines leave, newly issued unpaid ones go on top
+    private void applyFineChanges(List<ChangeBus.Event> events) {
+        if (events.isEmpty()) return;
+        DefaultTableModel model = (DefaultTableModel) finesTable.getModel();
+        Set<String> leaving = new HashSet<>();
+        for (ChangeBus.Event e : events) leaving.add(e.key);
+        for (int row = model.getRowCount() - 1; row >= 0; row--) {
+            if (leaving.contains(model.getValueAt(row, 0))) model.removeRow(row);
+        }
+        for (ChangeBus.Event e : events) {
+            boolean shown = e.kind == ChangeBus.Kind.FINE_ISSUED || e.kind == ChangeBus.Kind.FINE_UPDATED;
+            if (shown && !e.fine.isPaid()) model.insertRow(0, unpaidFineRow(e.fine));
         }
     }
-}
 }
\ No newline at end of file
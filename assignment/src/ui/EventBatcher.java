@@ -0,0 +1,96 @@
+package ui;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import model.ChangeBus;
+
+// Collects ChangeBus events from any thread and hands them to a screen on the Swing thread, at most once
+// per COALESCE_MS. A busy lot produces one table update per tick instead of one repaint per gate event.
+// Within a tick only the net change per row is kept: a spot that flipped five times is reported once,
+// and a ticket or fine created and removed in the same tick is not reported at all. Only a genuine insert
+// (TICKET_ISSUED, FINE_ISSUED) cancels that way: an edited fine (FINE_UPDATED) that is then revoked was
+// already on screen, so its revoke is kept.
+//
+// Register with attach() when the screen is shown and detach() when it goes away (see addNotify/removeNotify).
+public class EventBatcher implements ChangeBus.Listener {
+
+    static final int COALESCE_MS = 100;
+
+    private final Consumer<List<ChangeBus.Event>> handler;
+    private final Queue<ChangeBus.Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Timer timer;
+
+    public EventBatcher(Consumer<List<ChangeBus.Event>> handler) {
+        this.handler = handler;
+        this.timer = new Timer(COALESCE_MS, e -> deliver());
+        this.timer.setRepeats(false);
+    }
+
+    public void attach() {
+        ChangeBus.subscribe(this);
+    }
+
+    public void detach() {
+        ChangeBus.unsubscribe(this);
+        timer.stop();
+        queue.clear();
+    }
+
+    // Publisher's thread: queue and return
+    @Override
+    public void on_event(ChangeBus.Event event) {
+        queue.add(event);
+        if (scheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(timer::start);
+    }
+
+    // Swing thread
+    private void deliver() {
+        scheduled.set(false); // Events queued from now on schedule the next tick
+        Map<String, ChangeBus.Event> net = new LinkedHashMap<>();
+        for (ChangeBus.Event e; (e = queue.poll()) != null; ) merge(net, e);
+        if (!net.isEmpty()) handler.accept(new ArrayList<>(net.values()));
+    }
+
+    private static void merge(Map<String, ChangeBus.Event> net, ChangeBus.Event e) {
+        String row = row_of(e);
+        ChangeBus.Event earlier = net.get(row);
+        if (earlier == null) {
+            net.put(row, e);
+            return;
+        }
+        boolean wasNew = earlier.kind == ChangeBus.Kind.TICKET_ISSUED || earlier.kind == ChangeBus.Kind.FINE_ISSUED;
+        boolean gone = e.kind == ChangeBus.Kind.TICKET_CLOSED || e.kind == ChangeBus.Kind.FINE_REVOKED;
+        if (wasNew && gone) net.remove(row);                                      // Came and went unseen
+        else if (wasNew && (e.kind == ChangeBus.Kind.FINE_PAID || e.kind == ChangeBus.Kind.FINE_UPDATED)) {
+            net.put(row, ChangeBus.Event.fine_issued(e.fine)); // Still new to the screen
+        }
+        else net.put(row, e);
+    }
+
+    // Events about the same row replace each other
+    private static String row_of(ChangeBus.Event e) {
+        switch (e.kind) {
+            case TICKET_ISSUED:
+            case TICKET_CLOSED:
+                return "T" + e.key;
+            case FINE_ISSUED:
+            case FINE_PAID:
+            case FINE_UPDATED:
+            case FINE_REVOKED:
+                return "F" + e.key;
+            case SPOT_CHANGED:
+                return "S" + e.key;
+            default:
+                return "R" + e.key;
+        }
+    }
+}
@@ -3,18 +3,20 @@ package ui;
 import com.formdev.flatlaf.FlatDarkLaf;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import model.FineManager;
-import model.DatabaseManager;
-import model.Fine;
+import model.PlateCodec;
 
 public class FinePanel extends JPanel {
     private JTextField txtPlate;
-    private DefaultTableModel tableModel;
+    private FineTableModel tableModel;
     private JTable fineTable;
+    private JLabel lblStatus;
+
+    // Paid, issued and revoked fines reach the table without searching again (see FineTableModel.apply)
+    private final EventBatcher changes = new EventBatcher(events -> tableModel.apply(events));
 
     public FinePanel() {
         setLayout(new BorderLayout(10, 10));
@@ -34,15 +36,10 @@ public class FinePanel extends JPanel {
         add(searchPanel, BorderLayout.NORTH);
 
         // --- CENTER SECTION: THE TABLE ---
-        String[] columns = {"ID", "Plate", "Amount", "Reason", "Status", "Date"};
-        tableModel = new DefaultTableModel(columns, 0)
-        {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                // This makes all cells uneditable
-                return false;
-            }
-        };
+        // Reads fines page by page as rows scroll into view (cells are uneditable). The reads run on
+        // worker threads, so searching a large table never freezes the window.
+        lblStatus = new JLabel(" ");
+        tableModel = new FineTableModel(lblStatus::setText);
         fineTable = new JTable(tableModel);
         
         // Use a JScrollPane so the table is scrollable
@@ -50,6 +47,7 @@ public class FinePanel extends JPanel {
 
         // --- BOTTOM SECTION: ACTIONS ---
         JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        actionPanel.add(lblStatus);
         JButton btnPay = new JButton("Process Payment");
         actionPanel.add(btnPay);
         add(actionPanel, BorderLayout.SOUTH);
@@ -62,30 +60,28 @@ public class FinePanel extends JPanel {
                 JOptionPane.showMessageDialog(this, "Please select a fine from the table first!");
                 return;
             }
+            if (!isLoaded(selectedRow)) return;
         
             // 2. Get the Fine ID from the table (Column 0) 
             String fineID = tableModel.getValueAt(selectedRow, 0).toString();
         
-            // 3. Find the matching Fine object from your list
-            List<Fine> allFines = FineManager.view_all_fines();
-            Fine selectedFine = allFines.stream()
-                    .filter(f -> f.getFineID().equals(fineID))
-                    .findFirst()
-                    .orElse(null);
-        
-            if (selectedFine != null) {
-                // 4. Fetch the deep details
-                String[] deepData = FineManager.get_dummy_details(fineID);
-        
-                // 5. Open the Dialog
+            // 3. Fetch the fine and its deep details in one lookup (recently opened ones are cached)
+            inBackground(btnDetails, () -> FineManager.get_fine_details(fineID), details -> {
+                if (details == null) {
+                    JOptionPane.showMessageDialog(this, "Fine " + fineID + " no longer exists.");
+                    updateTable();
+                    return;
+                }
+
+                // 4. Open the Dialog
                 // (Frame) SwingUtilities.getWindowAncestor(this) finds your main window automatically
                 FineDetailsDialog dialog = new FineDetailsDialog(
-                    (Frame) SwingUtilities.getWindowAncestor(this), 
-                    selectedFine, 
-                    deepData
+                    (Frame) SwingUtilities.getWindowAncestor(this),
+                    details.fine,
+                    details.extra
                 );
                 dialog.setVisible(true);
-            }
+            });
         });
 
         actionPanel.add(btnRevoke);
@@ -96,6 +92,7 @@ public class FinePanel extends JPanel {
                 JOptionPane.showMessageDialog(this, "Please select a fine from the table to revoke.");
                 return;
             }
+            if (!isLoaded(selectedRow)) return;
         
             // Get the Fine ID (Column 0) for the specific row [cite: 2026-02-13]
             String fineID = tableModel.getValueAt(selectedRow, 0).toString();
@@ -108,14 +105,14 @@ public class FinePanel extends JPanel {
         
             if (confirm == JOptionPane.YES_OPTION) {
                 // Call your backend function [cite: 2026-01-15, 2026-02-13]
-                boolean success = FineManager.delete_fine(fineID); 
-        
-                if (success) {
-                    JOptionPane.showMessageDialog(this, "Fine " + fineID + " revoked successfully.");
-                    updateTable(); // This refreshes the UI automatically [cite: 2026-02-13, 2026-02-14]
-                } else {
-                    JOptionPane.showMessageDialog(this, "Failed to revoke fine. Check database connection.");
-                }
+                inBackground(btnRevoke, () -> FineManager.delete_fine(fineID), success -> {
+                    if (success) {
+                        // The row leaves the table through ChangeBus [cite: 2026-02-13, 2026-02-14]
+                        JOptionPane.showMessageDialog(this, "Fine " + fineID + " revoked successfully.");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Failed to revoke fine. Check database connection.");
+                    }
+                });
             }
         });
         // --- LOGIC ---
@@ -125,7 +122,7 @@ public class FinePanel extends JPanel {
         // Enter key in text field also triggers search
         txtPlate.addActionListener(e -> updateTable());
 
-        btnPay.addActionListener(e -> performPayment());
+        btnPay.addActionListener(e -> performPayment(btnPay));
 
         // Initial load (shows all because txtPlate is empty)
         updateTable();
@@ -135,36 +132,25 @@ public class FinePanel extends JPanel {
      * This method handles both "View All" and "Filter" logic
      */
     public void updateTable() {
-        tableModel.setRowCount(0); // Clear table
-        String filterPlate = txtPlate.getText().trim().toUpperCase();
-        
-        // Reuse your existing original function!
-        List<Fine> allFines = FineManager.view_all_fines(); 
-    
-        if (allFines != null) {
-            for (Fine f : allFines) {
-                // If input is empty, show all. Otherwise, check if plate matches.
-                if (filterPlate.isEmpty() || f.getVehiclePlate().toUpperCase().contains(filterPlate)) {
-                    tableModel.addRow(new Object[]{
-                        f.getFineID(),
-                        f.getVehiclePlate(),
-                        "RM " + String.format("%.2f", f.getAmount()),
-                        f.getReason(),
-                        f.isPaid() ? "PAID" : "UNPAID",
-                        DatabaseManager.formatDateTime(f.getIssueDate())
-                    });
-                }
-            }
-        }
+        // If input is empty, show all. Otherwise, only plates containing it.
+        tableModel.reload(PlateCodec.normalize(txtPlate.getText()));
+    }
+
+    // False (after telling the user) while the selected row's page is still being read
+    private boolean isLoaded(int row) {
+        if (tableModel.get_fine(row) != null) return true;
+        JOptionPane.showMessageDialog(this, "This row is still loading, please try again in a moment.");
+        return false;
     }
 
-    private void performPayment() {
+    private void performPayment(JButton btnPay) {
         int selectedRow = fineTable.getSelectedRow();
         
         if (selectedRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select a fine from the table first!");
             return;
         }
+        if (!isLoaded(selectedRow)) return;
     
         // Get the ID and Plate from the selected row (Column 0 is ID, Column 1 is Plate)
         String fineID = tableModel.getValueAt(selectedRow, 0).toString();
@@ -178,12 +164,50 @@ public class FinePanel extends JPanel {
         }
     
         // Call your FineManager logic
-        FineManager.process_payment(plate, "System Edits"); 
-        
-        JOptionPane.showMessageDialog(this, "Payment successful for Fine ID: " + fineID);
-        
-        // Refresh the table to show the new "PAID" status
-        updateTable(); 
+        inBackground(btnPay, () -> {
+            FineManager.process_payment(plate, "System Edits");
+            return null;
+        }, done -> {
+            // The row turns "PAID" through ChangeBus; no need to search again
+            JOptionPane.showMessageDialog(this, "Payment successful for Fine ID: " + fineID);
+        });
+    }
+
+    // Runs "work" (database calls) on a worker thread so the window never freezes on I/O, then hands its
+    // result to "then" on the Swing thread. "button" stays disabled meanwhile so the action can't be doubled.
+    private <V> void inBackground(JButton button, Supplier<V> work, Consumer<V> then) {
+        button.setEnabled(false);
+        new SwingWorker<V, Void>() {
+            @Override
+            protected V doInBackground() {
+                return work.get();
+            }
+
+            @Override
+            protected void done() {
+                button.setEnabled(true);
+                V result;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    System.out.println("Error talking to the database: " + e.getMessage());
+                    return;
+                }
+                then.accept(result);
+            }
+        }.execute();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        changes.attach();
+    }
+
+    @Override
+    public void removeNotify() {
+        changes.detach(); // The window was closed: stop listening
+        super.removeNotify();
     }
     public static void main(String[] args) {
         FlatDarkLaf.setup();
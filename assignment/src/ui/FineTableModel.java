@@ -0,0 +1,256 @@
+package ui;
+
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.List;
+import model.ChangeBus;
+import model.DatabaseManager;
+import model.Fine;
+import model.FineManager;
+import model.PlateCodec;
+
+// Rows of the fines table, read from SQLite a page at a time as the table asks for them, so opening
+// Fine Management costs one COUNT and one page no matter how many fines exist.
+// Pages are fetched with keyset pagination (FineManager.get_fines_page): scrolling continues from the
+// last row of the page above. Only a jump to a part of the table not seen yet needs an OFFSET seek,
+// and that walks the index only. The most recently used MAX_PAGES pages are kept; the start key of every
+// page seen is remembered (two Strings per page) so coming back to an evicted page is a keyset read again.
+//
+// Every query runs on a worker thread. A row whose page is still on its way shows LOADING and is repainted
+// when the page arrives. reload() starts a new generation: results of older loads are thrown away.
+//
+// apply() keeps the table current from ChangeBus events: a paid fine that is on screen is replaced in its
+// row. Issued and revoked fines move every row below them, so those re-count in the background while the
+// old rows stay on screen, and swap in the new first page when it is read.
+public class FineTableModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 100;
+    static final int MAX_PAGES = 50;
+    public static final String LOADING = "...";
+
+    private static final String[] COLUMNS = {"ID", "Plate", "Amount", "Reason", "Status", "Date"};
+
+    // Everything below is only touched on the Swing thread
+    private String plateFilter = "";
+    private int rowCount;
+    private int generation;                  // Bumped by reload(); older workers' results are dropped
+    private SwingWorker<?, ?> counting;      // The reload in progress (cancelled by a newer one)
+    private final Set<Integer> inFlight = new HashSet<>();
+    private final Consumer<String> status;   // Told "Loading..." / "N fines" (may be null)
+
+    // page number -> page, least recently used first
+    private final Map<Integer, FineManager.Page> pages = new LinkedHashMap<Integer, FineManager.Page>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, FineManager.Page> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final Map<Integer, String[]> pageStarts = new HashMap<>();
+
+    public FineTableModel(Consumer<String> status) {
+        this.status = status;
+    }
+
+    // Drops every cached page and counts again (after a search or any change to the fines).
+    // Returns at once; the table fills in when the count and the first page are read.
+    public void reload(String plateFilter) {
+        load((plateFilter == null) ? "" : plateFilter, true);
+    }
+
+    // Same filter, but the rows already shown stay until the new ones are read
+    private void refresh() {
+        load(plateFilter, false);
+    }
+
+    private void load(String filter, boolean clear) {
+        int gen = ++generation;
+        if (counting != null) counting.cancel(false);
+
+        this.plateFilter = filter;
+        if (clear) {
+            pages.clear();
+            pageStarts.clear();
+            inFlight.clear();
+            rowCount = 0;
+            fireTableDataChanged();
+            report("Loading...");
+        }
+
+        counting = new SwingWorker<Object[], Void>() {
+            @Override
+            protected Object[] doInBackground() {
+                int count = FineManager.count_fines(filter);
+                FineManager.Page first = (count == 0) ? null : FineManager.get_fines_page(filter, null, true, PAGE_SIZE);
+                return new Object[]{count, first};
+            }
+
+            @Override
+            protected void done() {
+                if (gen != generation || isCancelled()) return;
+                Object[] result = result_of(this);
+                if (result == null) return;
+                generation++; // Pages requested meanwhile were keyed on the old rows
+                pages.clear();
+                pageStarts.clear();
+                inFlight.clear();
+                rowCount = (Integer) result[0];
+                if (result[1] != null) remember(0, (FineManager.Page) result[1]);
+                fireTableDataChanged();
+                report(String.format("%,d fines", rowCount));
+            }
+        };
+        counting.execute();
+    }
+
+    // Swing thread: patch the table with a tick of ChangeBus events (see EventBatcher)
+    public void apply(List<ChangeBus.Event> events) {
+        boolean moved = false;
+        for (ChangeBus.Event e : events) {
+            switch (e.kind) {
+                case FINE_PAID:
+                    replace(e.fine); // Not on screen: it is read as paid when its page loads
+                    break;
+                case FINE_ISSUED:
+                case FINE_UPDATED: // An edit can move the fine into the filter (new plate)
+                    if (!replace(e.fine)) moved |= matches(e.plate); // A new row
+                    break;
+                case FINE_REVOKED:
+                    moved = true;
+                    break;
+                case RELOADED:
+                    moved |= e.key.equals("fines");
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (moved) refresh();
+    }
+
+    // Puts the fine in its row if that row is loaded; false = not on screen
+    private boolean replace(Fine fine) {
+        for (Map.Entry<Integer, FineManager.Page> entry : pages.entrySet()) {
+            List<Fine> fines = entry.getValue().fines;
+            for (int i = 0; i < fines.size(); i++) {
+                if (fines.get(i).getFineID().equals(fine.getFineID())) {
+                    fines.set(i, fine);
+                    int row = entry.getKey() * PAGE_SIZE + i;
+                    fireTableRowsUpdated(row, row);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(String plate) {
+        return plateFilter.isEmpty() || (plate != null && PlateCodec.normalize(plate).contains(plateFilter));
+    }
+
+    // The fine shown on this row (null = row no longer exists, or its page is still loading)
+    public Fine get_fine(int row) {
+        if (row < 0 || row >= rowCount) return null;
+        FineManager.Page page = page(row / PAGE_SIZE);
+        int index = row % PAGE_SIZE;
+        return (page != null && index < page.fines.size()) ? page.fines.get(index) : null;
+    }
+
+    @Override
+    public int getRowCount() { return rowCount; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public boolean isCellEditable(int row, int column) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Fine f = get_fine(row);
+        if (f == null) return LOADING;
+        switch (column) {
+            case 0: return f.getFineID();
+            case 1: return f.getVehiclePlate();
+            case 2: return "RM " + String.format("%.2f", f.getAmount());
+            case 3: return f.getReason();
+            case 4: return f.isPaid() ? "PAID" : "UNPAID";
+            default: return DatabaseManager.formatDateTime(f.getIssueDate());
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------------------
+    //  Paging
+    //------------------------------------------------------------------------------------------------------------------------------
+
+    // The page if it is here; otherwise asks a worker for it and returns null
+    private FineManager.Page page(int number) {
+        FineManager.Page page = pages.get(number);
+        if (page == null) request(number);
+        return page;
+    }
+
+    private void request(int number) {
+        if (number * PAGE_SIZE >= rowCount || !inFlight.add(number)) return;
+
+        // Decide here, on the Swing thread, where the page starts; the worker only runs the query
+        String filter = plateFilter;
+        int gen = generation;
+        FineManager.Page above = (number == 0) ? null : pages.get(number - 1);
+        String[] start = pageStarts.get(number);
+
+        new SwingWorker<FineManager.Page, Void>() {
+            @Override
+            protected FineManager.Page doInBackground() {
+                if (number == 0) return FineManager.get_fines_page(filter, null, true, PAGE_SIZE);
+                if (above != null && above.fines.size() == PAGE_SIZE) {
+                    return FineManager.get_fines_page(filter, above.lastKey, false, PAGE_SIZE);
+                }
+                String[] from = (start != null) ? start : FineManager.get_fine_key_at(filter, number * PAGE_SIZE);
+                if (from == null) return null; // Fines were removed since the count
+                return FineManager.get_fines_page(filter, from, true, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (gen != generation) return;
+                inFlight.remove(number);
+                FineManager.Page loaded = result_of(this);
+                if (loaded == null) return;
+                remember(number, loaded);
+                int first = number * PAGE_SIZE;
+                int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+                if (first <= last) fireTableRowsUpdated(first, last);
+
+                // Prefetch the page below: scrolling down is the common case, and it is a cheap keyset read from here
+                if (loaded.fines.size() == PAGE_SIZE && !pages.containsKey(number + 1)) request(number + 1);
+            }
+        }.execute();
+    }
+
+    private void remember(int number, FineManager.Page page) {
+        pages.put(number, page);
+        if (page.firstKey != null) pageStarts.put(number, page.firstKey);
+    }
+
+    private void report(String text) {
+        if (status != null) status.accept(text);
+    }
+
+    private static <V> V result_of(SwingWorker<V, ?> worker) {
+        try {
+            return worker.get();
+        } catch (Exception e) {
+            System.out.println("Error loading fines: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import javax.swing.*;
 import java.awt.*;
 import model.Fine;
 import model.FineManager;
+import model.PlateCodec;
 
 public class IssueFineDialog extends JDialog {
     private JTextField txtPlate = new JTextField(15);
@@ -89,7 +90,7 @@ public class IssueFineDialog extends JDialog {
 
     private void handleIssue() {
         try {
-            String plate = txtPlate.getText().trim().toUpperCase();
+            String plate = PlateCodec.normalize(txtPlate.getText()); // "wxy 1234" -> "WXY1234"
             String reason = (String) comboReason.getSelectedItem();
             double amount;
             String scheme;
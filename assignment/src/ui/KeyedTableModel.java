@@ -0,0 +1,167 @@
+package ui;
+
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// A table of items with a unique key (ticketID, spotID...), loaded in one go on a worker thread and then
+// kept current row by row: put(), update() and remove() fire events for just the rows they touch, so a
+// change to one spot repaints one row instead of the whole table.
+// Changes that arrive while a load is running are held back and replayed on the loaded rows; they are
+// idempotent (replace / remove by key), so replaying one the load already saw does no harm.
+// Only use it from the Swing thread.
+public class KeyedTableModel<T> extends AbstractTableModel {
+
+    // The value shown in "column" for "item"
+    public interface Cells<T> {
+        Object value(T item, int column);
+    }
+
+    private final String[] columns;
+    private final Function<T, String> keyOf;
+    private final Cells<T> cells;
+
+    private final List<T> rows = new ArrayList<>();
+    private Map<String, Integer> index = new HashMap<>(); // key -> row; null = rebuild on next lookup
+    private Supplier<List<T>> query;
+    private int generation;         // Bumped by reload(); older loads are dropped
+    private boolean loading;
+    private final List<Runnable> held = new ArrayList<>(); // Changes that arrived while loading
+    private boolean stale;          // invalidate() while loading: read again when this load is done
+
+    public KeyedTableModel(String[] columns, Function<T, String> keyOf, Cells<T> cells) {
+        this.columns = columns;
+        this.keyOf = keyOf;
+        this.cells = cells;
+    }
+
+    // Reads every row with "query" on a worker thread and replaces the table with the result
+    public void reload(Supplier<List<T>> query) {
+        this.query = query;
+        int gen = ++generation;
+        loading = true;
+        stale = false;
+        held.clear(); // The new load sees them
+
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() {
+                return query.get();
+            }
+
+            @Override
+            protected void done() {
+                if (gen != generation) return;
+                loading = false;
+                try {
+                    List<T> loaded = get();
+                    rows.clear();
+                    rows.addAll(loaded);
+                    index = null;
+                    fireTableDataChanged();
+                } catch (Exception e) {
+                    System.out.println("Error loading table: " + e.getMessage());
+                }
+                if (stale) {
+                    reload(query);
+                    return;
+                }
+                List<Runnable> replay = new ArrayList<>(held);
+                held.clear();
+                for (Runnable change : replay) change.run();
+            }
+        }.execute();
+    }
+
+    // Too much changed to patch row by row: read everything again (after the running load, if any)
+    public void invalidate() {
+        if (loading) stale = true;
+        else if (query != null) reload(query);
+    }
+
+    public boolean is_loading() {
+        return loading;
+    }
+
+    public T get(String key) {
+        Integer row = row_of(key);
+        return (row == null) ? null : rows.get(row);
+    }
+
+    // Replaces the row with the same key, or inserts the item as the first row
+    public void put(T item) {
+        if (loading) {
+            held.add(() -> put(item));
+            return;
+        }
+        Integer row = row_of(keyOf.apply(item));
+        if (row != null) {
+            rows.set(row, item);
+            fireTableRowsUpdated(row, row);
+        } else {
+            rows.add(0, item);
+            index = null;
+            fireTableRowsInserted(0, 0);
+        }
+    }
+
+    // Replaces the row with this key by change(row); unknown keys are ignored
+    public void update(String key, UnaryOperator<T> change) {
+        if (loading) {
+            held.add(() -> update(key, change));
+            return;
+        }
+        Integer row = row_of(key);
+        if (row == null) return;
+        rows.set(row, change.apply(rows.get(row)));
+        fireTableRowsUpdated(row, row);
+    }
+
+    public void remove(String key) {
+        if (loading) {
+            held.add(() -> remove(key));
+            return;
+        }
+        Integer row = row_of(key);
+        if (row == null) return;
+        rows.remove((int) row);
+        index = null;
+        fireTableRowsDeleted(row, row);
+    }
+
+    // Repaint every row (values that depend on the clock, like a parking duration)
+    public void refresh_all() {
+        if (!rows.isEmpty()) fireTableRowsUpdated(0, rows.size() - 1);
+    }
+
+    private Integer row_of(String key) {
+        if (index == null) {
+            index = new HashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) index.put(keyOf.apply(rows.get(i)), i);
+        }
+        return index.get(key);
+    }
+
+    @Override
+    public int getRowCount() { return rows.size(); }
+
+    @Override
+    public int getColumnCount() { return columns.length; }
+
+    @Override
+    public String getColumnName(int column) { return columns[column]; }
+
+    @Override
+    public boolean isCellEditable(int row, int column) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return cells.value(rows.get(row), column);
+    }
+}
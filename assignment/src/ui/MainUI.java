@@ -20,22 +20,42 @@ public class MainUI {
         }
 
         SwingUtilities.invokeLater(() -> {
-            DatabaseManager.initialize_ticket_table();
-            DatabaseManager.initialize_vehicle_logs_table();
-            // (If your fines table has an init method, add it too)
-            // DatabaseManager.initialize_fines_table();
+            JFrame frame = new JFrame("Parking Lot Management System - Group X");
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setSize(1000, 700);
+            frame.setLocationRelativeTo(null); // Center on screen
 
-            createMainFrame();
+            // Shown while the database is prepared (migrations can take a while on a large lot)
+            JProgressBar progress = new JProgressBar();
+            progress.setIndeterminate(true);
+            progress.setStringPainted(true);
+            progress.setString("Preparing database...");
+            JPanel waiting = new JPanel(new GridBagLayout());
+            waiting.add(progress);
+            frame.add(waiting);
+            frame.setVisible(true);
+
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() {
+                    // Creates/upgrades every table and index in one go
+                    DatabaseManager.initialize_database();
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    frame.remove(waiting);
+                    createMainTabs(frame);
+                    frame.revalidate();
+                    frame.repaint();
+                }
+            }.execute();
         });
 
     }
 
-    private static void createMainFrame() {
-        JFrame frame = new JFrame("Parking Lot Management System - Group X");
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(1000, 700);
-        frame.setLocationRelativeTo(null); // Center on screen
-
+    private static void createMainTabs(JFrame frame) {
         // --- MAIN TABS ---
         JTabbedPane mainTabs = new JTabbedPane();
 
@@ -49,6 +69,5 @@ public class MainUI {
         mainTabs.addTab("Admin Dashboard", new ImageIcon(), adminPanel, "View Reports & Settings");
 
         frame.add(mainTabs);
-        frame.setVisible(true);
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package ui;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+// Fills a DefaultTableModel from the database without blocking the Swing thread: the query runs on a
+// worker thread and rows are handed to the table CHUNK_SIZE at a time, so the first rows show up at once
+// and the window stays responsive while the rest stream in.
+// Starting a new load for the same table cancels the old one; rows of a cancelled load never reach the table.
+public class TableLoader<T> extends SwingWorker<Integer, Vector<Object>> {
+
+    public static final int CHUNK_SIZE = 500;
+
+    // Reads rows and hands each one to "sink"; stop reading as soon as sink returns false (load cancelled)
+    public interface Source<T> {
+        void read(Predicate<? super T> sink);
+    }
+
+    // One table row (in column order) for one item
+    public interface RowMapper<T> {
+        Object[] map(T item);
+    }
+
+    private final DefaultTableModel model;
+    private final IntSupplier counter;      // Null = total unknown (progress bar stays indeterminate)
+    private final Source<T> source;
+    private final RowMapper<T> mapper;
+    private final JProgressBar progressBar; // Null = no progress shown
+    private volatile int total = -1;
+    private Runnable whenLoaded;            // Swing thread, after the last row (not if cancelled)
+
+    private TableLoader(DefaultTableModel model, IntSupplier counter, Source<T> source, RowMapper<T> mapper, JProgressBar progressBar) {
+        this.model = model;
+        this.counter = counter;
+        this.source = source;
+        this.mapper = mapper;
+        this.progressBar = progressBar;
+    }
+
+    // Call on the Swing thread. Cancels "previous" (may be null), clears the table and starts reading.
+    public static <T> TableLoader<T> start(TableLoader<?> previous, DefaultTableModel model, IntSupplier counter,
+                                           Source<T> source, RowMapper<T> mapper, JProgressBar progressBar) {
+        if (previous != null) previous.cancel(false); // Not "true": an interrupt would close the JDBC connection under the query
+        model.setRowCount(0);
+
+        TableLoader<T> loader = new TableLoader<>(model, counter, source, mapper, progressBar);
+        if (progressBar != null) {
+            progressBar.setIndeterminate(true);
+            progressBar.setStringPainted(true);
+            progressBar.setString("Loading...");
+            progressBar.setVisible(true);
+        }
+        loader.execute();
+        return loader;
+    }
+
+    // Swing thread. Runs "action" once every row is in the table; never if the load is cancelled.
+    public void on_loaded(Runnable action) {
+        whenLoaded = action;
+    }
+
+    @Override
+    protected Integer doInBackground() {
+        if (counter != null) total = counter.getAsInt();
+
+        int[] loaded = {0};
+        List<Vector<Object>> chunk = new ArrayList<>(CHUNK_SIZE);
+        source.read(item -> {
+            if (isCancelled()) return false;
+            chunk.add(new Vector<>(Arrays.asList(mapper.map(item))));
+            if (chunk.size() == CHUNK_SIZE) {
+                publish_chunk(chunk);
+                loaded[0] += CHUNK_SIZE;
+                if (total > 0) setProgress(Math.min(100, (int) (100L * loaded[0] / total)));
+            }
+            return true;
+        });
+        loaded[0] += chunk.size();
+        publish_chunk(chunk);
+        return loaded[0];
+    }
+
+    private void publish_chunk(List<Vector<Object>> chunk) {
+        if (chunk.isEmpty() || isCancelled()) return;
+        publish(row_array(chunk));
+        chunk.clear();
+    }
+
+    // No generic array creation in Java; the Vector[] only ever holds Vector<Object> rows
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Vector<Object>[] row_array(List<Vector<Object>> rows) {
+        return rows.toArray(new Vector[0]);
+    }
+
+    // DefaultTableModel hands out its rows as a raw Vector<Vector>; every row in it is a Vector<Object>
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Vector<Vector<Object>> data_of(DefaultTableModel model) {
+        return (Vector<Vector<Object>>) (Vector) model.getDataVector();
+    }
+
+    // Swing thread: append the chunk with one "rows inserted" event instead of one per row
+    @Override
+    protected void process(List<Vector<Object>> rows) {
+        if (isCancelled()) return;
+        int first = model.getRowCount();
+        data_of(model).addAll(rows);
+        model.fireTableRowsInserted(first, model.getRowCount() - 1);
+
+        if (progressBar != null) {
+            if (total > 0) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((int) Math.min(100, 100L * model.getRowCount() / total));
+                progressBar.setString(String.format("%,d / %,d", model.getRowCount(), total));
+            } else {
+                progressBar.setString(String.format("%,d", model.getRowCount()));
+            }
+        }
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) return; // The load that replaced this one owns the progress bar
+        if (progressBar != null) progressBar.setVisible(false);
+        try {
+            get();
+        } catch (Exception e) {
+            System.out.println("Error loading table: " + e.getMessage());
+        }
+        if (whenLoaded != null) whenLoaded.run();
+    }
+}